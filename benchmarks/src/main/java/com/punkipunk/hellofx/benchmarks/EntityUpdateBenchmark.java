@@ -0,0 +1,68 @@
+package com.punkipunk.hellofx.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.punkipunk.hellofx.models.Entity;
+import com.punkipunk.hellofx.models.EntityStore;
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * Compara la actualizacion escalar de las entidades con la vectorizada.
+ * <p>
+ * La version vectorizada requiere que HelloFX se haya instalado con el perfil {@code vector}; si no, los casos con
+ * {@code vectorized=true} fallan al preparar el estado.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class EntityUpdateBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int entities;
+
+    @Param({"false", "true"})
+    private boolean vectorized;
+
+    private EntityStore store;
+
+    /**
+     * Crea las entidades en cada iteracion, ya que el arrastre las termina deteniendo y todas tomarian la misma rama.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Random random = new Random(42);
+        World world = new World();
+        for (int i = 0; i < entities; i++) {
+            Entity entity = world.spawn(45, 31);
+            entity.setPosition(random.nextFloat() * 800, random.nextFloat() * 600);
+            entity.applyRotation(random.nextFloat() * 360);
+            entity.applyThrust(random.nextFloat() * 10 - 5);
+        }
+        store = world.getStore();
+        store.setVectorized(vectorized);
+    }
+
+    @Benchmark
+    public void update() {
+        store.update();
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.punkipunk.hellofx;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import com.punkipunk.hellofx.animation.GameLoop;
+import com.punkipunk.hellofx.animation.HeadlessLoop;
+import com.punkipunk.hellofx.controls.InputReplay;
+import com.punkipunk.hellofx.models.Entity;
+import com.punkipunk.hellofx.models.ParallelIntegrator;
+import com.punkipunk.hellofx.models.ProjectilePool;
+import com.punkipunk.hellofx.models.World;
+import com.punkipunk.hellofx.rendering.RecordingBackend;
+import com.punkipunk.hellofx.rendering.Renderer;
+
+/**
+ * <p>
+ * Ejecuta la simulacion del SpaceShooter sin ventana ni toolkit de JavaFX, e informa cuantos ticks por segundo alcanza y
+ * cuantos bytes se asignan en el heap por tick. En estado estable el camino de cada tick (empuje, rotacion, arrastre e
+ * integracion) no deberia asignar nada: cualquier valor distinto de cero es basura que termina en pausas del GC joven.
+ * <p>
+ * Argumentos opcionales (en cualquier orden):
+ * <ul>
+ * <li>{@code --ticks N}: cantidad de ticks a simular (por defecto 600000).
+ * <li>{@code --rate R}: ticks por segundo de tiempo real, o 0 para ejecutar sin limite (por defecto 0).
+ * <li>{@code --entities N}: cantidad de naves adicionales que empujan y giran en cada tick, para que el arrastre nunca las
+ * detenga y cada tick mida un mundo en movimiento (por defecto 1000).
+ * <li>{@code --projectiles N}: cantidad aproximada de proyectiles vivos que se mantienen disparando en rafagas desde el
+ * player en cada tick (por defecto 0).
+ * <li>{@code --collisions true}: detecta en cada tick los pares de entidades y proyectiles que se superponen.
+ * <li>{@code --parallel true}: actualiza las entidades con un {@link ParallelIntegrator} en el pool comun de fork-join.
+ * <li>{@code --vector true}: actualiza las entidades con la Vector API (requiere compilar con {@code -Pvector} e iniciar la JVM
+ * con {@code --add-modules jdk.incubator.vector}).
+ * Ejecutar con y sin esta opcion permite comparar la version escalar con la vectorizada.
+ * <li>{@code --render true}: despues de cada tick prepara y "dibuja" el frame con un {@link Renderer} sobre un
+ * {@link RecordingBackend} de {@value #RENDER_WIDTH}x{@value #RENDER_HEIGHT}, e informa las llamadas de dibujo, los cambios de
+ * estado y los pixeles cubiertos por frame. Asi los ticks por segundo incluyen el costo de culling, orden y transformaciones,
+ * sin el de Prism.
+ * <li>{@code --replay archivo}: reproduce una sesion grabada con {@code -Dhellofx.recordInput} (ignora {@code --ticks} y
+ * {@code --entities}, ya que el registro define la duracion y el mundo tiene solo al player).
+ * </ul>
+ * Ejemplo: {@code java --module-path <javafx> -m com.punkipunk.hellofx/com.punkipunk.hellofx.HeadlessSimulation --ticks 100000}
+ */
+
+public final class HeadlessSimulation {
+
+    // Dimensiones de textures/ship.png, ya que sin el toolkit no se puede cargar la imagen
+    private static final double SHIP_WIDTH = 45;
+    private static final double SHIP_HEIGHT = 31;
+    private static final float SHIP_SCALE = 0.5f;
+    private static final long SEED = 42; // Semilla fija para que las ejecuciones sean comparables
+    private static final int PROJECTILE_LIFETIME = 120;
+    private static final float PROJECTILE_SPEED = 2;
+    private static final int RENDER_WIDTH = 1280;
+    private static final int RENDER_HEIGHT = 720;
+    private static final float SHIP_THRUST = 0.2f; // Empuje por tick de cada nave
+    private static final float SHIP_MAX_TURN = 1; // Giro maximo por tick de cada nave
+    private static final float FIXED_TIME_STEP = 1.0f / 60.0f;
+
+    private HeadlessSimulation() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long ticks = 600_000;
+        double rate = 0;
+        int entities = 1000, projectiles = 0;
+        boolean parallel = false, vector = false, collisions = false, render = false;
+        String replay = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) throw new IllegalArgumentException("Missing value for argument: " + args[i]);
+            switch (args[i]) {
+                case "--ticks" -> ticks = Long.parseLong(args[i + 1]);
+                case "--rate" -> rate = Double.parseDouble(args[i + 1]);
+                case "--entities" -> entities = Integer.parseInt(args[i + 1]);
+                case "--projectiles" -> projectiles = Integer.parseInt(args[i + 1]);
+                case "--parallel" -> parallel = Boolean.parseBoolean(args[i + 1]);
+                case "--vector" -> vector = Boolean.parseBoolean(args[i + 1]);
+                case "--collisions" -> collisions = Boolean.parseBoolean(args[i + 1]);
+                case "--render" -> render = Boolean.parseBoolean(args[i + 1]);
+                case "--replay" -> replay = args[i + 1];
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        if (replay != null) {
+            replay(replay, rate);
+            return;
+        }
+
+        World world = createWorld(entities);
+        if (parallel) world.setIntegrator(new ParallelIntegrator());
+        world.getStore().setVectorized(vector);
+        long[] pairs = new long[1];
+        if (collisions) world.setCollisionListener((a, b) -> pairs[0]++);
+        GameLoop.GameLoopCallback step = steering(world, projectiles > 0 ? firing(world, projectiles) : world::tick);
+        RecordingBackend backend = null;
+        if (render) {
+            backend = new RecordingBackend(RENDER_WIDTH, RENDER_HEIGHT);
+            step = rendering(world, new Renderer(backend), step);
+        }
+        HeadlessLoop loop = new HeadlessLoop(step, FIXED_TIME_STEP, rate);
+
+        // Calentamiento para que el JIT compile el camino caliente antes de medir
+        loop.run(Math.min(ticks, 10_000));
+        if (backend != null) backend.reset();
+        long allocated = allocatedBytes();
+        double ticksPerSecond = loop.run(ticks);
+        if (allocated >= 0) allocated = allocatedBytes() - allocated;
+
+        System.out.printf("%d ticks, %d entities, %d projectiles: %.0f ticks/s", ticks, world.getEntities().size(),
+                world.getProjectiles().getCount(), ticksPerSecond);
+        if (allocated >= 0) System.out.printf(", %.1f bytes/tick allocated", (double) allocated / ticks);
+        if (collisions) System.out.printf(", %.1f pairs/tick", (double) pairs[0] / (ticks + Math.min(ticks, 10_000)));
+        if (backend != null) System.out.printf(", %.1f draws/frame, %.1f state changes/frame, %.0f pixels/frame",
+                (double) backend.getDrawCalls() / ticks, (double) backend.getStateChanges() / ticks, backend.getPixels() / ticks);
+        System.out.println();
+    }
+
+    /**
+     * Reproduce una sesion grabada dos veces: la primera para calentar el JIT y la segunda, desde el tick 0, para medir.
+     */
+    private static void replay(String path, double rate) throws IOException {
+        World world = createWorld(0);
+        InputReplay replay;
+        try (InputStream in = new FileInputStream(path)) {
+            replay = InputReplay.read(in, world);
+        }
+        HeadlessLoop loop = new HeadlessLoop(replay::step, FIXED_TIME_STEP, rate);
+        loop.run(replay.getLength());
+        replay.seek(0, FIXED_TIME_STEP);
+        double ticksPerSecond = loop.run(replay.getLength());
+        replay.release();
+
+        System.out.printf("replayed %d ticks from %s: %.0f ticks/s, player at %s%n", replay.getLength(), path, ticksPerSecond,
+                world.getPlayer().getPosition());
+    }
+
+    /**
+     * Obtiene la cantidad de bytes que el hilo actual asigno en el heap desde que empezo, usando los contadores de asignacion
+     * por hilo de la JVM.
+     *
+     * @return los bytes asignados por el hilo actual, o -1 si la JVM no soporta la medicion.
+     */
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) return -1;
+        if (!threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Crea un callback que, antes de cada tick, dispara una rafaga circular desde el player con la cantidad de proyectiles
+     * necesaria para mantener aproximadamente {@code projectiles} vivos.
+     */
+    private static GameLoop.GameLoopCallback firing(World world, int projectiles) {
+        ProjectilePool pool = world.getProjectiles();
+        int burst = Math.max(1, projectiles / PROJECTILE_LIFETIME);
+        return dt -> {
+            Entity player = world.getPlayer();
+            float angleStep = (float) (2 * Math.PI / burst);
+            for (int i = 0; i < burst; i++) {
+                float angle = i * angleStep + world.getTimers().getTick() * 0.1f;
+                pool.spawn(player.getCenterX(), player.getCenterY(), (float) Math.cos(angle) * PROJECTILE_SPEED,
+                        (float) Math.sin(angle) * PROJECTILE_SPEED, PROJECTILE_LIFETIME);
+            }
+            world.tick(dt);
+        };
+    }
+
+    /**
+     * Envuelve un paso de simulacion para que, antes de cada tick, todas las naves salvo el player empujen y giren, cada una con
+     * su propio giro fijo. Asi describen circulos a velocidad constante en lugar de detenerse por el arrastre.
+     */
+    private static GameLoop.GameLoopCallback steering(World world, GameLoop.GameLoopCallback step) {
+        List<Entity> ships = world.getEntities();
+        float[] turns = new float[ships.size()];
+        Random random = new Random(SEED);
+        for (int i = 0; i < turns.length; i++) turns[i] = (random.nextFloat() * 2 - 1) * SHIP_MAX_TURN;
+        return dt -> {
+            Entity player = world.getPlayer();
+            for (int i = 0; i < ships.size(); i++) {
+                Entity ship = ships.get(i);
+                if (ship == player) continue;
+                ship.applyRotation(turns[i]);
+                ship.applyThrust(SHIP_THRUST);
+            }
+            step.tick(dt);
+        };
+    }
+
+    /**
+     * Envuelve un paso de simulacion para que, despues de cada tick, el renderizador arme y envie el frame al backend, como
+     * haria el GameLoop en cada pulso de pantalla.
+     */
+    private static GameLoop.GameLoopCallback rendering(World world, Renderer renderer, GameLoop.GameLoopCallback step) {
+        for (Entity entity : world.getEntities()) renderer.addEntity(entity);
+        renderer.setProjectiles(world.getProjectiles());
+        return dt -> {
+            step.tick(dt);
+            renderer.prepare();
+            renderer.render(1);
+        };
+    }
+
+    private static World createWorld(int entities) {
+        Random random = new Random(SEED);
+        World world = new World();
+        world.setPlayer(createShip(world, 350, 200));
+        for (int i = 0; i < entities; i++) {
+            Entity ship = createShip(world, random.nextFloat() * 750, random.nextFloat() * 450);
+            ship.applyRotation(random.nextFloat() * 10 - 5);
+            ship.applyThrust(random.nextFloat() * 5);
+        }
+        return world;
+    }
+
+    private static Entity createShip(World world, float x, float y) {
+        Entity ship = world.spawn(SHIP_WIDTH, SHIP_HEIGHT);
+        ship.setPosition(x, y);
+        ship.setScale(SHIP_SCALE);
+        return ship;
+    }
+
+}
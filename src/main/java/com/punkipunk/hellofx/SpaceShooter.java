@@ -7,19 +7,24 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
+import com.punkipunk.hellofx.controllers.GameController;
 import com.punkipunk.hellofx.controls.KeyPolling;
 
 import java.util.Objects;
 
 public class SpaceShooter extends Application {
 
+    private GameController controller;
+
     public static void main(String[] args) {
         launch(args);
     }
 
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/fxml/GameView.fxml")));
+        FXMLLoader loader = new FXMLLoader(Objects.requireNonNull(getClass().getResource("/fxml/GameView.fxml")));
+        Parent root = loader.load();
+        controller = loader.getController();
         Scene scene = new Scene(root);
 
         KeyPolling.getInstance().pollScene(scene);
@@ -32,4 +37,9 @@ public class SpaceShooter extends Application {
 
     }
 
+    @Override
+    public void stop() {
+        if (controller != null) controller.shutdown();
+    }
+
 }
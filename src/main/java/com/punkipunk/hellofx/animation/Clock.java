@@ -0,0 +1,50 @@
+package com.punkipunk.hellofx.animation;
+
+/**
+ * <p>
+ * Fuente de tiempo en nanosegundos sobre la que corren los temporizadores ({@code GameLoop}, {@code PausableAnimationTimer} y
+ * {@code SimpleAnimationTimer}).
+ * <p>
+ * Por defecto se usa {@link #SYSTEM}, que equivale a llamar a {@code System.nanoTime()}. Reemplazandolo por un
+ * {@link VirtualClock} se puede avanzar el tiempo manualmente, cambiar su velocidad (camara lenta o avance rapido) o ejecutar la
+ * simulacion a maxima velocidad, sin modificar la logica del juego.
+ */
+
+public interface Clock {
+
+    /**
+     * Reloj del sistema. Usa las marcas de tiempo de los pulsos de JavaFX tal como llegan.
+     */
+    Clock SYSTEM = new Clock() {
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long fromPulse(long pulseNanos) {
+            return pulseNanos;
+        }
+
+    };
+
+    /**
+     * Obtiene el tiempo actual del reloj.
+     *
+     * @return el tiempo actual en nanosegundos.
+     */
+    long nanoTime();
+
+    /**
+     * Convierte la marca de tiempo de un pulso de {@code AnimationTimer} (que esta en la escala de {@code System.nanoTime()}) al
+     * tiempo de este reloj. Por defecto ignora el pulso y devuelve {@link #nanoTime()}.
+     *
+     * @param pulseNanos marca de tiempo recibida en {@code handle(long now)}.
+     * @return el tiempo del reloj correspondiente al pulso.
+     */
+    default long fromPulse(long pulseNanos) {
+        return nanoTime();
+    }
+
+}
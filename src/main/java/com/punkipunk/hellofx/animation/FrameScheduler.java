@@ -0,0 +1,122 @@
+package com.punkipunk.hellofx.animation;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * <p>
+ * Planificador de tareas diferibles que solo se ejecutan con el tiempo que sobra en cada frame.
+ * <p>
+ * Hay trabajo que es costoso pero no urgente (replanificar la IA, reconstruir caches, subir recursos) y que no necesita hacerse
+ * en un frame en particular. En lugar de ejecutarlo directamente dentro del tick, se envia a este planificador con una
+ * prioridad. Al final de cada pulso, el {@code GameLoop} llama a {@link #run(long)} con la marca de tiempo del pulso, y el
+ * planificador ejecuta tareas (de mayor a menor prioridad y, a igual prioridad, en orden de llegada) mientras quede tiempo antes
+ * de la fecha limite del frame. Las tareas que no entran se conservan para los frames siguientes.
+ * <p>
+ * La fecha limite es la marca de tiempo del pulso mas el presupuesto configurado. El presupuesto por defecto (12 ms) es menor a
+ * la duracion de un frame de 60 Hz para dejar margen al renderizado que JavaFX realiza despues del pulso. Como una tarea no se
+ * puede interrumpir, cada tarea individual deberia ser corta; el trabajo largo conviene dividirlo en varias tareas.
+ * <p>
+ * Esta clase no es segura para hilos: las tareas deben enviarse desde el hilo de aplicacion de JavaFX.
+ */
+
+public class FrameScheduler {
+
+    private static final long DEFAULT_BUDGET_NANOS = 12_000_000; // 12 ms
+
+    /**
+     * Tarea en espera junto con su prioridad y su orden de llegada.
+     */
+    private static final class ScheduledTask {
+
+        final Runnable task;
+        final int priority;
+        final long sequence;
+
+        ScheduledTask(Runnable task, int priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+    }
+
+    // Mayor prioridad primero y, a igual prioridad, la que llego antes
+    private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>(Comparator
+            .comparingInt((ScheduledTask t) -> -t.priority)
+            .thenComparingLong(t -> t.sequence));
+
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private long sequence;
+
+    /**
+     * Envia una tarea con prioridad 0.
+     *
+     * @param task tarea a ejecutar en algun frame futuro.
+     */
+    public void submit(Runnable task) {
+        submit(task, 0);
+    }
+
+    /**
+     * Envia una tarea con una prioridad determinada.
+     *
+     * @param task     tarea a ejecutar en algun frame futuro.
+     * @param priority prioridad de la tarea; las de mayor valor se ejecutan primero.
+     * @throws IllegalArgumentException si la tarea es nula.
+     */
+    public void submit(Runnable task, int priority) {
+        if (task == null) throw new IllegalArgumentException("The task cannot be null!");
+        tasks.add(new ScheduledTask(task, priority, sequence++));
+    }
+
+    /**
+     * Ejecuta tareas pendientes hasta agotar el presupuesto del frame.
+     * <p>
+     * Si el frame ya supero su fecha limite (por ejemplo, porque la simulacion fue pesada), no se ejecuta ninguna tarea.
+     *
+     * @param frameStart marca de tiempo del pulso actual en nanosegundos.
+     * @return la cantidad de tareas ejecutadas.
+     */
+    public int run(long frameStart) {
+        long deadline = frameStart + budgetNanos;
+        int executed = 0;
+        while (!tasks.isEmpty() && System.nanoTime() - deadline < 0) {
+            tasks.poll().task.run();
+            executed++;
+        }
+        return executed;
+    }
+
+    /**
+     * Establece el tiempo de cada frame, contado desde el inicio del pulso, dentro del cual se pueden ejecutar tareas.
+     *
+     * @param budgetNanos presupuesto en nanosegundos.
+     * @throws IllegalArgumentException si el presupuesto no es positivo.
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        if (budgetNanos <= 0) throw new IllegalArgumentException("The frame budget must be positive!");
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Obtiene la cantidad de tareas que todavia esperan su turno.
+     *
+     * @return la cantidad de tareas pendientes.
+     */
+    public int getPending() {
+        return tasks.size();
+    }
+
+    /**
+     * Descarta todas las tareas pendientes.
+     */
+    public void clear() {
+        tasks.clear();
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.punkipunk.hellofx.animation;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Registra la duracion de cada frame en un histograma de buckets fijos para obtener percentiles de tiempo de frame.
+ * <p>
+ * Los FPS promedio ocultan los tirones: un segundo con 59 frames de 15 ms y uno de 100 ms sigue mostrando casi 60 FPS. Con el
+ * histograma se pueden consultar el p50, p95, p99 y el maximo, ademas de la cantidad de frames que superaron el presupuesto de
+ * tiempo configurado. Registrar un frame es O(1) y no genera basura, ya que solo incrementa un contador del arreglo de buckets;
+ * los objetos {@link FrameTimeSnapshot} se crean solo cuando se piden.
+ * <p>
+ * Los buckets tienen un ancho de 0.1 ms y cubren hasta 100 ms. Los frames mas largos se acumulan en un bucket de desborde, pero
+ * el maximo se registra siempre con su valor exacto.
+ */
+
+public class FrameTimeRecorder {
+
+    private static final long BUCKET_WIDTH_NANOS = 100_000; // 0.1 ms
+    private static final int BUCKET_COUNT = 1000; // 1000 * 0.1 ms = 100 ms
+    private static final long DEFAULT_BUDGET_NANOS = 1_000_000_000L / 60; // 16.6 ms
+
+    private final long[] buckets = new long[BUCKET_COUNT + 1]; // El ultimo bucket es el de desborde
+    private long frames, overBudget, maxNanos, totalNanos;
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private long lastFrame;
+
+    /**
+     * Registra un frame a partir de la marca de tiempo del pulso. El primer pulso despues de crear el registrador o de llamar a
+     * {@link #restart()} solo establece la referencia y no registra ninguna duracion.
+     *
+     * @param now marca de tiempo del pulso actual en nanosegundos.
+     */
+    public void record(long now) {
+        if (lastFrame != 0) recordFrameTime(now - lastFrame);
+        lastFrame = now;
+    }
+
+    /**
+     * Registra la duracion de un frame.
+     *
+     * @param frameNanos duracion del frame en nanosegundos.
+     */
+    public void recordFrameTime(long frameNanos) {
+        if (frameNanos < 0) return;
+        buckets[(int) Math.min(frameNanos / BUCKET_WIDTH_NANOS, BUCKET_COUNT)]++;
+        frames++;
+        totalNanos += frameNanos;
+        if (frameNanos > maxNanos) maxNanos = frameNanos;
+        if (frameNanos > budgetNanos) overBudget++;
+    }
+
+    /**
+     * Descarta la referencia del ultimo pulso, para que el tiempo que el temporizador estuvo detenido o en pausa no se registre
+     * como un frame largo.
+     */
+    public void restart() {
+        lastFrame = 0;
+    }
+
+    /**
+     * Borra todos los frames registrados.
+     */
+    public void reset() {
+        Arrays.fill(buckets, 0);
+        frames = overBudget = maxNanos = totalNanos = 0;
+        lastFrame = 0;
+    }
+
+    /**
+     * Establece el presupuesto de tiempo por frame. Los frames que lo superen se cuentan en {@link #getOverBudget()}.
+     *
+     * @param budgetNanos presupuesto en nanosegundos.
+     * @throws IllegalArgumentException si el presupuesto no es positivo.
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        if (budgetNanos <= 0) throw new IllegalArgumentException("The frame budget must be positive!");
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getOverBudget() {
+        return overBudget;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Calcula un percentil del tiempo de frame.
+     * <p>
+     * Recorre el histograma acumulando frames hasta alcanzar el rango pedido y devuelve el limite superior de ese bucket, por lo
+     * que el resultado tiene una precision de 0.1 ms. Si el percentil cae en el bucket de desborde, devuelve el maximo.
+     *
+     * @param percentile percentil entre 0 y 100.
+     * @return el tiempo de frame del percentil en nanosegundos, o 0 si no hay frames registrados.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (frames == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * frames));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min((i + 1) * BUCKET_WIDTH_NANOS, maxNanos);
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Crea una copia inmutable de las metricas actuales.
+     *
+     * @return las metricas de tiempo de frame hasta este momento.
+     */
+    public FrameTimeSnapshot snapshot() {
+        return new FrameTimeSnapshot(frames, frames == 0 ? 0 : totalNanos / frames, getPercentileNanos(50), getPercentileNanos(95),
+                getPercentileNanos(99), maxNanos, overBudget, budgetNanos);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.punkipunk.hellofx.animation;
+
+/**
+ * Metricas de tiempo de frame tomadas de un {@link FrameTimeRecorder} en un momento determinado. Todos los tiempos estan en
+ * nanosegundos.
+ */
+
+public final class FrameTimeSnapshot {
+
+    private final long frames, averageNanos, p50Nanos, p95Nanos, p99Nanos, maxNanos, overBudget, budgetNanos;
+
+    FrameTimeSnapshot(long frames, long averageNanos, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos, long overBudget,
+                      long budgetNanos) {
+        this.frames = frames;
+        this.averageNanos = averageNanos;
+        this.p50Nanos = p50Nanos;
+        this.p95Nanos = p95Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+        this.overBudget = overBudget;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getAverageNanos() {
+        return averageNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP95Nanos() {
+        return p95Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getOverBudget() {
+        return overBudget;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("frames=%d avg=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms over %.2fms=%d", frames,
+                averageNanos / 1e6, p50Nanos / 1e6, p95Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, budgetNanos / 1e6, overBudget);
+    }
+
+}
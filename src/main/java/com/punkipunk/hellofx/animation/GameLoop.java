@@ -4,19 +4,39 @@ import javafx.animation.AnimationTimer;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
+import com.punkipunk.hellofx.profiling.FrameCounter;
+import com.punkipunk.hellofx.profiling.LoopEvent;
+import com.punkipunk.hellofx.profiling.TickEvent;
+
 public class GameLoop extends AnimationTimer {
 
     private static final double FIXED_TIME_STEP = 1.0f / 60.0f; // 60 actualizaciones por segundo
+    private static final long FIXED_TIME_STEP_NANOS = 1_000_000_000L / 60;
+    /* Cantidad maxima de pasos de simulacion que se pueden ejecutar en un solo pulso. Si un frame tarda demasiado, el atraso
+     * restante se descarta en lugar de intentar recuperarlo, evitando la "espiral de la muerte" (cada frame lento genera mas
+     * pasos, que a su vez hacen mas lento el siguiente frame). */
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    /* Valor de lastFrameTime cuando no hay un pulso previo con que comparar. No se usa 0 porque un VirtualClock empieza en 0 y
+     * el segundo pulso se confundiria con un reinicio, perdiendo un paso. */
+    private static final long NO_FRAME = Long.MIN_VALUE;
 
-    private long pauseStart, animationStart, lastFrameTime;
-    private boolean paused, activated;
+    private long lastFrameTime = NO_FRAME; // Tiempo del reloj en el pulso anterior
+    private long accumulator; // Tiempo real acumulado (en nanosegundos) pendiente de simular
+    // Estados del temporizador (pausado, activado) y reloj con el que avanza la simulacion
+    private final PauseTracker state = new PauseTracker();
     private final StringProperty fpsProperty = new SimpleStringProperty();
+    // Histograma de tiempos de frame, para detectar tirones que el promedio de FPS oculta
+    private final FrameTimeRecorder frameTimes = new FrameTimeRecorder();
+    // Tareas diferibles que se ejecutan con el tiempo sobrante de cada frame
+    private final FrameScheduler scheduler = new FrameScheduler();
 
     private long frameCount;
-    private long lastFPSTime = System.nanoTime();
+    private long lastFPSTime;
 
 
     private final GameLoopCallback callback;
+    private final RenderCallback renderCallback;
+    private SimulationThread simulation; // Hilo que simula el mundo cuando el loop solo renderiza, o null
 
     /**
      * <p>
@@ -33,13 +53,16 @@ public class GameLoop extends AnimationTimer {
      * <li>Como se usa: En la clase GameController, pasamos el metodo {@code tick} como callback al crear el GameLoop:
      * <pre>{@code
      * private void startGameLoop() {
-     *     gameLoop = new GameLoop(this::tick);
+     *     gameLoop = new GameLoop(this::tick, this::render);
      * }
      *
      * private void tick(float deltaTime) {
-     *     renderer.prepare();
      *     updatePlayerMovement(deltaTime);
-     *     renderer.render();
+     * }
+     *
+     * private void render(float alpha) {
+     *     renderer.prepare();
+     *     renderer.render(alpha);
      * }
      * }</pre>
      * <li>Ventajas de usar callbacks:
@@ -67,8 +90,49 @@ public class GameLoop extends AnimationTimer {
 
     }
 
+    /**
+     * Callback de renderizado usado en el modo acumulador.
+     * <p>
+     * Se llama una sola vez por pulso, despues de ejecutar los pasos de simulacion pendientes. El valor {@code alpha} (entre 0 y
+     * 1) indica cuanto tiempo quedo en el acumulador como fraccion del paso fijo, y permite dibujar las entidades interpolando
+     * entre su estado anterior y su estado actual.
+     */
+    public interface RenderCallback {
+
+        /**
+         * Renderiza el estado del juego para el frame actual.
+         *
+         * @param alpha factor de interpolacion entre el estado anterior y el actual.
+         */
+        void render(float alpha);
+
+    }
+
+    /**
+     * Crea un GameLoop que llama al callback una vez por pulso con el paso fijo, sin tener en cuenta el intervalo real entre
+     * pulsos.
+     *
+     * @param callback logica del juego a ejecutar en cada pulso.
+     */
     public GameLoop(GameLoopCallback callback) {
+        this(callback, null);
+    }
+
+    /**
+     * <p>
+     * Crea un GameLoop en modo acumulador (fixed timestep). En cada pulso se suma el tiempo real transcurrido al acumulador y se
+     * ejecutan cero o mas pasos de simulacion de duracion fija, hasta un maximo de {@code MAX_STEPS_PER_FRAME}. Luego se llama
+     * al callback de renderizado con el factor de interpolacion correspondiente al tiempo sobrante.
+     * <p>
+     * De esta forma la simulacion avanza siempre a 60 actualizaciones por segundo, sin importar si la pantalla refresca a 60 Hz,
+     * 144 Hz o si se pierden frames.
+     *
+     * @param callback       logica del juego a ejecutar en cada paso fijo.
+     * @param renderCallback renderizado a ejecutar una vez por pulso.
+     */
+    public GameLoop(GameLoopCallback callback, RenderCallback renderCallback) {
         this.callback = callback;
+        this.renderCallback = renderCallback;
     }
 
     /**
@@ -77,7 +141,7 @@ public class GameLoop extends AnimationTimer {
      * @return true si el temporizador esta pausado o false en caso contrario.
      */
     public boolean isPaused() {
-        return paused;
+        return state.isPaused();
     }
 
     /**
@@ -86,26 +150,50 @@ public class GameLoop extends AnimationTimer {
      * @return true si el temporizador esta activado o false en caso contrario.
      */
     public boolean isActivated() {
-        return activated;
+        return state.isActivated();
+    }
+
+    /**
+     * <p>
+     * Establece el reloj con el que avanza la simulacion (por defecto {@link Clock#SYSTEM}).
+     * <p>
+     * Con un {@link VirtualClock} escalado se obtiene camara lenta o avance rapido: el acumulador recibe el tiempo del reloj, asi
+     * que la cantidad de pasos fijos por segundo real cambia segun la escala, sin modificar la logica del juego. Los FPS y los
+     * tiempos de frame se siguen midiendo en tiempo real.
+     *
+     * @param clock reloj a usar.
+     */
+    public void setClock(Clock clock) {
+        state.setClock(clock);
+        lastFrameTime = NO_FRAME;
+    }
+
+    /**
+     * Establece el hilo de simulacion que se pausa y reanuda junto con el loop, cuando el loop solo renderiza los snapshots
+     * que publica ese hilo.
+     *
+     * @param simulation hilo de simulacion, o null si la simulacion corre en el propio loop.
+     */
+    public void setSimulation(SimulationThread simulation) {
+        this.simulation = simulation;
     }
 
     /**
-     * Pausa el temporizador.
+     * Pausa el temporizador y, si hay uno, el hilo de simulacion.
      */
     public void pause() {
-        if (!paused && activated) {
-            paused = true;
-            pauseStart = System.nanoTime();
-        }
+        state.pause();
+        if (simulation != null) simulation.pause();
     }
 
     /**
-     * Reanuda el temporizador.
+     * Reanuda el temporizador y, si hay uno, el hilo de simulacion.
      */
     public void play() {
-        if (paused) {
-            paused = false;
-            animationStart += (System.nanoTime() - pauseStart);
+        if (state.play()) {
+            lastFrameTime = NO_FRAME; // El tiempo en pausa no se acumula para la simulacion
+            frameTimes.restart();
+            if (simulation != null) simulation.play();
         }
     }
 
@@ -115,9 +203,10 @@ public class GameLoop extends AnimationTimer {
     @Override
     public void start() {
         super.start();
-        activated = true;
-        paused = false;
-        animationStart = System.nanoTime();
+        state.start();
+        lastFrameTime = NO_FRAME;
+        accumulator = 0;
+        frameTimes.restart();
     }
 
     /**
@@ -126,8 +215,7 @@ public class GameLoop extends AnimationTimer {
     @Override
     public void stop() {
         super.stop();
-        activated = false;
-        paused = false;
+        state.stop();
     }
 
     /**
@@ -136,18 +224,102 @@ public class GameLoop extends AnimationTimer {
     @Override
     public void handle(long now) {
 
-        if (!activated || paused) return;
+        if (!state.isActivated() || state.isPaused()) return;
 
-        callback.tick((float) FIXED_TIME_STEP);
+        LoopEvent event = new LoopEvent();
+        event.begin();
+        long frame = FrameCounter.next();
+
+        frameTimes.record(now);
+
+        int steps = 1;
+        if (renderCallback == null) tick(frame, 0);
+        else steps = step(frame, state.getClock().fromPulse(now));
+
+        // El trabajo no urgente solo usa lo que queda del presupuesto del frame
+        scheduler.run(now);
 
         // Monitorea la cantidad de frames por segundo
         frameCount++;
+        if (lastFPSTime == 0) lastFPSTime = now;
         if (now - lastFPSTime >= 1_000_000_000) { // 1 segundo
             fpsProperty.set(String.valueOf((int) frameCount));
             frameCount = 0;
             lastFPSTime = now;
         }
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = frame;
+            event.steps = steps;
+            event.commit();
+        }
+
+    }
+
+    /**
+     * <p>
+     * Ejecuta los pasos de simulacion pendientes en el acumulador y renderiza el frame.
+     * <p>
+     * Si se alcanza {@code MAX_STEPS_PER_FRAME} y todavia queda tiempo para otro paso, se descartan los pasos completos sobrantes
+     * y solo se conserva la fraccion de paso, por lo que el juego se ralentiza temporalmente en vez de congelarse.
+     *
+     * @param frame numero del frame actual.
+     * @param now   tiempo del reloj correspondiente al pulso actual, en nanosegundos.
+     * @return la cantidad de pasos de simulacion ejecutados.
+     */
+    private int step(long frame, long now) {
+        // En el primer pulso (o despues de una pausa) no hay tiempo previo con que comparar
+        if (lastFrameTime == NO_FRAME) lastFrameTime = now;
+        accumulator += now - lastFrameTime;
+        lastFrameTime = now;
+
+        int steps = 0;
+        while (accumulator >= FIXED_TIME_STEP_NANOS && steps < MAX_STEPS_PER_FRAME) {
+            tick(frame, steps);
+            accumulator -= FIXED_TIME_STEP_NANOS;
+            steps++;
+        }
+        if (accumulator >= FIXED_TIME_STEP_NANOS) accumulator %= FIXED_TIME_STEP_NANOS;
+
+        renderCallback.render((float) accumulator / FIXED_TIME_STEP_NANOS);
+        return steps;
+    }
+
+    /**
+     * Ejecuta un paso de simulacion, registrandolo como evento de JFR.
+     *
+     * @param frame numero del frame actual.
+     * @param step  indice del paso dentro del pulso.
+     */
+    private void tick(long frame, int step) {
+        TickEvent event = new TickEvent();
+        event.begin();
+        callback.tick((float) FIXED_TIME_STEP);
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = frame;
+            event.step = step;
+            event.commit();
+        }
+    }
+
+    /**
+     * Obtiene el registro de tiempos de frame, desde el que se pueden consultar percentiles o tomar un snapshot de las metricas.
+     *
+     * @return el registro de tiempos de frame.
+     */
+    public FrameTimeRecorder getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * Obtiene el planificador de tareas diferibles asociado al loop.
+     *
+     * @return el planificador de tareas.
+     */
+    public FrameScheduler getScheduler() {
+        return scheduler;
     }
 
     /**
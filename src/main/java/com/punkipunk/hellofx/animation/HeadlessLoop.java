@@ -0,0 +1,110 @@
+package com.punkipunk.hellofx.animation;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Ejecuta un {@link GameLoop.GameLoopCallback} en un bucle cerrado, sin {@code AnimationTimer} y sin el toolkit de JavaFX.
+ * <p>
+ * A diferencia del {@code GameLoop}, que depende de los pulsos de JavaFX y por lo tanto esta limitado a la tasa de refresco de la
+ * pantalla, este bucle puede avanzar la simulacion tan rapido como lo permita la CPU (sin limite) o a una tasa virtual elegida.
+ * En ambos casos cada tick recibe el mismo paso fijo, por lo que el resultado de la simulacion es el mismo que en el juego. Es
+ * util para pruebas de carga y benchmarks en maquinas sin pantalla.
+ */
+
+public class HeadlessLoop {
+
+    private static final float DEFAULT_TIME_STEP = 1.0f / 60.0f;
+
+    private final GameLoop.GameLoopCallback callback;
+    private final float fixedDeltaTime;
+    private final long tickIntervalNanos; // 0 = sin limite
+    private VirtualClock clock; // Reloj opcional que avanza un paso fijo por tick
+
+    private long ticks, elapsedNanos;
+
+    /**
+     * Crea un bucle sin limite que pasa el paso fijo de 1/60 segundos al callback.
+     *
+     * @param callback logica del juego a ejecutar en cada tick.
+     */
+    public HeadlessLoop(GameLoop.GameLoopCallback callback) {
+        this(callback, DEFAULT_TIME_STEP, 0);
+    }
+
+    /**
+     * Crea un bucle con un paso fijo y una tasa de ticks determinados.
+     *
+     * @param callback       logica del juego a ejecutar en cada tick.
+     * @param fixedDeltaTime paso fijo (en segundos) que se pasa al callback.
+     * @param ticksPerSecond cantidad de ticks por segundo de tiempo real, o 0 para ejecutar sin limite.
+     * @throws IllegalArgumentException si el paso fijo no es positivo o la tasa es negativa.
+     */
+    public HeadlessLoop(GameLoop.GameLoopCallback callback, float fixedDeltaTime, double ticksPerSecond) {
+        if (fixedDeltaTime <= 0) throw new IllegalArgumentException("The fixed delta time must be positive!");
+        if (ticksPerSecond < 0) throw new IllegalArgumentException("The tick rate cannot be negative!");
+        this.callback = callback;
+        this.fixedDeltaTime = fixedDeltaTime;
+        this.tickIntervalNanos = ticksPerSecond == 0 ? 0 : (long) (1e9 / ticksPerSecond);
+    }
+
+    /**
+     * Ejecuta una cantidad determinada de ticks.
+     * <p>
+     * Si hay una tasa elegida, el bucle espera entre ticks usando una fecha limite absoluta, de modo que los pequeños retrasos no
+     * se acumulan a lo largo de la ejecucion.
+     *
+     * @param count cantidad de ticks a ejecutar.
+     * @return la cantidad de ticks por segundo medida durante esta ejecucion.
+     */
+    public double run(long count) {
+        long stepNanos = (long) (fixedDeltaTime * 1e9);
+        long start = System.nanoTime();
+        long deadline = start;
+        for (long i = 0; i < count; i++) {
+            callback.tick(fixedDeltaTime);
+            if (clock != null) clock.advance(stepNanos);
+            if (tickIntervalNanos > 0) {
+                deadline += tickIntervalNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) LockSupport.parkNanos(remaining);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        ticks += count;
+        elapsedNanos += elapsed;
+        return ticksPerSecond(count, elapsed);
+    }
+
+    /**
+     * Establece un reloj virtual que avanza exactamente un paso fijo por tick, de modo que todo lo que lo consulte ve el tiempo
+     * de juego simulado y no el tiempo real. Sin limite de ticks, esto comprime horas de juego en segundos.
+     *
+     * @param clock reloj manual a avanzar, o null para no avanzar ninguno.
+     */
+    public void setClock(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Obtiene la cantidad de ticks por segundo medida desde que se creo el bucle.
+     *
+     * @return los ticks por segundo acumulados de todas las ejecuciones.
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond(ticks, elapsedNanos);
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    private static double ticksPerSecond(long ticks, long nanos) {
+        return nanos == 0 ? 0 : ticks * 1e9 / nanos;
+    }
+
+}
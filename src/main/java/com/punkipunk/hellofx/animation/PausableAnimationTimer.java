@@ -145,10 +145,8 @@ import javafx.beans.property.SimpleDoubleProperty;
 
 public abstract class PausableAnimationTimer extends AnimationTimer {
 
-    // Tiempos de inicio/pausa
-    private long pauseStart;
-    private long animationStart; // Es el tiempo en que se inicio o se reanudo la animacion despues de una pausa
-    private boolean paused, activated; // Estados del temporizador (pausado, activado)
+    // Tiempos de inicio/pausa y estados del temporizador (pausado, activado), medidos con el reloj del temporizador
+    private final PauseTracker state = new PauseTracker();
 
     // Gestiona el tiempo de la animacion vinculando este valor al componente Label
     private final DoubleProperty animationTime = new SimpleDoubleProperty();
@@ -159,7 +157,7 @@ public abstract class PausableAnimationTimer extends AnimationTimer {
      * @return true si el temporizador esta pausado o false en caso contrario.
      */
     public boolean isPaused() {
-        return paused;
+        return state.isPaused();
     }
 
     /**
@@ -168,7 +166,7 @@ public abstract class PausableAnimationTimer extends AnimationTimer {
      * @return true si el temporizador esta activado o false en caso contrario.
      */
     public boolean isActivated() {
-        return activated;
+        return state.isActivated();
     }
 
     /**
@@ -180,24 +178,27 @@ public abstract class PausableAnimationTimer extends AnimationTimer {
         return animationTime;
     }
 
+    /**
+     * Establece el reloj con el que se mide el tiempo de la animacion (por defecto {@link Clock#SYSTEM}).
+     *
+     * @param clock reloj a usar.
+     */
+    public void setClock(Clock clock) {
+        state.setClock(clock);
+    }
+
     /**
      * Pausa el temporizador.
      */
     public void pause() {
-        if (!paused && activated) {
-            paused = true;
-            pauseStart = System.nanoTime();
-        }
+        state.pause();
     }
 
     /**
      * Reanuda el temporizador.
      */
     public void play() {
-        if (paused) {
-            paused = false;
-            animationStart += (System.nanoTime() - pauseStart);
-        }
+        state.play();
     }
 
     /**
@@ -206,9 +207,7 @@ public abstract class PausableAnimationTimer extends AnimationTimer {
     @Override
     public void start() {
         super.start();
-        activated = true;
-        paused = false;
-        animationStart = System.nanoTime();
+        state.start();
     }
 
     /**
@@ -217,8 +216,7 @@ public abstract class PausableAnimationTimer extends AnimationTimer {
     @Override
     public void stop() {
         super.stop();
-        activated = false;
-        paused = false;
+        state.stop();
         animationTime.set(0);
     }
 
@@ -244,9 +242,9 @@ public abstract class PausableAnimationTimer extends AnimationTimer {
     public void handle(long now) {
         /* Verifica si el temporizador esta activado y no pausado para asegurarse que el codigo dentro del if solo se ejecute
          * cuando la animacion este en progeso. */
-        if (activated && !paused) {
+        if (state.isActivated() && !state.isPaused()) {
             // Calcula el tiempo transcurrido desde el inicio de la animacion en nanosegundos, excluyendo los periodos de pausa
-            long elapsed = now - animationStart;
+            long elapsed = state.elapsed(state.getClock().fromPulse(now));
             /* Actualiza la propiedad animationTime con el tiempo transcurrido, dividiendo elapsed por 1e9 (1 billon) para
              * convertir nanosegundos a segundos. Esto permite que otros componentes de la UI (como el timerClock) muestren el
              * tiempo la animacion en segundos. */
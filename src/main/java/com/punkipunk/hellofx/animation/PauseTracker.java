@@ -0,0 +1,76 @@
+package com.punkipunk.hellofx.animation;
+
+/**
+ * <p>
+ * Estado de activacion y pausa compartido por los temporizadores, medido con un {@link Clock}.
+ * <p>
+ * Lleva el momento de inicio de la animacion y lo desplaza al reanudar por la duracion de la pausa, de modo que
+ * {@link #elapsed(long)} devuelve el tiempo de animacion excluyendo los periodos en pausa.
+ */
+
+final class PauseTracker {
+
+    private Clock clock = Clock.SYSTEM;
+    private long pauseStart;
+    private long animationStart; // Es el tiempo en que se inicio o se reanudo la animacion despues de una pausa
+    private boolean paused, activated;
+
+    Clock getClock() {
+        return clock;
+    }
+
+    void setClock(Clock clock) {
+        if (clock == null) throw new IllegalArgumentException("The clock cannot be null!");
+        this.clock = clock;
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    boolean isActivated() {
+        return activated;
+    }
+
+    /**
+     * @return true si el temporizador paso a estar en pausa.
+     */
+    boolean pause() {
+        if (paused || !activated) return false;
+        paused = true;
+        pauseStart = clock.nanoTime();
+        return true;
+    }
+
+    /**
+     * @return true si el temporizador estaba en pausa y se reanudo.
+     */
+    boolean play() {
+        if (!paused) return false;
+        paused = false;
+        animationStart += clock.nanoTime() - pauseStart;
+        return true;
+    }
+
+    void start() {
+        activated = true;
+        paused = false;
+        animationStart = clock.nanoTime();
+    }
+
+    void stop() {
+        activated = false;
+        paused = false;
+    }
+
+    /**
+     * Calcula el tiempo de animacion excluyendo las pausas.
+     *
+     * @param time tiempo actual del reloj.
+     * @return el tiempo transcurrido desde el inicio en nanosegundos.
+     */
+    long elapsed(long time) {
+        return time - animationStart;
+    }
+
+}
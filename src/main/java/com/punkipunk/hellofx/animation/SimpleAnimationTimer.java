@@ -30,17 +30,50 @@ public abstract class SimpleAnimationTimer extends AnimationTimer {
     private long lastFrame; // Tiempo del frame anterior en nanosegundos
     private long delta;
     private final IntegerProperty frameRate = new SimpleIntegerProperty(); // Almacena la tasa de frames actual
+    private final FrameTimeRecorder frameTimes = new FrameTimeRecorder(); // Histograma de tiempos de frame
+    private Clock clock = Clock.SYSTEM; // Reloj con el que se mide el delta
 
     public IntegerProperty frameRateProperty() {
         return frameRate;
     }
 
+    /**
+     * Obtiene el registro de tiempos de frame, desde el que se pueden consultar percentiles o tomar un snapshot de las metricas.
+     *
+     * @return el registro de tiempos de frame.
+     */
+    public FrameTimeRecorder getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * Establece el reloj con el que se mide el delta entre frames (por defecto {@link Clock#SYSTEM}). Los tiempos de frame se
+     * siguen registrando en tiempo real.
+     *
+     * @param clock reloj a usar.
+     * @throws IllegalArgumentException si el reloj es nulo.
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) throw new IllegalArgumentException("The clock cannot be null!");
+        this.clock = clock;
+    }
+
+    /**
+     * Inicia el temporizador sin registrar como frame el tiempo que estuvo detenido.
+     */
+    @Override
+    public void start() {
+        frameTimes.restart();
+        super.start();
+    }
+
     /**
      * Se llama en cada frame de la animacion.
      */
     @Override
     public void handle(long now) {
-        updateFrameTime(now);
+        updateFrameTime(clock.fromPulse(now));
+        frameTimes.record(now);
         updateFrameRate();
         tick();
     }
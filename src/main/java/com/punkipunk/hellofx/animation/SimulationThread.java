@@ -0,0 +1,127 @@
+package com.punkipunk.hellofx.animation;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.punkipunk.hellofx.models.SnapshotBuffer;
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * <p>
+ * Ejecuta la simulacion del mundo en un hilo propio a una tasa fija, independiente del hilo de aplicacion de JavaFX.
+ * <p>
+ * Despues de cada paso, el estado visible del mundo se copia y se publica en un {@link SnapshotBuffer}. El renderizador lo toma
+ * desde el hilo de JavaFX sin bloqueos, por lo que una actualizacion pesada no retrasa el dibujo de los frames y un frame pesado
+ * no retrasa la simulacion. El mundo solo debe modificarse desde este hilo mientras esta en ejecucion.
+ */
+
+public class SimulationThread {
+
+    private static final float FIXED_TIME_STEP = 1.0f / 60.0f;
+    private static final long FIXED_TIME_STEP_NANOS = 1_000_000_000L / 60;
+    // Maxima cantidad de pasos atrasados que se intentan recuperar antes de descartar el atraso
+    private static final int MAX_CATCH_UP_STEPS = 5;
+
+    private final World world;
+    private final GameLoop.GameLoopCallback callback;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+
+    private volatile boolean running, paused;
+    private Thread thread;
+    private long sequence;
+
+    public SimulationThread(World world) {
+        this(world, world::tick);
+    }
+
+    /**
+     * Crea un hilo de simulacion que ejecuta un callback propio en cada paso, por ejemplo para grabar la entrada antes de
+     * avanzar el mundo. El callback debe llamar a {@code World.tick()}.
+     *
+     * @param world    mundo del que se publican los snapshots.
+     * @param callback logica a ejecutar en cada paso fijo.
+     */
+    public SimulationThread(World world, GameLoop.GameLoopCallback callback) {
+        this.world = world;
+        this.callback = callback;
+    }
+
+    /**
+     * Inicia el hilo de simulacion.
+     */
+    public void start() {
+        if (running) return;
+        running = true;
+        paused = false;
+        snapshots.publish(world, ++sequence); // Publica el estado inicial para que el primer frame tenga algo que dibujar
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Detiene el hilo de simulacion y espera a que termine el paso en curso.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public void pause() {
+        paused = true;
+    }
+
+    public void play() {
+        paused = false;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Obtiene el buffer donde se publican los snapshots del mundo.
+     *
+     * @return el buffer de snapshots.
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Obtiene la duracion de un paso de simulacion en nanosegundos, necesaria para calcular el factor de interpolacion a partir
+     * del tiempo transcurrido desde el ultimo snapshot.
+     *
+     * @return la duracion de un paso en nanosegundos.
+     */
+    public long getStepNanos() {
+        return FIXED_TIME_STEP_NANOS;
+    }
+
+    private void run() {
+        long deadline = System.nanoTime();
+        while (running) {
+            if (paused) {
+                LockSupport.parkNanos(FIXED_TIME_STEP_NANOS);
+                deadline = System.nanoTime(); // El tiempo en pausa no se recupera
+                continue;
+            }
+            callback.tick(FIXED_TIME_STEP);
+            snapshots.publish(world, ++sequence);
+
+            deadline += FIXED_TIME_STEP_NANOS;
+            long remaining = deadline - System.nanoTime();
+            if (remaining < -MAX_CATCH_UP_STEPS * FIXED_TIME_STEP_NANOS) deadline = System.nanoTime(); // Descarta el atraso
+            while (running && !paused && (remaining = deadline - System.nanoTime()) > 0) LockSupport.parkNanos(remaining);
+        }
+    }
+
+}
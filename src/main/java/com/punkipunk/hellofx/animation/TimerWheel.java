@@ -0,0 +1,270 @@
+package com.punkipunk.hellofx.animation;
+
+/**
+ * <p>
+ * Servicio de temporizadores basado en una rueda de tiempo jerarquica (hierarchical timing wheel), que avanza con los ticks de
+ * la simulacion.
+ * <p>
+ * Permite programar acciones "dentro de 3.2 segundos" o "cada 500 ms" medidos en tiempo de juego, sin que cada entidad tenga
+ * que llevar su propio contador y revisarlo en cada tick (lo que cuesta O(n) por frame). Programar y cancelar un temporizador
+ * es O(1), y avanzar un tick solo visita los temporizadores que vencen en ese tick.
+ * <h2>Funcionamiento</h2>
+ * <p>
+ * La rueda tiene 4 niveles de 64 ranuras. El nivel 0 tiene una ranura por tick y cubre los proximos 64 ticks; cada nivel
+ * siguiente cubre 64 veces mas tiempo con la misma cantidad de ranuras. Un temporizador se guarda en el nivel mas bajo que
+ * alcance a cubrir su vencimiento. Cada vez que el nivel 0 da una vuelta completa, la ranura correspondiente del nivel 1 se
+ * "derrama" (cascade) y sus temporizadores se reubican en el nivel 0 con mas precision, y lo mismo entre los niveles superiores.
+ * Los 4 niveles cubren 2^24 ticks (unas 77 horas a 60 Hz); los vencimientos mas lejanos se reubican en el ultimo nivel hasta
+ * que entren en el rango.
+ * <p>
+ * Cada ranura es una lista doblemente enlazada circular con nodo centinela, por lo que un temporizador se puede quitar de su
+ * ranura en O(1) al cancelarlo. Todos los temporizadores que vencen en un tick se mueven juntos a una lista de disparo y se
+ * ejecutan como un lote.
+ * <h2>Pausa</h2>
+ * <p>
+ * La rueda no consulta el reloj: solo avanza cuando se llama a {@link #tick()}, normalmente una vez por paso de simulacion. Como
+ * el {@code GameLoop} no ejecuta ticks mientras esta en pausa, el tiempo en pausa queda excluido de la misma forma en que
+ * {@code PausableAnimationTimer} lo descuenta del tiempo de animacion.
+ * <p>
+ * Esta clase no es segura para hilos: debe usarse desde el hilo que ejecuta la simulacion.
+ */
+
+public class TimerWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // 64
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /**
+     * Temporizador programado. Tambien es el nodo de la lista de su ranura.
+     */
+    public static final class Timer {
+
+        private final TimerWheel wheel;
+        private final Runnable callback;
+        private final long period; // 0 si no se repite
+        private long expires;
+        private Timer previous, next;
+
+        private Timer(TimerWheel wheel, Runnable callback, long period) {
+            this.wheel = wheel;
+            this.callback = callback;
+            this.period = period;
+        }
+
+        /**
+         * Cancela el temporizador. Si se cancela desde su propio callback, un temporizador repetitivo no se vuelve a programar.
+         *
+         * @return true si el temporizador estaba programado o false si ya habia vencido o se habia cancelado.
+         */
+        public boolean cancel() {
+            boolean active = isActive();
+            if (active) {
+                unlink();
+                wheel.size--;
+            }
+            expires = -1;
+            return active;
+        }
+
+        public boolean isActive() {
+            return next != null;
+        }
+
+        /**
+         * Obtiene el tick en el que vence el temporizador.
+         *
+         * @return el tick de vencimiento, o -1 si fue cancelado.
+         */
+        public long getExpires() {
+            return expires;
+        }
+
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = next = null;
+        }
+
+    }
+
+    private final double tickSeconds;
+    private final Timer[][] wheel = new Timer[LEVELS][SLOTS]; // Centinelas de cada ranura
+    private final Timer firing; // Centinela de la lista de temporizadores que vencen en el tick actual
+    private long currentTick;
+    private int size;
+
+    /**
+     * Crea una rueda de tiempo.
+     *
+     * @param tickSeconds duracion de un tick en segundos, usada para convertir retrasos en segundos a ticks.
+     * @throws IllegalArgumentException si la duracion no es positiva.
+     */
+    public TimerWheel(double tickSeconds) {
+        if (tickSeconds <= 0) throw new IllegalArgumentException("The tick duration must be positive!");
+        this.tickSeconds = tickSeconds;
+        for (int level = 0; level < LEVELS; level++)
+            for (int slot = 0; slot < SLOTS; slot++) wheel[level][slot] = sentinel();
+        firing = sentinel();
+    }
+
+    /**
+     * Programa un callback para que se ejecute una vez despues de un retraso en tiempo de juego.
+     *
+     * @param delaySeconds retraso en segundos (se redondea al tick mas cercano, minimo un tick).
+     * @param callback     accion a ejecutar.
+     * @return el temporizador programado.
+     */
+    public Timer schedule(double delaySeconds, Runnable callback) {
+        return scheduleTicks(toTicks(delaySeconds), 0, callback);
+    }
+
+    /**
+     * Programa un callback para que se ejecute periodicamente en tiempo de juego, hasta que se cancele.
+     *
+     * @param periodSeconds periodo en segundos (se redondea al tick mas cercano, minimo un tick).
+     * @param callback      accion a ejecutar.
+     * @return el temporizador programado.
+     */
+    public Timer scheduleRepeating(double periodSeconds, Runnable callback) {
+        long period = toTicks(periodSeconds);
+        return scheduleTicks(period, period, callback);
+    }
+
+    /**
+     * Programa un callback con un retraso y un periodo expresados en ticks.
+     *
+     * @param delayTicks  ticks hasta la primera ejecucion (minimo 1).
+     * @param periodTicks ticks entre ejecuciones, o 0 para ejecutarlo una sola vez.
+     * @param callback    accion a ejecutar.
+     * @return el temporizador programado.
+     * @throws IllegalArgumentException si el callback es nulo o el periodo es negativo.
+     */
+    public Timer scheduleTicks(long delayTicks, long periodTicks, Runnable callback) {
+        if (callback == null) throw new IllegalArgumentException("The callback cannot be null!");
+        if (periodTicks < 0) throw new IllegalArgumentException("The period cannot be negative!");
+        Timer timer = new Timer(this, callback, periodTicks);
+        timer.expires = currentTick + Math.max(1, delayTicks);
+        add(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * Avanza la rueda un tick y ejecuta, como un lote, todos los temporizadores que vencen en el.
+     */
+    public void tick() {
+        currentTick++;
+
+        // Cuando un nivel completa una vuelta, se reubican los temporizadores de la ranura actual del nivel siguiente
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) break;
+            cascade(level, (int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+
+        Timer slot = wheel[0][(int) (currentTick & SLOT_MASK)];
+        if (slot.next == slot) return;
+        splice(slot, firing);
+
+        while (firing.next != firing) {
+            Timer timer = firing.next;
+            timer.unlink();
+            size--;
+            if (timer.period > 0) {
+                // Se reprograma antes de ejecutar para que el callback pueda cancelarlo
+                timer.expires = currentTick + timer.period;
+                add(timer);
+                size++;
+            }
+            timer.callback.run();
+        }
+    }
+
+    public long getTick() {
+        return currentTick;
+    }
+
+    /**
+     * Cambia el tick actual de la rueda, por ejemplo al restaurar un keyframe de una repeticion. Los temporizadores programados
+     * conservan su tick de vencimiento y se reubican; los que ya deberian haber vencido se ejecutan en el proximo tick.
+     *
+     * @param tick nuevo tick actual.
+     * @throws IllegalArgumentException si el tick es negativo.
+     */
+    public void setTick(long tick) {
+        if (tick < 0) throw new IllegalArgumentException("The tick cannot be negative!");
+        for (Timer[] level : wheel)
+            for (Timer slot : level)
+                if (slot.next != slot) splice(slot, firing);
+        currentTick = tick;
+        while (firing.next != firing) {
+            Timer timer = firing.next;
+            timer.unlink();
+            if (timer.expires <= tick) timer.expires = tick + 1;
+            add(timer);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de temporizadores programados.
+     *
+     * @return la cantidad de temporizadores activos.
+     */
+    public int size() {
+        return size;
+    }
+
+    private long toTicks(double seconds) {
+        return Math.max(1, Math.round(seconds / tickSeconds));
+    }
+
+    /**
+     * Agrega el temporizador a la ranura del nivel mas bajo que cubre su vencimiento.
+     */
+    private void add(Timer timer) {
+        long delay = Math.min(timer.expires - currentTick, MAX_DELAY);
+        long expires = currentTick + delay;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) level++;
+        Timer slot = wheel[level][(int) ((expires >> (SLOT_BITS * level)) & SLOT_MASK)];
+        timer.previous = slot.previous;
+        timer.next = slot;
+        slot.previous.next = timer;
+        slot.previous = timer;
+    }
+
+    /**
+     * Reubica los temporizadores de una ranura en niveles inferiores.
+     */
+    private void cascade(int level, int index) {
+        Timer slot = wheel[level][index];
+        if (slot.next == slot) return;
+        splice(slot, firing);
+        while (firing.next != firing) {
+            Timer timer = firing.next;
+            timer.unlink();
+            add(timer);
+        }
+    }
+
+    /**
+     * Mueve todos los nodos de una lista al final de otra en O(1).
+     */
+    private static void splice(Timer from, Timer to) {
+        Timer first = from.next, last = from.previous;
+        first.previous = to.previous;
+        to.previous.next = first;
+        last.next = to;
+        to.previous = last;
+        from.next = from.previous = from;
+    }
+
+    private static Timer sentinel() {
+        Timer sentinel = new Timer(null, null, 0);
+        sentinel.previous = sentinel.next = sentinel;
+        return sentinel;
+    }
+
+}
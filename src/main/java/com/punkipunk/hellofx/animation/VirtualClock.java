@@ -0,0 +1,93 @@
+package com.punkipunk.hellofx.animation;
+
+/**
+ * <p>
+ * Reloj virtual cuyo tiempo se puede avanzar manualmente o escalar respecto de otro reloj.
+ * <ul>
+ * <li><b>Manual / maxima velocidad</b>: creado sin reloj de origen, el tiempo solo avanza con {@link #advance(long)}. Un
+ * {@code HeadlessLoop} que lo avanza un paso fijo por tick comprime una hora de juego en lo que tarde la CPU en simular esos
+ * ticks.
+ * <li><b>Escalado</b>: creado sobre otro reloj (normalmente {@link Clock#SYSTEM}), el tiempo avanza al ritmo del origen
+ * multiplicado por la escala: 0.5 es camara lenta, 2 es avance rapido y 0 congela el tiempo. {@link #advance(long)} tambien
+ * funciona en este modo, por ejemplo para saltar hacia adelante.
+ * </ul>
+ * El tiempo devuelto nunca retrocede, aunque se cambie la escala. Los metodos estan sincronizados para que el reloj se pueda
+ * compartir entre el hilo de JavaFX y un hilo de simulacion.
+ */
+
+public class VirtualClock implements Clock {
+
+    private final Clock source; // null en modo manual
+    private double timeScale = 1;
+    private long base; // Tiempo virtual en el momento del ultimo anclaje
+    private long anchor; // Tiempo del origen en el momento del ultimo anclaje
+    private long last; // Ultimo tiempo devuelto, para garantizar que no retroceda
+
+    /**
+     * Crea un reloj manual que empieza en 0 y solo avanza con {@link #advance(long)}.
+     */
+    public VirtualClock() {
+        this(null);
+    }
+
+    /**
+     * Crea un reloj escalado que empieza en el tiempo actual del origen y avanza a su mismo ritmo.
+     *
+     * @param source reloj de origen, o null para un reloj manual.
+     */
+    public VirtualClock(Clock source) {
+        this.source = source;
+        if (source != null) base = anchor = last = source.nanoTime();
+    }
+
+    @Override
+    public synchronized long nanoTime() {
+        return monotonic(source == null ? base : scaled(source.nanoTime()));
+    }
+
+    @Override
+    public synchronized long fromPulse(long pulseNanos) {
+        return monotonic(source == null ? base : scaled(source.fromPulse(pulseNanos)));
+    }
+
+    /**
+     * Adelanta el reloj.
+     *
+     * @param nanos tiempo a avanzar en nanosegundos.
+     * @throws IllegalArgumentException si el tiempo es negativo.
+     */
+    public synchronized void advance(long nanos) {
+        if (nanos < 0) throw new IllegalArgumentException("The clock cannot go backwards!");
+        base += nanos;
+    }
+
+    /**
+     * Cambia la velocidad del reloj respecto de su origen. El tiempo acumulado hasta ahora se conserva.
+     *
+     * @param timeScale factor de escala (1 = tiempo real, 0.5 = camara lenta, 2 = avance rapido, 0 = congelado).
+     * @throws IllegalArgumentException si la escala es negativa.
+     * @throws IllegalStateException    si el reloj es manual.
+     */
+    public synchronized void setTimeScale(double timeScale) {
+        if (timeScale < 0) throw new IllegalArgumentException("The time scale cannot be negative!");
+        if (source == null) throw new IllegalStateException("A manual clock has no time scale!");
+        long now = source.nanoTime();
+        base = scaled(now);
+        anchor = now;
+        this.timeScale = timeScale;
+    }
+
+    public synchronized double getTimeScale() {
+        return timeScale;
+    }
+
+    private long scaled(long sourceTime) {
+        return base + (long) ((sourceTime - anchor) * timeScale);
+    }
+
+    private long monotonic(long time) {
+        if (time > last) last = time;
+        return last;
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.punkipunk.hellofx.collision;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+
+/**
+ * <p>
+ * Mascara de colision pixel a pixel, calculada una sola vez a partir del canal alfa de una imagen.
+ * <p>
+ * Leer los pixeles con un {@code PixelReader} en cada comprobacion es demasiado lento. La mascara guarda un bit por pixel (1 si
+ * el pixel es lo bastante opaco) empaquetado en un {@code long[]}: cada fila ocupa {@code wordsPerRow} palabras de 64 bits, con
+ * el pixel {@code x} en el bit {@code x & 63} de la palabra {@code x >>> 6}. Para saber si dos mascaras se tocan se hace un AND
+ * entre palabras desplazadas, comprobando 64 pixeles por operacion.
+ * <p>
+ * La mascara puede representar la imagen escalada y rotada alrededor de un pivote. En ese caso cubre la caja que contiene la
+ * imagen rotada, y {@link #getOffsetX()} y {@link #getOffsetY()} indican donde empieza esa caja respecto de la posicion en la que
+ * se dibuja la imagen sin rotar.
+ */
+
+public class CollisionMask {
+
+    private static final double EPSILON = 1e-9;
+
+    private final int width, height;
+    private final int wordsPerRow;
+    private final long[] bits;
+    private final int offsetX, offsetY;
+
+    private CollisionMask(int width, int height, int offsetX, int offsetY) {
+        this.width = width;
+        this.height = height;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        wordsPerRow = (width + 63) >>> 6;
+        bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Calcula la mascara de una imagen.
+     *
+     * @param image          imagen de origen.
+     * @param scale          escala con la que se dibuja la imagen.
+     * @param rotation       rotacion en grados (positiva en sentido horario).
+     * @param pivotX         coordenada x del pivote de la rotacion, respecto de la posicion de dibujo.
+     * @param pivotY         coordenada y del pivote de la rotacion, respecto de la posicion de dibujo.
+     * @param alphaThreshold alfa minimo (0-255) para que un pixel cuente como solido.
+     * @return la mascara de la imagen.
+     */
+    public static CollisionMask fromImage(Image image, double scale, double rotation, double pivotX, double pivotY, int alphaThreshold) {
+        int width = (int) image.getWidth(), height = (int) image.getHeight();
+        int[] argb = new int[width * height];
+        PixelReader reader = image.getPixelReader();
+        reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        return fromArgb(argb, width, height, scale, rotation, pivotX, pivotY, alphaThreshold);
+    }
+
+    /**
+     * Calcula la mascara de una imagen dada como pixeles ARGB. Cada pixel de la mascara toma el valor del pixel de origen que
+     * cae en su centro (muestreo por vecino mas cercano).
+     *
+     * @param argb           pixeles de la imagen, fila por fila.
+     * @param width          ancho de la imagen.
+     * @param height         alto de la imagen.
+     * @param scale          escala con la que se dibuja la imagen.
+     * @param rotation       rotacion en grados (positiva en sentido horario).
+     * @param pivotX         coordenada x del pivote de la rotacion, respecto de la posicion de dibujo.
+     * @param pivotY         coordenada y del pivote de la rotacion, respecto de la posicion de dibujo.
+     * @param alphaThreshold alfa minimo (0-255) para que un pixel cuente como solido.
+     * @return la mascara de la imagen.
+     * @throws IllegalArgumentException si la escala no es positiva.
+     */
+    public static CollisionMask fromArgb(int[] argb, int width, int height, double scale, double rotation, double pivotX, double pivotY,
+                                         int alphaThreshold) {
+        if (!(scale > 0)) throw new IllegalArgumentException("The scale must be positive!");
+        double radians = Math.toRadians(rotation);
+        double cos = Math.cos(radians), sin = Math.sin(radians);
+
+        // Caja que contiene las cuatro esquinas de la imagen escalada y rotada
+        double scaledWidth = width * scale, scaledHeight = height * scale;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            double dx = ((corner & 1) == 0 ? 0 : scaledWidth) - pivotX, dy = ((corner & 2) == 0 ? 0 : scaledHeight) - pivotY;
+            double x = pivotX + cos * dx - sin * dy, y = pivotY + sin * dx + cos * dy;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        // El margen evita que el error de redondeo del seno y el coseno agregue una fila o columna vacia
+        int left = (int) Math.floor(minX + EPSILON), top = (int) Math.floor(minY + EPSILON);
+        CollisionMask mask = new CollisionMask((int) Math.ceil(maxX - EPSILON) - left, (int) Math.ceil(maxY - EPSILON) - top, left, top);
+
+        // Cada pixel de la mascara se lleva de vuelta a la imagen con la rotacion inversa
+        for (int row = 0; row < mask.height; row++) {
+            for (int column = 0; column < mask.width; column++) {
+                double dx = left + column + 0.5 - pivotX, dy = top + row + 0.5 - pivotY;
+                double x = (pivotX + cos * dx + sin * dy) / scale, y = (pivotY - sin * dx + cos * dy) / scale;
+                if (x < 0 || y < 0 || x >= width || y >= height) continue;
+                if (argb[(int) y * width + (int) x] >>> 24 >= alphaThreshold) mask.set(column, row);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Comprueba si dos mascaras ubicadas en el mundo tienen algun pixel solido en comun.
+     *
+     * @param a  primera mascara.
+     * @param ax coordenada x de la posicion de dibujo de la primera imagen.
+     * @param ay coordenada y de la posicion de dibujo de la primera imagen.
+     * @param b  segunda mascara.
+     * @param bx coordenada x de la posicion de dibujo de la segunda imagen.
+     * @param by coordenada y de la posicion de dibujo de la segunda imagen.
+     * @return true si las mascaras se superponen o false en caso contrario.
+     */
+    public static boolean overlaps(CollisionMask a, float ax, float ay, CollisionMask b, float bx, float by) {
+        int dx = Math.round(bx - ax) + b.offsetX - a.offsetX;
+        int dy = Math.round(by - ay) + b.offsetY - a.offsetY;
+        return a.overlaps(b, dx, dy);
+    }
+
+    /**
+     * Comprueba si otra mascara, desplazada respecto de esta, tiene algun pixel solido en comun con esta.
+     *
+     * @param other otra mascara.
+     * @param dx    columna de esta mascara en la que empieza la otra (puede ser negativa).
+     * @param dy    fila de esta mascara en la que empieza la otra (puede ser negativa).
+     * @return true si las mascaras se superponen o false en caso contrario.
+     */
+    public boolean overlaps(CollisionMask other, int dx, int dy) {
+        int startRow = Math.max(0, dy), endRow = Math.min(height, dy + other.height);
+        int startColumn = Math.max(0, dx), endColumn = Math.min(width, dx + other.width);
+        if (startRow >= endRow || startColumn >= endColumn) return false;
+        int firstWord = startColumn >>> 6, lastWord = (endColumn - 1) >>> 6;
+        for (int row = startRow; row < endRow; row++) {
+            int base = row * wordsPerRow, otherBase = (row - dy) * other.wordsPerRow;
+            for (int word = firstWord; word <= lastWord; word++)
+                if ((bits[base + word] & other.shiftedWord(otherBase, (word << 6) - dx)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene los 64 bits de una fila de esta mascara que empiezan en la columna {@code start}, que puede estar fuera de la
+     * mascara (las columnas fuera de la mascara valen 0).
+     */
+    private long shiftedWord(int base, int start) {
+        int word = start >> 6, shift = start & 63;
+        long low = word(base, word) >>> shift;
+        return shift == 0 ? low : low | word(base, word + 1) << (64 - shift);
+    }
+
+    private long word(int base, int word) {
+        return word < 0 || word >= wordsPerRow ? 0 : bits[base + word];
+    }
+
+    private void set(int column, int row) {
+        bits[row * wordsPerRow + (column >>> 6)] |= 1L << column;
+    }
+
+    /**
+     * Comprueba si un pixel de la mascara es solido.
+     *
+     * @param column columna del pixel.
+     * @param row    fila del pixel.
+     * @return true si el pixel es solido o false en caso contrario (incluso fuera de la mascara).
+     */
+    public boolean isSolid(int column, int row) {
+        if (column < 0 || row < 0 || column >= width || row >= height) return false;
+        return (bits[row * wordsPerRow + (column >>> 6)] & 1L << column) != 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Obtiene la columna en la que empieza la mascara respecto de la posicion de dibujo de la imagen.
+     *
+     * @return el desplazamiento en la coordenada x.
+     */
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    /**
+     * Obtiene la fila en la que empieza la mascara respecto de la posicion de dibujo de la imagen.
+     *
+     * @return el desplazamiento en la coordenada y.
+     */
+    public int getOffsetY() {
+        return offsetY;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.punkipunk.hellofx.collision;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+
+/**
+ * <p>
+ * Cache de mascaras de colision por imagen, escala y rotacion.
+ * <p>
+ * Calcular una mascara recorre todos los pixeles de la imagen, asi que se hace una sola vez por combinacion y despues se
+ * reutiliza. La rotacion se redondea a uno de {@code rotationBuckets} angulos fijos (por ejemplo, 64 cubetas de 5,625 grados):
+ * con una sola cubeta las mascaras no se rotan, y con mas cubetas se gana precision a cambio de memoria. Cada mascara se calcula
+ * recien la primera vez que se pide su cubeta.
+ * <p>
+ * El pivote de la rotacion es el centro de la imagen sin escalar, igual que en el {@code Renderer}, para que la mascara coincida
+ * con lo que se dibuja. Para comprobar una colision exacta entre dos entidades despues de la fase amplia:
+ * <pre>{@code
+ * CollisionMask a = masks.get(shipA.getImage(), shipA.getScale(), shipA.getRotation());
+ * CollisionMask b = masks.get(shipB.getImage(), shipB.getScale(), shipB.getRotation());
+ * boolean hit = CollisionMask.overlaps(a, shipA.getX(), shipA.getY(), b, shipB.getX(), shipB.getY());
+ * }</pre>
+ * <p>
+ * Esta clase no es segura para hilos.
+ */
+
+public class CollisionMasks {
+
+    private final int rotationBuckets;
+    private final int alphaThreshold;
+    // Las imagenes se comparan por identidad; cada imagen tiene una lista corta de escalas
+    private final Map<Image, List<ScaledMasks>> cache = new IdentityHashMap<>();
+
+    /**
+     * Crea una cache de mascaras.
+     *
+     * @param rotationBuckets cantidad de angulos en los que se divide la vuelta completa, o 1 para no rotar las mascaras.
+     * @param alphaThreshold  alfa minimo (0-255) para que un pixel cuente como solido.
+     * @throws IllegalArgumentException si la cantidad de cubetas no es positiva.
+     */
+    public CollisionMasks(int rotationBuckets, int alphaThreshold) {
+        if (rotationBuckets <= 0) throw new IllegalArgumentException("The number of rotation buckets must be positive!");
+        this.rotationBuckets = rotationBuckets;
+        this.alphaThreshold = alphaThreshold;
+    }
+
+    /**
+     * Obtiene la mascara de una imagen con la escala y la rotacion indicadas, calculandola si es la primera vez que se pide.
+     *
+     * @param image    imagen de la entidad.
+     * @param scale    escala de la entidad.
+     * @param rotation rotacion de la entidad en grados.
+     * @return la mascara correspondiente.
+     */
+    public CollisionMask get(Image image, float scale, float rotation) {
+        List<ScaledMasks> scales = cache.computeIfAbsent(image, key -> new ArrayList<>(1));
+        ScaledMasks masks = null;
+        for (int i = 0; i < scales.size(); i++) {
+            if (scales.get(i).scale == scale) {
+                masks = scales.get(i);
+                break;
+            }
+        }
+        if (masks == null) {
+            masks = new ScaledMasks(scale, rotationBuckets);
+            scales.add(masks);
+        }
+
+        int bucket = bucket(rotation);
+        CollisionMask mask = masks.rotations[bucket];
+        if (mask == null) {
+            double angle = rotationBuckets == 1 ? 0 : bucket * 360.0 / rotationBuckets;
+            mask = CollisionMask.fromImage(image, scale, angle, image.getWidth() / 2, image.getHeight() / 2, alphaThreshold);
+            masks.rotations[bucket] = mask;
+        }
+        return mask;
+    }
+
+    /**
+     * Elimina todas las mascaras calculadas.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    public int getRotationBuckets() {
+        return rotationBuckets;
+    }
+
+    /**
+     * Redondea una rotacion en grados, positiva o negativa y de cualquier cantidad de vueltas, a la cubeta mas cercana.
+     */
+    private int bucket(float rotation) {
+        if (rotationBuckets == 1) return 0;
+        int bucket = (int) Math.round(rotation * rotationBuckets / 360.0) % rotationBuckets;
+        return bucket < 0 ? bucket + rotationBuckets : bucket;
+    }
+
+    /**
+     * Mascaras de una imagen a una escala, una por cubeta de rotacion.
+     */
+    private static class ScaledMasks {
+
+        final float scale;
+        final CollisionMask[] rotations;
+
+        ScaledMasks(float scale, int rotationBuckets) {
+            this.scale = scale;
+            rotations = new CollisionMask[rotationBuckets];
+        }
+
+    }
+
+}
@@ -0,0 +1,461 @@
+package com.punkipunk.hellofx.collision;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Arbol dinamico de cajas delimitadoras (dynamic AABB tree) para consultas espaciales y raycasts.
+ * <p>
+ * Cada objeto es una hoja del arbol y cada nodo interno guarda la caja que contiene a sus dos hijos, por lo que una consulta
+ * descarta subarboles enteros cuya caja no toca la zona buscada y solo visita O(log n) nodos por resultado. A diferencia de la
+ * grilla de {@link SpatialHash}, que se reconstruye en cada tick, el arbol se actualiza de forma incremental:
+ * <ul>
+ * <li>La caja de cada hoja se agranda ("engorda") con un margen y en la direccion del desplazamiento, de modo que un objeto que
+ * se mueve poco sigue dentro de su caja gorda y {@link #moveProxy} no hace nada. Solo cuando sale de ella se quita y se vuelve a
+ * insertar.
+ * <li>Al insertar, se busca el hermano que menos aumenta el perimetro total de las cajas (heuristica de area de superficie).
+ * <li>Despues de insertar o quitar una hoja, los nodos del camino hasta la raiz se rebalancean con rotaciones, como en un arbol
+ * AVL, para que la altura siga siendo logaritmica.
+ * </ul>
+ * <p>
+ * Los nodos se guardan en arreglos paralelos reutilizables con una lista libre, y las consultas usan una pila preasignada, por lo
+ * que el arbol no genera basura en estado estable. Por la misma razon, no se puede usar desde varios hilos a la vez ni hacer una
+ * consulta desde el callback de otra.
+ */
+
+public class DynamicTree {
+
+    private static final int NULL = -1;
+    // Cuanto se extiende la caja gorda en la direccion del desplazamiento, en desplazamientos por paso
+    private static final float DISPLACEMENT_MULTIPLIER = 4;
+
+    private final float margin;
+
+    private float[] minX, minY, maxX, maxY;
+    private int[] parent, child1, child2, height, userData;
+    private int root = NULL, freeList, nodeCount;
+    private int[] stack = new int[64];
+
+    /**
+     * Recibe los objetos encontrados por una consulta.
+     */
+    @FunctionalInterface
+    public interface QueryCallback {
+
+        /**
+         * Procesa un objeto cuya caja gorda toca la zona consultada.
+         *
+         * @param userData dato asociado al objeto.
+         * @return true para continuar la consulta o false para terminarla.
+         */
+        boolean found(int userData);
+
+    }
+
+    /**
+     * Recibe los objetos cuya caja gorda cruza un rayo.
+     */
+    @FunctionalInterface
+    public interface RaycastCallback {
+
+        /**
+         * Procesa un objeto cruzado por el rayo.
+         *
+         * @param userData    dato asociado al objeto.
+         * @param maxFraction fraccion actual del rayo que se sigue recorriendo.
+         * @return la fraccion hasta la que se recorta el rayo: la del impacto para quedarse con los impactos mas cercanos,
+         * {@code maxFraction} para ignorar el objeto, o 0 para terminar.
+         */
+        float hit(int userData, float maxFraction);
+
+    }
+
+    /**
+     * Crea un arbol vacio.
+     *
+     * @param margin margen con el que se engordan las cajas de las hojas.
+     */
+    public DynamicTree(float margin) {
+        this.margin = margin;
+        allocate(16, 0);
+    }
+
+    /**
+     * Inserta un objeto.
+     *
+     * @param minX     limite izquierdo de la caja.
+     * @param minY     limite superior de la caja.
+     * @param maxX     limite derecho de la caja.
+     * @param maxY     limite inferior de la caja.
+     * @param userData dato asociado al objeto, que se devuelve en las consultas.
+     * @return el id de la hoja (proxy) del objeto.
+     */
+    public int createProxy(float minX, float minY, float maxX, float maxY, int userData) {
+        int proxy = allocateNode();
+        this.minX[proxy] = minX - margin;
+        this.minY[proxy] = minY - margin;
+        this.maxX[proxy] = maxX + margin;
+        this.maxY[proxy] = maxY + margin;
+        this.userData[proxy] = userData;
+        height[proxy] = 0;
+        insertLeaf(proxy);
+        return proxy;
+    }
+
+    /**
+     * Quita un objeto.
+     *
+     * @param proxy id de la hoja del objeto.
+     */
+    public void destroyProxy(int proxy) {
+        removeLeaf(proxy);
+        freeNode(proxy);
+    }
+
+    /**
+     * Actualiza la caja de un objeto. Si la caja sigue dentro de la caja gorda no se hace nada; si no, la hoja se vuelve a
+     * insertar con una caja gorda nueva, extendida en la direccion del desplazamiento para anticipar el movimiento.
+     *
+     * @param proxy         id de la hoja del objeto.
+     * @param minX          limite izquierdo de la caja.
+     * @param minY          limite superior de la caja.
+     * @param maxX          limite derecho de la caja.
+     * @param maxY          limite inferior de la caja.
+     * @param displacementX desplazamiento del objeto por paso en la coordenada x.
+     * @param displacementY desplazamiento del objeto por paso en la coordenada y.
+     * @return true si la hoja se volvio a insertar o false si la caja gorda todavia la contenia.
+     */
+    public boolean moveProxy(int proxy, float minX, float minY, float maxX, float maxY, float displacementX, float displacementY) {
+        if (this.minX[proxy] <= minX && this.minY[proxy] <= minY && maxX <= this.maxX[proxy] && maxY <= this.maxY[proxy])
+            return false;
+        removeLeaf(proxy);
+        float dx = DISPLACEMENT_MULTIPLIER * displacementX, dy = DISPLACEMENT_MULTIPLIER * displacementY;
+        this.minX[proxy] = minX - margin + Math.min(dx, 0);
+        this.minY[proxy] = minY - margin + Math.min(dy, 0);
+        this.maxX[proxy] = maxX + margin + Math.max(dx, 0);
+        this.maxY[proxy] = maxY + margin + Math.max(dy, 0);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    /**
+     * Busca los objetos cuya caja gorda toca una caja. Como las cajas gordas son mas grandes que los objetos, el callback debe
+     * comprobar la caja exacta si necesita un resultado preciso.
+     *
+     * @param minX     limite izquierdo de la zona.
+     * @param minY     limite superior de la zona.
+     * @param maxX     limite derecho de la zona.
+     * @param maxY     limite inferior de la zona.
+     * @param callback destino de los objetos encontrados.
+     */
+    public void query(float minX, float minY, float maxX, float maxY, QueryCallback callback) {
+        if (root == NULL) return;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (this.minX[node] > maxX || minX > this.maxX[node] || this.minY[node] > maxY || minY > this.maxY[node]) continue;
+            if (isLeaf(node)) {
+                if (!callback.found(userData[node])) return;
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    /**
+     * Recorre los objetos cuya caja gorda cruza el segmento de {@code (x1, y1)} a {@code (x2, y2)}. Cada vez que el callback
+     * devuelve una fraccion menor, el segmento se recorta y se descartan los subarboles que quedan mas lejos.
+     *
+     * @param x1       origen del rayo en la coordenada x.
+     * @param y1       origen del rayo en la coordenada y.
+     * @param x2       fin del rayo en la coordenada x.
+     * @param y2       fin del rayo en la coordenada y.
+     * @param callback destino de los objetos cruzados.
+     */
+    public void raycast(float x1, float y1, float x2, float y2, RaycastCallback callback) {
+        if (root == NULL) return;
+        float dx = x2 - x1, dy = y2 - y1;
+        float maxFraction = 1;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (intersectSegment(x1, y1, dx, dy, maxFraction, minX[node], minY[node], maxX[node], maxY[node]) < 0) continue;
+            if (isLeaf(node)) {
+                float fraction = callback.hit(userData[node], maxFraction);
+                if (fraction == 0) return;
+                if (fraction > 0 && fraction < maxFraction) maxFraction = fraction;
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    /**
+     * Calcula en que fraccion un segmento entra en una caja, con el metodo de las franjas (slab test): en cada eje se calcula el
+     * intervalo del segmento que queda entre los dos limites de la caja, y el segmento toca la caja si los intervalos de ambos
+     * ejes se superponen.
+     *
+     * @param x1          origen del segmento en la coordenada x.
+     * @param y1          origen del segmento en la coordenada y.
+     * @param dx          longitud del segmento en la coordenada x.
+     * @param dy          longitud del segmento en la coordenada y.
+     * @param maxFraction fraccion del segmento a considerar, entre 0 y 1.
+     * @param minX        limite izquierdo de la caja.
+     * @param minY        limite superior de la caja.
+     * @param maxX        limite derecho de la caja.
+     * @param maxY        limite inferior de la caja.
+     * @return la fraccion de entrada (0 si el origen esta dentro de la caja), o -1 si el segmento no toca la caja.
+     */
+    public static float intersectSegment(float x1, float y1, float dx, float dy, float maxFraction, float minX, float minY,
+                                         float maxX, float maxY) {
+        float enter = 0, exit = maxFraction;
+        if (dx == 0) {
+            if (x1 < minX || x1 > maxX) return -1;
+        } else {
+            float t1 = (minX - x1) / dx, t2 = (maxX - x1) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+            if (enter > exit) return -1;
+        }
+        if (dy == 0) {
+            if (y1 < minY || y1 > maxY) return -1;
+        } else {
+            float t1 = (minY - y1) / dy, t2 = (maxY - y1) / dy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+            if (enter > exit) return -1;
+        }
+        return enter;
+    }
+
+    /**
+     * Obtiene la altura del arbol (0 si esta vacio o solo tiene una hoja).
+     *
+     * @return la altura del arbol.
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    /**
+     * Obtiene la cantidad de nodos en uso, hojas e internos.
+     *
+     * @return la cantidad de nodos.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public float getMargin() {
+        return margin;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // Baja por el arbol eligiendo el hijo que menos aumenta el perimetro total, hasta que sea mejor detenerse
+        float leafMinX = minX[leaf], leafMinY = minY[leaf], leafMaxX = maxX[leaf], leafMaxY = maxY[leaf];
+        int index = root;
+        while (!isLeaf(index)) {
+            float perimeter = perimeter(index);
+            float combined = 2 * (Math.max(maxX[index], leafMaxX) - Math.min(minX[index], leafMinX)
+                    + Math.max(maxY[index], leafMaxY) - Math.min(minY[index], leafMinY));
+            // Costo de crear un nuevo padre para este nodo y la hoja
+            float cost = 2 * combined;
+            // Costo minimo de bajar la hoja: todos los ancestros crecen
+            float inheritanceCost = 2 * (combined - perimeter);
+            float cost1 = descendCost(child1[index], leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritanceCost;
+            float cost2 = descendCost(child2[index], leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) break;
+            index = cost1 < cost2 ? child1[index] : child2[index];
+        }
+        int sibling = index;
+
+        // Crea un nuevo padre para el hermano y la hoja
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        userData[newParent] = NULL;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) child1[oldParent] = newParent;
+            else child2[oldParent] = newParent;
+        } else root = newParent;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+        // El hermano ocupa el lugar del padre, que ya no es necesario
+        if (grandParent != NULL) {
+            if (child1[grandParent] == oldParent) child1[grandParent] = sibling;
+            else child2[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(oldParent);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(oldParent);
+        }
+    }
+
+    /**
+     * Sube desde un nodo hasta la raiz rebalanceando y recalculando la altura y la caja de cada ancestro.
+     */
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            int c1 = child1[index], c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setUnion(index, c1, c2);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Si los subarboles de un nodo difieren en altura en mas de uno, rota el hijo mas alto hacia arriba.
+     *
+     * @param a nodo a balancear.
+     * @return el nodo que ocupa ahora el lugar de {@code a}.
+     */
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2) return a;
+        int b = child1[a], c = child2[a];
+        int difference = height[c] - height[b];
+        if (difference > 1) return rotate(a, c, b, false);
+        if (difference < -1) return rotate(a, b, c, true);
+        return a;
+    }
+
+    /**
+     * Rota hacia arriba el hijo {@code up} de {@code a}. El hijo mas alto de {@code up} queda como hijo de {@code up} y el mas
+     * bajo pasa a ser hijo de {@code a}, en el lugar que ocupaba {@code up}.
+     *
+     * @param a     nodo desbalanceado.
+     * @param up    hijo mas alto de {@code a}.
+     * @param other otro hijo de {@code a}.
+     * @param left  true si {@code up} es el primer hijo de {@code a}.
+     * @return {@code up}, que ocupa ahora el lugar de {@code a}.
+     */
+    private int rotate(int a, int up, int other, boolean left) {
+        int f = child1[up], g = child2[up];
+        // up reemplaza a "a" en su padre, y "a" pasa a ser el primer hijo de up
+        child1[up] = a;
+        parent[up] = parent[a];
+        parent[a] = up;
+        if (parent[up] != NULL) {
+            if (child1[parent[up]] == a) child1[parent[up]] = up;
+            else child2[parent[up]] = up;
+        } else root = up;
+
+        int keep = height[f] > height[g] ? f : g, move = keep == f ? g : f;
+        child2[up] = keep;
+        if (left) child1[a] = move;
+        else child2[a] = move;
+        parent[move] = a;
+        setUnion(a, other, move);
+        setUnion(up, a, keep);
+        height[a] = 1 + Math.max(height[other], height[move]);
+        height[up] = 1 + Math.max(height[a], height[keep]);
+        return up;
+    }
+
+    private float descendCost(int child, float leafMinX, float leafMinY, float leafMaxX, float leafMaxY) {
+        float combined = 2 * (Math.max(maxX[child], leafMaxX) - Math.min(minX[child], leafMinX)
+                + Math.max(maxY[child], leafMaxY) - Math.min(minY[child], leafMinY));
+        return isLeaf(child) ? combined : combined - perimeter(child);
+    }
+
+    private float perimeter(int node) {
+        return 2 * (maxX[node] - minX[node] + maxY[node] - minY[node]);
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    private boolean isLeaf(int node) {
+        return child1[node] == NULL;
+    }
+
+    private int push(int top, int node) {
+        if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+        stack[top] = node;
+        return top + 1;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) allocate(minX.length * 2, minX.length);
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = child1[node] = child2[node] = NULL;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList; // La lista libre se encadena a traves del padre
+        height[node] = -1;
+        freeList = node;
+        nodeCount--;
+    }
+
+    /**
+     * Agranda los arreglos de nodos y encadena los nodos nuevos en la lista libre.
+     */
+    private void allocate(int capacity, int from) {
+        if (from == 0) {
+            minX = new float[capacity];
+            minY = new float[capacity];
+            maxX = new float[capacity];
+            maxY = new float[capacity];
+            parent = new int[capacity];
+            child1 = new int[capacity];
+            child2 = new int[capacity];
+            height = new int[capacity];
+            userData = new int[capacity];
+        } else {
+            minX = Arrays.copyOf(minX, capacity);
+            minY = Arrays.copyOf(minY, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            maxY = Arrays.copyOf(maxY, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            child1 = Arrays.copyOf(child1, capacity);
+            child2 = Arrays.copyOf(child2, capacity);
+            height = Arrays.copyOf(height, capacity);
+            userData = Arrays.copyOf(userData, capacity);
+        }
+        for (int i = from; i < capacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+        parent[capacity - 1] = NULL;
+        height[capacity - 1] = -1;
+        freeList = from;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.punkipunk.hellofx.collision;
+
+/**
+ * Recibe los pares de objetos candidatos a colisionar encontrados por una fase amplia (broad phase). Se usa una interfaz con
+ * dos enteros en lugar de crear un objeto por par, para que recorrer los pares no genere basura.
+ */
+
+@FunctionalInterface
+public interface PairCallback {
+
+    /**
+     * Procesa un par de objetos cuyas cajas delimitadoras se superponen.
+     *
+     * @param a id del primer objeto (siempre menor que {@code b}).
+     * @param b id del segundo objeto.
+     */
+    void pair(int a, int b);
+
+}
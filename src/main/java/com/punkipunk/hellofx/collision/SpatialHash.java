@@ -0,0 +1,282 @@
+package com.punkipunk.hellofx.collision;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Fase amplia (broad phase) de deteccion de colisiones basada en una grilla uniforme con hash espacial.
+ * <p>
+ * Comparar todos los objetos contra todos es O(n²): con 20.000 objetos son 200 millones de comparaciones por tick. La grilla
+ * divide el espacio en celdas cuadradas de {@code cellSize} pixeles y guarda cada objeto en las celdas que toca su caja
+ * delimitadora (AABB), de modo que solo se comparan los objetos que comparten alguna celda. Como el mundo no tiene limites, las
+ * coordenadas de cada celda se reducen con una funcion hash a una tabla de tamaño fijo, en lugar de reservar una grilla que
+ * cubra todo el espacio.
+ * <h2>Uso</h2>
+ * <p>
+ * La estructura se reconstruye en cada tick: {@link #clear()}, un {@link #insert(int, float, float, float, float)} por objeto y
+ * luego {@link #forEachPair(PairCallback)}. La construccion es un ordenamiento por conteo (counting sort) de las entradas por
+ * cubeta, que deja las entradas de cada cubeta contiguas en un unico arreglo. Todos los arreglos se reutilizan entre ticks y
+ * solo crecen cuando aumenta la cantidad de objetos, por lo que en estado estable no se asigna memoria.
+ * <h2>Pares duplicados</h2>
+ * <p>
+ * Dos objetos grandes pueden compartir varias celdas. Para informar cada par una sola vez, el par solo se informa en la celda que
+ * contiene la esquina superior izquierda de la interseccion de ambas cajas, que siempre es una celda compartida.
+ * <h2>Filtros</h2>
+ * <p>
+ * Cada objeto puede tener una categoria y una mascara de bits: un par solo se informa si la categoria de cada objeto esta en la
+ * mascara del otro. Asi, por ejemplo, los proyectiles pueden chocar con las naves sin que se comparen entre si.
+ * <p>
+ * Los objetos con el mismo filtro (categoria y mascara) forman un grupo, y dentro de cada cubeta las entradas quedan ordenadas
+ * por grupo. Asi solo se cruzan los grupos compatibles: una celda con miles de proyectiles y pocas naves cuesta proyectiles por
+ * naves comparaciones, no proyectiles al cuadrado. Si hay mas de {@value #MAX_GROUPS} filtros distintos, los sobrantes comparten
+ * el ultimo grupo y solo en ese grupo se filtra par a par.
+ */
+
+public class SpatialHash {
+
+    private static final int MAX_GROUPS = 8;
+
+    private final float cellSize;
+    private final float inverseCellSize;
+
+    // Cajas de los objetos insertados, indexadas por orden de insercion
+    private int[] ids = new int[64], categories = new int[64], masks = new int[64], groups = new int[64];
+    private float[] minX = new float[64], minY = new float[64], maxX = new float[64], maxY = new float[64];
+    private int count;
+
+    // Filtro de cada grupo. En el ultimo grupo, si se desborda, es la union de los filtros que comparte
+    private final int[] groupCategories = new int[MAX_GROUPS], groupMasks = new int[MAX_GROUPS];
+    private final boolean[] compatible = new boolean[MAX_GROUPS * MAX_GROUPS];
+    private int groupCount;
+    private boolean mixed; // Si el ultimo grupo junta filtros distintos
+
+    /* Entradas (objeto, celda) ordenadas por cubeta y, dentro de cada cubeta, por grupo. bucketStart[b * groupCount + g] es la
+     * primera entrada del grupo g en la cubeta b. Cada entrada lleva una copia de la caja de su objeto, para que comparar una
+     * entrada con las siguientes recorra memoria contigua */
+    private int[] entryObjects = new int[64], entryCellX = new int[64], entryCellY = new int[64];
+    private float[] entryMinX = new float[64], entryMinY = new float[64], entryMaxX = new float[64], entryMaxY = new float[64];
+    private int[] bucketStart = new int[65];
+    private int[] bucketFill = new int[64];
+    private int buckets = 64;
+    private int entryCount;
+    private boolean built;
+
+    /**
+     * Crea una grilla.
+     *
+     * @param cellSize lado de cada celda en pixeles. Conviene que sea parecido al tamaño de los objetos mas comunes: celdas
+     *                 muy chicas hacen que cada objeto ocupe muchas celdas y celdas muy grandes agrupan objetos lejanos.
+     * @throws IllegalArgumentException si el tamaño de celda no es positivo.
+     */
+    public SpatialHash(float cellSize) {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("The cell size must be positive!");
+        this.cellSize = cellSize;
+        inverseCellSize = 1 / cellSize;
+    }
+
+    /**
+     * Elimina todos los objetos, conservando la memoria reservada.
+     */
+    public void clear() {
+        count = 0;
+        groupCount = 0;
+        mixed = false;
+        entryCount = 0;
+        built = false;
+    }
+
+    /**
+     * Inserta un objeto que puede chocar con cualquier otro.
+     *
+     * @param id   id del objeto, que se devuelve en los pares.
+     * @param minX limite izquierdo de la caja.
+     * @param minY limite superior de la caja.
+     * @param maxX limite derecho de la caja.
+     * @param maxY limite inferior de la caja.
+     */
+    public void insert(int id, float minX, float minY, float maxX, float maxY) {
+        insert(id, 1, -1, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Inserta un objeto con filtro de colisiones.
+     *
+     * @param id       id del objeto, que se devuelve en los pares.
+     * @param category bits de las categorias a las que pertenece el objeto.
+     * @param mask     bits de las categorias con las que puede chocar el objeto.
+     * @param minX     limite izquierdo de la caja.
+     * @param minY     limite superior de la caja.
+     * @param maxX     limite derecho de la caja.
+     * @param maxY     limite inferior de la caja.
+     */
+    public void insert(int id, int category, int mask, float minX, float minY, float maxX, float maxY) {
+        if (count == ids.length) {
+            int capacity = count * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            groups = Arrays.copyOf(groups, capacity);
+            this.minX = Arrays.copyOf(this.minX, capacity);
+            this.minY = Arrays.copyOf(this.minY, capacity);
+            this.maxX = Arrays.copyOf(this.maxX, capacity);
+            this.maxY = Arrays.copyOf(this.maxY, capacity);
+        }
+        ids[count] = id;
+        categories[count] = category;
+        masks[count] = mask;
+        groups[count] = group(category, mask);
+        this.minX[count] = minX;
+        this.minY[count] = minY;
+        this.maxX[count] = maxX;
+        this.maxY[count] = maxY;
+        count++;
+        entryCount += (cell(maxX) - cell(minX) + 1) * (cell(maxY) - cell(minY) + 1);
+        built = false;
+    }
+
+    /**
+     * Llama al callback una vez por cada par de objetos cuyas cajas se superponen.
+     *
+     * @param callback destino de los pares.
+     */
+    public void forEachPair(PairCallback callback) {
+        if (!built) build();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int slot = bucket * groupCount;
+            if (bucketStart[slot] == bucketStart[slot + groupCount]) continue;
+            for (int g = 0; g < groupCount; g++) {
+                for (int h = g; h < groupCount; h++) {
+                    if (!compatible[g * MAX_GROUPS + h]) continue;
+                    int end = bucketStart[slot + g + 1], otherEnd = bucketStart[slot + h + 1];
+                    boolean filter = mixed && h == MAX_GROUPS - 1;
+                    for (int i = bucketStart[slot + g]; i < end; i++)
+                        pairs(i, g == h ? i + 1 : bucketStart[slot + h], otherEnd, filter, callback);
+                }
+            }
+        }
+    }
+
+    /**
+     * Informa los pares entre la entrada {@code i} y las entradas de {@code from} a {@code to} (exclusivo).
+     *
+     * @param filter si hay que aplicar el filtro de cada par, porque el grupo de las entradas mezcla filtros.
+     */
+    private void pairs(int i, int from, int to, boolean filter, PairCallback callback) {
+        int a = entryObjects[i], cellX = entryCellX[i], cellY = entryCellY[i];
+        float minX = entryMinX[i], minY = entryMinY[i], maxX = entryMaxX[i], maxY = entryMaxY[i];
+        for (int j = from; j < to; j++) {
+            // Distintas celdas pueden caer en la misma cubeta
+            if (entryCellX[j] != cellX || entryCellY[j] != cellY) continue;
+            if (minX > entryMaxX[j] || entryMinX[j] > maxX || minY > entryMaxY[j] || entryMinY[j] > maxY) continue;
+            int b = entryObjects[j];
+            if (filter && ((categories[a] & masks[b]) == 0 || (categories[b] & masks[a]) == 0)) continue;
+            // Solo informa el par en la celda de la esquina superior izquierda de la interseccion
+            if (cell(Math.max(minX, entryMinX[j])) != cellX || cell(Math.max(minY, entryMinY[j])) != cellY) continue;
+            if (ids[a] < ids[b]) callback.pair(ids[a], ids[b]);
+            else callback.pair(ids[b], ids[a]);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de objetos insertados desde el ultimo {@link #clear()}.
+     *
+     * @return la cantidad de objetos.
+     */
+    public int size() {
+        return count;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Obtiene el grupo de un filtro, creandolo si es nuevo.
+     */
+    private int group(int category, int mask) {
+        for (int g = 0; g < groupCount; g++)
+            if (groupCategories[g] == category && groupMasks[g] == mask) return g;
+        if (groupCount < MAX_GROUPS) {
+            groupCategories[groupCount] = category;
+            groupMasks[groupCount] = mask;
+            return groupCount++;
+        }
+        // Con la union de los filtros, el ultimo grupo se cruza con todos los grupos que puedan chocar con alguno de sus objetos
+        groupCategories[MAX_GROUPS - 1] |= category;
+        groupMasks[MAX_GROUPS - 1] |= mask;
+        mixed = true;
+        return MAX_GROUPS - 1;
+    }
+
+    /**
+     * Ordena las entradas por cubeta y grupo con un ordenamiento por conteo.
+     */
+    private void build() {
+        /* Una tabla con al menos tantas cubetas como entradas mantiene las colisiones de hash poco frecuentes sin que los contadores
+         * dejen de entrar en la cache. La tabla solo crece, para no reasignarla cuando la cantidad de entradas oscila. */
+        if (buckets < entryCount) buckets = Integer.highestOneBit(entryCount - 1) << 1;
+        int stride = Math.max(groupCount, 1), slots = buckets * stride;
+        if (bucketFill.length < slots) {
+            bucketFill = new int[slots];
+            bucketStart = new int[slots + 1];
+        } else Arrays.fill(bucketFill, 0, slots, 0);
+        for (int g = 0; g < groupCount; g++)
+            for (int h = 0; h < groupCount; h++)
+                compatible[g * MAX_GROUPS + h] = (groupCategories[g] & groupMasks[h]) != 0 && (groupCategories[h] & groupMasks[g]) != 0;
+        if (entryObjects.length < entryCount) {
+            int capacity = Math.max(entryCount, entryObjects.length * 2);
+            entryObjects = new int[capacity];
+            entryCellX = new int[capacity];
+            entryCellY = new int[capacity];
+            entryMinX = new float[capacity];
+            entryMinY = new float[capacity];
+            entryMaxX = new float[capacity];
+            entryMaxY = new float[capacity];
+        }
+
+        int mask = buckets - 1;
+        // Primera pasada: cuenta las entradas de cada cubeta
+        for (int i = 0; i < count; i++) {
+            int x0 = cell(minX[i]), x1 = cell(maxX[i]), y0 = cell(minY[i]), y1 = cell(maxY[i]);
+            for (int y = y0; y <= y1; y++)
+                for (int x = x0; x <= x1; x++) bucketFill[(hash(x, y) & mask) * stride + groups[i]]++;
+        }
+        // Suma prefija: posicion inicial de cada grupo en cada cubeta
+        bucketStart[0] = 0;
+        for (int b = 0; b < slots; b++) {
+            bucketStart[b + 1] = bucketStart[b] + bucketFill[b];
+            bucketFill[b] = bucketStart[b];
+        }
+        // Segunda pasada: coloca cada entrada en su cubeta y grupo
+        for (int i = 0; i < count; i++) {
+            int x0 = cell(minX[i]), x1 = cell(maxX[i]), y0 = cell(minY[i]), y1 = cell(maxY[i]);
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    int entry = bucketFill[(hash(x, y) & mask) * stride + groups[i]]++;
+                    entryObjects[entry] = i;
+                    entryCellX[entry] = x;
+                    entryCellY[entry] = y;
+                    entryMinX[entry] = minX[i];
+                    entryMinY[entry] = minY[i];
+                    entryMaxX[entry] = maxX[i];
+                    entryMaxY[entry] = maxY[i];
+                }
+            }
+        }
+        built = true;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    /**
+     * Combina las coordenadas de una celda multiplicandolas por dos primos grandes, para repartir celdas vecinas en cubetas
+     * distintas.
+     */
+    private static int hash(int x, int y) {
+        int h = x * 0x8DA6B343 ^ y * 0xD8163841;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.punkipunk.hellofx.controllers;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
 
@@ -7,22 +9,46 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Label;
-import javafx.scene.input.KeyCode;
 import javafx.scene.layout.AnchorPane;
 
 import com.punkipunk.hellofx.rendering.Renderer;
-import com.punkipunk.hellofx.controls.KeyPolling;
+import com.punkipunk.hellofx.rendering.RotationCache;
+import com.punkipunk.hellofx.rendering.SoftwareRasterizer;
+import com.punkipunk.hellofx.rendering.TextureAtlas;
+import com.punkipunk.hellofx.controls.InputRecorder;
 import com.punkipunk.hellofx.models.Entity;
+import com.punkipunk.hellofx.models.World;
+import com.punkipunk.hellofx.models.WorldSnapshot;
 import com.punkipunk.hellofx.animation.GameLoop;
+import com.punkipunk.hellofx.animation.SimulationThread;
 import com.punkipunk.hellofx.utils.Utils;
 
 public class GameController implements Initializable {
 
+    private static final System.Logger LOGGER = System.getLogger(GameController.class.getName());
+
     private static final float PLAYER_INITIAL_X = 350;
     private static final float PLAYER_INITIAL_Y = 200;
     private static final float PLAYER_INITIAL_SCALE = 0.5f;
-    private static final float THRUST = 20;
-    private static final float ROTATION = 90;
+    /* Si se activa con -Dhellofx.threadedSimulation=true, la simulacion corre en su propio hilo y el hilo de JavaFX solo
+     * renderiza los snapshots que este publica. */
+    private static final boolean THREADED_SIMULATION = Boolean.getBoolean("hellofx.threadedSimulation");
+    /* Si se indica un archivo con -Dhellofx.recordInput=<archivo>, se graba la entrada de cada tick para poder reproducir la
+     * sesion con HeadlessSimulation --replay <archivo>. */
+    private static final String RECORD_INPUT = System.getProperty("hellofx.recordInput");
+    private static final int KEYFRAME_INTERVAL = 600; // Un keyframe cada 10 segundos de juego
+    private static final float PROJECTILE_MARGIN = 32; // Distancia fuera del canvas a la que se eliminan los proyectiles
+    private static final int ATLAS_PAGE_SIZE = 1024;
+    private static final int ATLAS_PADDING = 1;
+    /* Con -Dhellofx.rotationAngles=<n>, las entidades se dibujan desde copias pre-rotadas en n angulos por vuelta, util en
+     * maquinas sin GPU donde Prism rota las imagenes por software. */
+    private static final int ROTATION_ANGLES = Integer.getInteger("hellofx.rotationAngles", 0);
+    private static final long ROTATION_CACHE_BYTES = 32L * 1024 * 1024;
+    // Con -Dhellofx.dirtyRendering=true solo se repintan las zonas del canvas que cambiaron entre frames
+    private static final boolean DIRTY_RENDERING = Boolean.getBoolean("hellofx.dirtyRendering");
+    /* Con -Dhellofx.softwareRendering=true los frames se rasterizan en paralelo en un framebuffer propio, que se muestra en un
+     * ImageView en lugar del canvas. */
+    private static final boolean SOFTWARE_RENDERING = Boolean.getBoolean("hellofx.softwareRendering");
 
     @FXML
     public Canvas gameCanvas;
@@ -31,30 +57,51 @@ public class GameController implements Initializable {
     @FXML
     public Label fpsLabel;
 
-    /* Para configurar la clase KeyPolling, solo necesitamos configurar la escena que queremos rastrear en la clase principal.
-     * Como es estatica, podemos acceder a el facilmente en nuestro GameController, y como toda la logica esta correctamente
-     * encapsulada en la clase KeyPolling, ¡de lo unico que debemos preocuparnos es de preguntar si nuestras teclas de entrada de
-     * usuario estan presionadas actualmente! */
-    private KeyPolling keys;
-
     /* El renderizador imprime todas las entidades en el canvas en cada fotograma. Aunque en este juego solo hay una entidad, es
      * util crear una lista para cuando se agregen mas elementos como enemigos o recursos. El proceso consiste en imprimir cada
      * entidad utilizando su imagen almacenada, junto con su posicion, rotacion y escala correspondientes. */
     private Entity player;
     private Renderer renderer;
+    /* Las reglas del juego (entrada del usuario y actualizacion de entidades) viven en World, que no depende del toolkit de
+     * JavaFX y por lo tanto tambien se puede simular sin ventana. */
+    private World world;
+    private SimulationThread simulation;
+    private GameLoop gameLoop;
+    private InputRecorder recorder;
+    /* Limites de los proyectiles {minX, minY, maxX, maxY}. Los publica el hilo de JavaFX al cambiar el tamaño del canvas y los
+     * aplica la simulacion al comienzo de un tick, que puede correr en otro hilo. Cada cambio publica un arreglo nuevo. */
+    private volatile float[] projectileBounds;
+    private float[] appliedProjectileBounds; // Solo se usa desde el hilo de simulacion
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        keys = KeyPolling.getInstance();
-        player = new Entity(Utils.loadImage("/textures/ship.png"));
+        world = new World();
+        player = world.spawn(Utils.loadImage("/textures/ship.png"));
+        world.setPlayer(player);
         renderer = new Renderer(gameCanvas); // Le pasa el canvas antes del GameLoop para que pueda dibujar en el en cada fotograma
 
         initCanvas();
         initPlayer();
         initRenderer();
+        initRecorder();
         startGameLoop();
     }
 
+    /**
+     * Detiene el juego y cierra la grabacion de entrada, si hay una en curso.
+     */
+    public void shutdown() {
+        if (gameLoop != null) gameLoop.stop();
+        if (simulation != null) simulation.stop();
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not close the input recording", e);
+            }
+        }
+    }
+
     /**
      * <p>
      * Inicializa el canvas con cambio de tamaño automatico mediante el enlazamiento con el ancho y alto del AnchorPane para
@@ -63,6 +110,26 @@ public class GameController implements Initializable {
     private void initCanvas() {
         gameCanvas.widthProperty().bind(gameAnchor.widthProperty());
         gameCanvas.heightProperty().bind(gameAnchor.heightProperty());
+        // Los proyectiles que salen del area visible (mas un margen) se eliminan
+        gameCanvas.widthProperty().addListener((observable, oldValue, newValue) -> updateProjectileBounds());
+        gameCanvas.heightProperty().addListener((observable, oldValue, newValue) -> updateProjectileBounds());
+        updateProjectileBounds();
+    }
+
+    private void updateProjectileBounds() {
+        projectileBounds = new float[]{-PROJECTILE_MARGIN, -PROJECTILE_MARGIN, (float) gameCanvas.getWidth() + PROJECTILE_MARGIN,
+                (float) gameCanvas.getHeight() + PROJECTILE_MARGIN};
+    }
+
+    /**
+     * Aplica al mundo los ultimos limites publicados por {@link #updateProjectileBounds()}, si cambiaron. Se llama desde el
+     * hilo que simula, por lo que el conjunto de proyectiles nunca se modifica mientras se actualiza.
+     */
+    private void applyProjectileBounds() {
+        float[] bounds = projectileBounds;
+        if (bounds == appliedProjectileBounds) return;
+        world.getProjectiles().setBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+        appliedProjectileBounds = bounds;
     }
 
     private void initPlayer() {
@@ -72,36 +139,70 @@ public class GameController implements Initializable {
 
     private void initRenderer() {
         renderer.addEntity(player);
+        // Los sprites se dibujan desde paginas compartidas; el fondo es mas grande que una pagina y queda aparte
+        TextureAtlas atlas = new TextureAtlas(ATLAS_PAGE_SIZE, ATLAS_PADDING);
+        atlas.add(player.getImage());
+        renderer.setAtlas(atlas);
+        if (ROTATION_ANGLES > 0) renderer.setRotationCache(new RotationCache(ROTATION_ANGLES, ROTATION_CACHE_BYTES));
+        renderer.setDirtyRendering(DIRTY_RENDERING);
+        if (SOFTWARE_RENDERING) {
+            SoftwareRasterizer rasterizer = new SoftwareRasterizer();
+            // La vista ocupa el lugar del canvas, que sigue definiendo el tamaño del area de dibujo
+            gameAnchor.getChildren().add(gameAnchor.getChildren().indexOf(gameCanvas) + 1, rasterizer.getView());
+            gameCanvas.setVisible(false);
+            renderer.setRasterizer(rasterizer);
+        }
+        renderer.setProjectiles(world.getProjectiles());
         renderer.setBackground(Utils.loadImage("/textures/SpaceBackground.jpg"));
     }
 
+    private void initRecorder() {
+        if (RECORD_INPUT == null) return;
+        try {
+            recorder = new InputRecorder(new FileOutputStream(RECORD_INPUT), world, KEYFRAME_INTERVAL);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not record input to " + RECORD_INPUT, e);
+        }
+    }
+
     /**
      * Ejecuta el flujo de renderizado (rendering pipeline).
      */
     private void startGameLoop() {
-        GameLoop gameLoop = new GameLoop(this::tick);
+        if (THREADED_SIMULATION) {
+            simulation = new SimulationThread(world, this::tick);
+            simulation.start();
+            // El GameLoop solo renderiza, una vez por pulso, el ultimo snapshot publicado por la simulacion
+            gameLoop = new GameLoop(fixedDeltaTime -> renderSnapshot());
+            gameLoop.setSimulation(simulation); // Pausar el juego tambien pausa la simulacion
+        } else {
+            // La simulacion avanza en pasos fijos y el renderizado se ejecuta una vez por pulso
+            gameLoop = new GameLoop(this::tick, this::render);
+        }
         // El fpsLabel se vincula a la propiedad FPS del GameLoop (asi de sencillo!)
         fpsLabel.textProperty().bind(gameLoop.fpsProperty().concat(" FPS"));
         gameLoop.start();
     }
 
     private void tick(float fixedDeltaTime) {
+        applyProjectileBounds(); // Antes de grabar, para que el keyframe tenga los limites con los que se simula el tick
+        if (recorder != null) recorder.record();
+        world.tick(fixedDeltaTime);
+    }
+
+    private void render(float alpha) {
         renderer.prepare();
-        updatePlayerMovement(fixedDeltaTime);
-        renderer.render();
+        renderer.render(alpha);
     }
 
     /**
-     * Actualiza el movimiento del player.
-     *
-     * @param fixedDeltaTime tiempo fijo entre actualizaciones de fisica.
+     * Renderiza el snapshot mas reciente interpolando segun el tiempo transcurrido desde que se publico.
      */
-    private void updatePlayerMovement(float fixedDeltaTime) {
-        if (keys.isPressed(KeyCode.W)) player.applyThrust(THRUST * fixedDeltaTime);
-        else if (keys.isPressed(KeyCode.S)) player.applyThrust(-THRUST * fixedDeltaTime);
-        if (keys.isPressed(KeyCode.D)) player.applyRotation(ROTATION * fixedDeltaTime);
-        else if (keys.isPressed(KeyCode.A)) player.applyRotation(-ROTATION * fixedDeltaTime);
-        player.update();
+    private void renderSnapshot() {
+        WorldSnapshot snapshot = simulation.getSnapshots().acquire();
+        float alpha = (float) (System.nanoTime() - snapshot.getTimestamp()) / simulation.getStepNanos();
+        renderer.prepare();
+        renderer.render(snapshot, Math.min(Math.max(alpha, 0), 1));
     }
 
 }
@@ -0,0 +1,55 @@
+package com.punkipunk.hellofx.controls;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>
+ * Formato binario compartido por {@link InputRecorder} e {@link InputReplay}.
+ * <p>
+ * El registro comienza con un encabezado ({@code MAGIC}, {@code VERSION} y el intervalo de keyframes) seguido de bloques que
+ * empiezan con un byte de tipo:
+ * <ul>
+ * <li>{@code CHANGE}: ticks transcurridos desde el cambio anterior, cantidad de teclas y el ordinal de cada {@code KeyCode}.
+ * Como el estado del teclado rara vez cambia, solo se escribe un bloque cuando cambia, y los ticks sin cambios quedan
+ * codificados en esa diferencia (run-length).
+ * <li>{@code KEYFRAME}: numero de tick, longitud y el estado completo del mundo antes de ese tick.
+ * <li>{@code END}: cantidad total de ticks grabados.
+ * </ul>
+ * Los enteros se escriben como varints (7 bits por byte), por lo que un cambio tipico ocupa pocos bytes. Los ordinales de
+ * {@code KeyCode} dependen de la version de JavaFX, asi que un registro solo es valido para la version con la que se grabo.
+ */
+
+final class InputLog {
+
+    static final int MAGIC = 0x48465849; // "HFXI"
+    // 2: estado de las entidades en float y proyectiles en los keyframes; 3: limites de los proyectiles y tick de los timers
+    static final int VERSION = 3;
+
+    static final byte END = 0;
+    static final byte CHANGE = 1;
+    static final byte KEYFRAME = 2;
+
+    private InputLog() {
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in input log!");
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.punkipunk.hellofx.controls;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import javafx.scene.input.KeyCode;
+
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * <p>
+ * Graba las teclas presionadas en cada tick del {@code GameLoop} en un registro binario compacto (ver {@link InputLog}), para
+ * poder reproducir una sesion de juego de forma determinista con {@link InputReplay}.
+ * <p>
+ * Cada cierto intervalo de ticks tambien se graba un keyframe con el estado completo del mundo, que permite saltar a cualquier
+ * punto de la sesion sin simularla desde el principio.
+ * <p>
+ * Se debe llamar a {@link #record()} una vez por tick, <i>antes</i> de {@code World.tick()}, y a {@link #close()} al terminar.
+ */
+
+public class InputRecorder implements Closeable {
+
+    private final DataOutputStream out;
+    private final World world;
+    private final int keyframeInterval;
+    private final KeyPolling keys = KeyPolling.getInstance();
+
+    // Se reutilizan en cada tick para no generar basura
+    private Set<KeyCode> current = EnumSet.noneOf(KeyCode.class);
+    private Set<KeyCode> previous = EnumSet.noneOf(KeyCode.class);
+    private final ByteArrayOutputStream keyframe = new ByteArrayOutputStream();
+    private final DataOutputStream keyframeOut = new DataOutputStream(keyframe);
+
+    private long tick, lastChangeTick;
+    private boolean closed;
+
+    /**
+     * Crea un grabador y escribe el encabezado del registro.
+     *
+     * @param out              destino del registro.
+     * @param world            mundo del que se graban los keyframes.
+     * @param keyframeInterval cantidad de ticks entre keyframes.
+     * @throws IOException              si falla la escritura.
+     * @throws IllegalArgumentException si el intervalo no es positivo.
+     */
+    public InputRecorder(OutputStream out, World world, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) throw new IllegalArgumentException("The keyframe interval must be positive!");
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.world = world;
+        this.keyframeInterval = keyframeInterval;
+        this.out.writeInt(InputLog.MAGIC);
+        this.out.writeInt(InputLog.VERSION);
+        InputLog.writeVarLong(this.out, keyframeInterval);
+    }
+
+    /**
+     * Graba el tick actual: un keyframe si corresponde y el estado del teclado si cambio desde el tick anterior.
+     *
+     * @throws UncheckedIOException si falla la escritura.
+     */
+    public void record() {
+        if (closed) return;
+        try {
+            if (tick % keyframeInterval == 0) writeKeyframe();
+            keys.copyPressedKeys(current);
+            if (tick == 0 || !current.equals(previous)) writeChange();
+            tick++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to record input at tick " + tick, e);
+        }
+    }
+
+    private void writeKeyframe() throws IOException {
+        keyframe.reset();
+        world.writeState(keyframeOut);
+        out.writeByte(InputLog.KEYFRAME);
+        InputLog.writeVarLong(out, tick);
+        InputLog.writeVarLong(out, keyframe.size());
+        keyframe.writeTo(out);
+        out.flush(); // Un registro interrumpido sigue siendo legible hasta el ultimo keyframe
+    }
+
+    private void writeChange() throws IOException {
+        out.writeByte(InputLog.CHANGE);
+        InputLog.writeVarLong(out, tick - lastChangeTick);
+        InputLog.writeVarLong(out, current.size());
+        for (KeyCode code : current) InputLog.writeVarLong(out, code.ordinal());
+        lastChangeTick = tick;
+        // Intercambia los conjuntos en lugar de copiarlos
+        Set<KeyCode> swap = previous;
+        previous = current;
+        current = swap;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Escribe el fin del registro y cierra el destino.
+     *
+     * @throws IOException si falla la escritura.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        out.writeByte(InputLog.END);
+        InputLog.writeVarLong(out, tick);
+        out.close();
+    }
+
+}
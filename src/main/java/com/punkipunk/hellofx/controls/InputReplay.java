@@ -0,0 +1,191 @@
+package com.punkipunk.hellofx.controls;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javafx.scene.input.KeyCode;
+
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * <p>
+ * Reproduce un registro grabado por {@link InputRecorder}, alimentando {@link KeyPolling#isPressed(KeyCode)} con las teclas de
+ * cada tick mientras el mundo se simula.
+ * <p>
+ * El metodo {@link #step(float)} tiene la misma firma que {@code GameLoopCallback.tick()}, por lo que una reproduccion se puede
+ * ejecutar sin limite de velocidad con un {@code HeadlessLoop} y usarse como benchmark repetible. Con {@link #seek(long, float)}
+ * se puede saltar a cualquier tick: se restaura el keyframe anterior mas cercano y se simula solo desde ahi.
+ * <p>
+ * El mundo debe crearse con las mismas entidades que tenia al grabar; los keyframes restauran su estado.
+ */
+
+public class InputReplay {
+
+    private static final KeyCode[] KEY_CODES = KeyCode.values();
+
+    private final World world;
+    private final KeyPolling keys = KeyPolling.getInstance();
+
+    // Cambios del teclado: a partir de changeTicks[i] las teclas presionadas son states.get(i)
+    private final long[] changeTicks;
+    private final List<Set<KeyCode>> states;
+    // Keyframes: estado del mundo antes de keyframeTicks[i]
+    private final long[] keyframeTicks;
+    private final List<byte[]> keyframes;
+    private final long length;
+
+    private long tick;
+    private int change = -1; // Indice del cambio vigente en el tick actual
+
+    private InputReplay(World world, long[] changeTicks, List<Set<KeyCode>> states, long[] keyframeTicks, List<byte[]> keyframes,
+                        long length) {
+        this.world = world;
+        this.changeTicks = changeTicks;
+        this.states = states;
+        this.keyframeTicks = keyframeTicks;
+        this.keyframes = keyframes;
+        this.length = length;
+    }
+
+    /**
+     * Lee un registro completo y prepara su reproduccion sobre el mundo indicado. Si el registro esta truncado (por ejemplo,
+     * porque el juego se cerro sin terminar la grabacion), se reproduce hasta el ultimo bloque completo.
+     *
+     * @param in    origen del registro.
+     * @param world mundo sobre el que se reproduce.
+     * @return la reproduccion, posicionada en el tick 0.
+     * @throws IOException si el registro no es valido o falla la lectura.
+     */
+    public static InputReplay read(InputStream in, World world) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != InputLog.MAGIC) throw new IOException("Not an input log!");
+        int version = data.readInt();
+        if (version != InputLog.VERSION) throw new IOException("Unsupported input log version: " + version);
+        InputLog.readVarLong(data); // Intervalo de keyframes, solo informativo
+
+        List<Long> changeTicks = new ArrayList<>();
+        List<Set<KeyCode>> states = new ArrayList<>();
+        List<Long> keyframeTicks = new ArrayList<>();
+        List<byte[]> keyframes = new ArrayList<>();
+        long lastChange = 0, length = -1;
+
+        try {
+            while (length < 0) {
+                byte type = data.readByte();
+                switch (type) {
+                    case InputLog.CHANGE -> {
+                        long changeTick = lastChange + InputLog.readVarLong(data);
+                        int count = (int) InputLog.readVarLong(data);
+                        Set<KeyCode> state = EnumSet.noneOf(KeyCode.class);
+                        for (int i = 0; i < count; i++) state.add(KEY_CODES[(int) InputLog.readVarLong(data)]);
+                        changeTicks.add(changeTick);
+                        states.add(state);
+                        lastChange = changeTick;
+                    }
+                    case InputLog.KEYFRAME -> {
+                        long keyframeTick = InputLog.readVarLong(data);
+                        byte[] state = new byte[(int) InputLog.readVarLong(data)];
+                        data.readFully(state);
+                        keyframeTicks.add(keyframeTick);
+                        keyframes.add(state);
+                    }
+                    case InputLog.END -> length = InputLog.readVarLong(data);
+                    default -> throw new IOException("Unknown block type in input log: " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // Registro truncado: se conserva lo leido hasta el ultimo bloque completo
+            long lastKeyframe = keyframeTicks.isEmpty() ? 0 : keyframeTicks.get(keyframeTicks.size() - 1);
+            length = Math.max(lastKeyframe, changeTicks.isEmpty() ? 0 : lastChange + 1);
+        }
+
+        if (keyframes.isEmpty() || keyframeTicks.get(0) != 0) throw new IOException("The input log has no initial keyframe!");
+
+        InputReplay replay = new InputReplay(world, toArray(changeTicks), states, toArray(keyframeTicks), keyframes, length);
+        replay.restore(0);
+        return replay;
+    }
+
+    /**
+     * Simula un tick con las teclas grabadas. No hace nada si la reproduccion ya termino.
+     *
+     * @param fixedDeltaTime tiempo fijo entre actualizaciones de fisica.
+     */
+    public void step(float fixedDeltaTime) {
+        if (isFinished()) return;
+        // Avanza al cambio vigente en este tick (los ticks sin cambios no tienen bloque propio)
+        int next = change;
+        while (next + 1 < changeTicks.length && changeTicks[next + 1] <= tick) next++;
+        if (next != change) {
+            change = next;
+            keys.setReplayKeys(states.get(change));
+        }
+        world.tick(fixedDeltaTime);
+        tick++;
+    }
+
+    /**
+     * Salta a un tick determinado restaurando el keyframe anterior mas cercano y simulando desde ahi.
+     *
+     * @param target         tick al que se quiere saltar.
+     * @param fixedDeltaTime tiempo fijo entre actualizaciones de fisica (el mismo que se uso al grabar).
+     * @throws IllegalArgumentException si el tick esta fuera del registro.
+     */
+    public void seek(long target, float fixedDeltaTime) {
+        if (target < 0 || target > length) throw new IllegalArgumentException("Tick out of range: " + target);
+        int index = Arrays.binarySearch(keyframeTicks, target);
+        if (index < 0) index = -index - 2; // Keyframe anterior mas cercano
+        // Si el tick actual esta entre el keyframe y el destino, es mas barato seguir simulando
+        if (target < tick || keyframeTicks[index] > tick) restore(index);
+        while (tick < target) step(fixedDeltaTime);
+    }
+
+    private void restore(int keyframe) {
+        try {
+            world.readState(new DataInputStream(new ByteArrayInputStream(keyframes.get(keyframe))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupted keyframe in input log", e);
+        }
+        tick = keyframeTicks[keyframe];
+        // Se ubica justo antes del ultimo cambio anterior o igual al tick, para que step() lo aplique sin recorrer los anteriores
+        int index = Arrays.binarySearch(changeTicks, tick);
+        if (index < 0) index = -index - 2;
+        change = Math.max(index, 0) - 1;
+    }
+
+    /**
+     * Devuelve el control del teclado a la escena.
+     */
+    public void release() {
+        keys.setReplayKeys(null);
+    }
+
+    public boolean isFinished() {
+        return tick >= length;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) array[i] = values.get(i);
+        return array;
+    }
+
+}
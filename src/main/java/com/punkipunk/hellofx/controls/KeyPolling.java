@@ -154,8 +154,11 @@ public class KeyPolling {
 
     private static KeyPolling instance;
     private static Scene scene;
-    // Uso de EnumSet para mejor rendimiento
-    private static final Set<KeyCode> keys = EnumSet.noneOf(KeyCode.class); // Conjunto de teclas actualmente presionadas
+    /* Uso de EnumSet para mejor rendimiento. El conjunto publicado nunca se modifica: los eventos de teclado (en el hilo de
+     * JavaFX) publican una copia nueva, asi la simulacion puede consultar las teclas desde otro hilo sin bloqueos. */
+    private static volatile Set<KeyCode> keys = EnumSet.noneOf(KeyCode.class); // Conjunto de teclas actualmente presionadas
+    // Teclas reproducidas desde un registro de entrada; mientras no sea null, reemplazan a las teclas de la escena
+    private static volatile Set<KeyCode> replayKeys;
 
     private KeyPolling() {
     }
@@ -190,14 +193,37 @@ public class KeyPolling {
      * @return true si la tecla esta presionada, false en caso contrario.
      */
     public boolean isPressed(KeyCode keyCode) {
-        return keys.contains(keyCode);
+        Set<KeyCode> replay = replayKeys;
+        return replay != null ? replay.contains(keyCode) : keys.contains(keyCode);
+    }
+
+    /**
+     * Copia las teclas presionadas actualmente en el conjunto indicado, sin crear objetos nuevos.
+     *
+     * @param target conjunto donde se copian las teclas (se vacia antes de copiar).
+     */
+    public void copyPressedKeys(Set<KeyCode> target) {
+        Set<KeyCode> replay = replayKeys;
+        target.clear();
+        target.addAll(replay != null ? replay : keys);
+    }
+
+    /**
+     * Reemplaza las teclas de la escena por un conjunto reproducido desde un registro de entrada. Mientras este activo,
+     * {@link #isPressed(KeyCode)} consulta este conjunto en lugar de los eventos del teclado. El conjunto no debe modificarse
+     * mientras este activo.
+     *
+     * @param replay teclas presionadas en el tick reproducido, o null para volver a usar el teclado.
+     */
+    public void setReplayKeys(Set<KeyCode> replay) {
+        replayKeys = replay;
     }
 
     /**
      * Limpia las teclas.
      */
     private void clearKeys() {
-        keys.clear();
+        keys = EnumSet.noneOf(KeyCode.class);
     }
 
     /**
@@ -217,8 +243,23 @@ public class KeyPolling {
      */
     private void setScene(Scene newScene) {
         scene = newScene;
-        scene.setOnKeyPressed((keyEvent -> keys.add(keyEvent.getCode())));
-        scene.setOnKeyReleased((keyEvent -> keys.remove(keyEvent.getCode())));
+        scene.setOnKeyPressed((keyEvent -> setPressed(keyEvent.getCode(), true)));
+        scene.setOnKeyReleased((keyEvent -> setPressed(keyEvent.getCode(), false)));
+    }
+
+    /**
+     * Publica una copia del conjunto de teclas con el cambio aplicado. Solo se llama desde el hilo de JavaFX, y solo copia si
+     * el estado cambia (la repeticion del teclado genera muchos KEY_PRESSED de una tecla ya presionada).
+     *
+     * @param code    tecla que cambio.
+     * @param pressed true si la tecla se presiono o false si se solto.
+     */
+    private static void setPressed(KeyCode code, boolean pressed) {
+        if (keys.contains(code) == pressed) return;
+        Set<KeyCode> copy = EnumSet.copyOf(keys);
+        if (pressed) copy.add(code);
+        else copy.remove(code);
+        keys = copy;
     }
 
     /**
@@ -1,5 +1,9 @@
 package com.punkipunk.hellofx.models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
 
@@ -36,6 +40,13 @@ import javafx.scene.image.Image;
  * <p>
  * Nota: Los escalares son magnitudes que solo tienen magnitud, mientras que los vectores tienen magnitud y direccion.
  * <p>
+ * <h2>Almacenamiento</h2>
+ * <p>
+ * Una entidad es solo un manejador (handle): guarda su imagen y un id, mientras que la posicion, la velocidad, la rotacion y la
+ * escala viven en los arreglos paralelos de un {@link EntityStore}. Los metodos de esta clase acceden al almacen a traves del id,
+ * por lo que siguen siendo validos aunque el indice de la entidad cambie al eliminar otras. Las entidades se crean y eliminan
+ * mediante {@link World#spawn(Image)} y {@link World#despawn(Entity)}.
+ * <p>
  * Links: <a
  * href="https://www.khanacademy.org/math/precalculus/x9e81a4f98389efdf:vectors/x9e81a4f98389efdf:vectors-intro/v/introduction-to-vectors-and-scalars">Intro
  * to vectors & scalars</a>
@@ -43,115 +54,42 @@ import javafx.scene.image.Image;
 
 public class Entity {
 
+    private final EntityStore store;
+    private final int id;
     private final Image image;
-    private final double width;
-    private final double height;
-    private float scale;
-
-    private Point2D position; // Posicion actual
-    private Point2D newPosition;
-
-    private float rotation; // Orientacion actual
-    private float newRotation;
-
-    public Entity(Image image) {
-        this.image = image;
-        this.width = image.getWidth();
-        this.height = image.getHeight();
-        newPosition = new Point2D(0, 0);
-    }
-
-    /**
-     * Actualiza la entidad.
-     */
-    public void update() {
-        applyDrag();
-        updatePosition();
-        updateRotation();
-    }
+    private Entity parent;
 
     /**
-     * <p>
-     * Simula la friccion o resistencia que experimenta la entidad cuando "frena". Su proposito es reducir gradualmente la
-     * velocidad de movimiento (magnitud de newPosition) y la velocidad de rotacion. Utiliza diferentes valores de arrastre
-     * dependiendo de la velocidad actual, lo que resulta en un comportamiento mas realista donde el arrastre es mas pronunciado a
-     * altas velocidades.
-     * <p>
-     * Si la entidad se mueve rapido (valor alto), la reduccion sera mas notable. Si la entidad se mueve lento (valor bajo), la
-     * reduccion sera menor. Cuando la velocidad es muy baja (menor que el modificador), el movimiento se detiene completamente.
-     * <p>
-     * Al establecer valores muy pequeños directamente a cero, se evitan micro-movimientos o vibraciones no deseadas cuando la
-     * entidad esta casi detenida.
-     * <p>
-     * Implementacion:
-     * <ul>
-     * <li>Para el movimiento lineal:
-     *  <ul>
-     *     <li>El metodo magnitude() calcula la magnitud del vector desde el origen (0,0) hasta el punto representado por el Point2D</li>
-     *     <li>Si la magnitud es menor que 0.5, se aplica un arrastre suave de 0.01</li>
-     *     <li>Si la magnitud es mayor o igual a 0.5, se aplica un arrastre mas fuerte de 0.07</li>
-     *     </ul>
-     * </li>
-     * <li>Para la rotacion:
-     *     <ul>
-     *     <li>Si la velocidad de rotacion es menor que 0.2, se aplica un arrastre de 0.05</li>
-     *     <li>Si la velocidad de rotacion es mayor o igual a 0.2, se aplica un arrastre de 0.1</li>
-     *     </ul>
-     * </li>
-     * <li>La funcion reduceTowardsZero() se aplica a:
-     *     <ul>
-     *     <li>Cada componente (X e Y) del vector de newPosition, reduciendo gradualmente su magnitud</li>
-     *     <li>La velocidad de rotacion, reduciendo gradualmente su valor</li>
-     *     </ul>
-     * </li>
-     * </ul>
-     */
-    private void applyDrag() {
-        // Calcula el arrastre para la nueva posicion y rotacion
-        float velocityDrag = newPosition.magnitude() < 0.5 ? 0.01f : 0.07f;
-        float rotationDrag = newRotation < 0.2f ? 0.05f : 0.1f;
-        newPosition = new Point2D(reduceTowardsZero((float) newPosition.getX(), velocityDrag), reduceTowardsZero((float) newPosition.getY(), velocityDrag));
-        newRotation = reduceTowardsZero(newRotation, rotationDrag);
-    }
-
-    /**
-     * <p>
-     * Actualiza la posicion de la entidad mediante una operacion de suma vectorial. Desde el punto de vista fisico, este metodo
-     * opera con dos vectores fundamentales. El primero es el vector de posicion ({@code position}) que define la ubicacion actual
-     * en el espacio 2D, con componentes (x, y) medidas en pixeles desde el origen ubicado en la esquina superior izquierda de la
-     * pantalla. El segundo es el vector de desplazamiento ({@code newPosition}) que define el cambio de posicion con componentes
-     * (Δx, Δy) en pixeles. Este vector de desplazamiento se genera en el metodo {@code applyThrust()} a partir de dos escalares:
-     * la magnitud, que se calcula como el producto del empuje ({@code thrust}) por el tiempo transcurrido ({@code deltaTime}), y
-     * la direccion, determinada por el angulo de rotacion ({@code rotation}). La operacion vectorial realizada es una suma donde
-     * el vector de posicion final es igual al vector de posicion inicial mas el vector de desplazamiento. En terminos de
-     * componentes, esto significa que la posicion final en x es igual a la posicion inicial en x mas el desplazamiento en x, y de
-     * manera similar para la componente y. Este proceso representa un caso clasico de suma vectorial donde la posicion es un
-     * vector que indica la ubicacion en el espacio, el desplazamiento es un vector que indica el cambio en esa ubicacion, y la
-     * suma vectorial produce la nueva ubicacion en el espacio.
+     * Crea una entidad suelta, con el tamaño de su imagen, en un almacen propio que no pertenece a ningun {@link World}. Se
+     * conserva por compatibilidad: para que la entidad se simule y colisione con las demas hay que crearla con
+     * {@link World#spawn(Image)}.
+     *
+     * @param image imagen de la entidad.
      */
-    private void updatePosition() {
-        position = position.add(newPosition);
+    public Entity(Image image) {
+        this(new EntityStore(), image, image.getWidth(), image.getHeight());
     }
 
     /**
-     * Actualiza la rotacion.
+     * Crea el manejador de una nueva entidad del almacen.
+     *
+     * @param store  almacen donde vive el estado de la entidad.
+     * @param image  imagen de la entidad, o null para ejecutar la simulacion sin el toolkit de JavaFX.
+     * @param width  ancho de la entidad sin escalar.
+     * @param height alto de la entidad sin escalar.
      */
-    private void updateRotation() {
-        rotation += newRotation;
+    Entity(EntityStore store, Image image, double width, double height) {
+        this.store = store;
+        this.image = image;
+        id = store.create((float) width, (float) height);
     }
 
     /**
-     * Reduce gradualmente un valor hacia cero.
-     *
-     * @param value    valor actual que se quiere reducir.
-     * @param modifier cantidad por la que se quiere reducir el valor.
-     * @return el nuevo valor despues de aplicar la reduccion.
+     * Actualiza la entidad. Normalmente las entidades se actualizan todas juntas con {@link EntityStore#update()}.
      */
-    private float reduceTowardsZero(float value, float modifier) {
-        float newValue = 0; // Si value esta entre -modifier y modifier, el resultado es 0
-        if (value > modifier) newValue = value - modifier;
-        else if (value < -modifier) newValue = value + modifier;
-        return newValue;
+    public void update() {
+        int i = index();
+        store.update(i, i + 1);
     }
 
     /**
@@ -168,62 +106,75 @@ public class Entity {
      *                 negativo genera una rotacion en sentido antihorario.
      */
     public void applyRotation(float rotation) {
-        final float MAX_SPEED = 5;
-        float newRotationSpeed = newRotation + rotation;
-        if (rotation > 0) newRotation = Math.min(newRotationSpeed, MAX_SPEED); // Rotacion en sentido horario
-        else newRotation = Math.max(newRotationSpeed, -MAX_SPEED); // Rotacion en sentido antihorario
+        store.applyRotation(index(), rotation);
     }
 
     /**
      * Aplica empuje.
      * <p>
      * Este proceso consta de tres pasos principales: primero se realiza una conversion de la magnitud (thrust) y direccion
-     * (rotation) para obtener un vector cartesiano, luego se procede a sumar este vector al vector de la nueva posicion, y
-     * finalmente se limita la velocidad (magnitud) resultante en caso de que llegue al limite maximo. Para llevar a cabo estos
-     * calculos, el metodo hace uso de coordenadas polares al determinar el vector de la nueva posicion, realizando una conversion
-     * de la rotacion de la entidad a radianes y aplicando una negacion para que se ajuste correctamente al sistema de coordenadas
-     * que se utiliza en la pantalla.
+     * (rotation) para obtener un vector cartesiano, luego se procede a sumar este vector al vector de velocidad, y finalmente se
+     * limita la velocidad (magnitud) resultante en caso de que llegue al limite maximo. Para llevar a cabo estos calculos, el
+     * metodo hace uso de coordenadas polares, realizando una conversion de la rotacion de la entidad a radianes y aplicando una
+     * negacion para que se ajuste correctamente al sistema de coordenadas que se utiliza en la pantalla.
      *
      * @param thrust empuje a aplicar.
      */
     public void applyThrust(float thrust) {
-        newPosition = newPosition.add(polarToCartesian(thrust, Math.toRadians(-rotation)));
-        newPosition = limitSpeed(newPosition);
+        store.applyThrust(index(), thrust);
     }
 
     /**
-     * <p>
-     * Convierte las coordenadas polares (thrust y rotation) a un vector cartesiano. El empuje (thrust) representa la magnitud y
-     * rotation, obviamente, la direccion.
+     * Escribe el estado dinamico de la entidad (posicion, rotacion, velocidades y escala) sin perdida de precision, para poder
+     * restaurarlo despues con {@link #readState(DataInput)} y continuar la simulacion de forma identica.
      *
-     * @param thrust   magnitud del vector.
-     * @param rotation direccion del vector.
-     * @return un vector cartesiano que represena la nueva posicion.
+     * @param out destino del estado.
+     * @throws IOException si falla la escritura.
      */
-    private Point2D polarToCartesian(float thrust, double rotation) {
-        return new Point2D((float) (Math.sin(rotation) * thrust), (float) (Math.cos(rotation) * thrust));
+    public void writeState(DataOutput out) throws IOException {
+        int i = index();
+        out.writeFloat(store.x[i]);
+        out.writeFloat(store.y[i]);
+        out.writeFloat(store.previousX[i]);
+        out.writeFloat(store.previousY[i]);
+        out.writeFloat(store.velocityX[i]);
+        out.writeFloat(store.velocityY[i]);
+        out.writeFloat(store.rotation[i]);
+        out.writeFloat(store.previousRotation[i]);
+        out.writeFloat(store.angularVelocity[i]);
+        out.writeFloat(store.scale[i]);
     }
 
     /**
-     * Limita la velocidad del vector.
+     * Restaura el estado dinamico escrito por {@link #writeState(DataOutput)}.
      *
-     * @param vector vector.
-     * @return el vector con la velocidad limitada, o el vector sin limitar.
+     * @param in origen del estado.
+     * @throws IOException si falla la lectura.
      */
-    private Point2D limitSpeed(Point2D vector) {
-        final float MAX_SPEED = 5;
-        // Obtiene la velocidad
-        float speed = (float) vector.magnitude();
-        if (speed > MAX_SPEED) {
-            /* Normaliza el vector (lo convierte en un vector unitario) y lo multiplica por el limite para conservar la direccion
-             * original mientras se ajusta su magnitud a los limites deseados. */
-            return vector.normalize().multiply(MAX_SPEED);
-        }
-        return vector;
+    public void readState(DataInput in) throws IOException {
+        int i = index();
+        store.x[i] = in.readFloat();
+        store.y[i] = in.readFloat();
+        store.previousX[i] = in.readFloat();
+        store.previousY[i] = in.readFloat();
+        store.velocityX[i] = in.readFloat();
+        store.velocityY[i] = in.readFloat();
+        store.rotation[i] = in.readFloat();
+        store.previousRotation[i] = in.readFloat();
+        store.angularVelocity[i] = in.readFloat();
+        store.scale[i] = in.readFloat();
+        store.invalidate(i);
     }
 
+    /**
+     * Obtiene la posicion de la entidad. Crea un {@code Point2D} en cada llamada, por lo que en el camino de cada frame conviene
+     * usar {@link #getX()} y {@link #getY()}.
+     *
+     * @return la posicion de la entidad.
+     */
     public Point2D getPosition() {
-        return position;
+        int i = index();
+        return new Point2D(store.x[i], store.y[i]);
     }
 
     /**
@@ -233,7 +184,43 @@ public class Entity {
      * @param y posicion en la coordenada y.
      */
     public void setPosition(float x, float y) {
-        position = new Point2D(x, y);
+        int i = index();
+        store.x[i] = store.previousX[i] = x; // Un cambio de posicion directo no se interpola
+        store.y[i] = store.previousY[i] = y;
+        store.invalidate(i);
+    }
+
+    /**
+     * Obtiene la posicion al comienzo del ultimo paso de simulacion.
+     *
+     * @return la posicion anterior de la entidad.
+     */
+    public Point2D getPreviousPosition() {
+        int i = index();
+        return new Point2D(store.previousX[i], store.previousY[i]);
+    }
+
+    /**
+     * Interpola la posicion entre el paso de simulacion anterior y el actual.
+     *
+     * @param alpha factor de interpolacion entre 0 (posicion anterior) y 1 (posicion actual).
+     * @return la posicion interpolada.
+     */
+    public Point2D getInterpolatedPosition(float alpha) {
+        int i = index();
+        return new Point2D(interpolate(store.previousX[i], store.x[i], alpha), interpolate(store.previousY[i], store.y[i], alpha));
+    }
+
+    /**
+     * Obtiene el centro de la entidad a partir de la posicion interpolada.
+     *
+     * @param alpha factor de interpolacion entre 0 (posicion anterior) y 1 (posicion actual).
+     * @return el centro interpolado de la entidad.
+     */
+    public Point2D getInterpolatedCenter(float alpha) {
+        int i = index();
+        return new Point2D(interpolate(store.previousX[i], store.x[i], alpha) + store.width[i] / 2,
+                interpolate(store.previousY[i], store.y[i], alpha) + store.height[i] / 2);
     }
 
     /**
@@ -242,15 +229,78 @@ public class Entity {
      * @return el centro de la entidad.
      */
     public Point2D getCenter() {
-        return new Point2D(position.getX() + width / 2, position.getY() + height / 2);
+        int i = index();
+        return new Point2D(store.x[i] + store.width[i] / 2, store.y[i] + store.height[i] / 2);
+    }
+
+    public float getX() {
+        return store.x[index()];
+    }
+
+    public float getY() {
+        return store.y[index()];
+    }
+
+    /**
+     * Interpola la coordenada x de la posicion sin crear objetos.
+     *
+     * @param alpha factor de interpolacion entre 0 (posicion anterior) y 1 (posicion actual).
+     * @return la coordenada x interpolada.
+     */
+    public float getInterpolatedX(float alpha) {
+        int i = index();
+        return interpolate(store.previousX[i], store.x[i], alpha);
+    }
+
+    /**
+     * Interpola la coordenada y de la posicion sin crear objetos.
+     *
+     * @param alpha factor de interpolacion entre 0 (posicion anterior) y 1 (posicion actual).
+     * @return la coordenada y interpolada.
+     */
+    public float getInterpolatedY(float alpha) {
+        int i = index();
+        return interpolate(store.previousY[i], store.y[i], alpha);
+    }
+
+    /**
+     * Obtiene la coordenada x del centro a partir de la posicion interpolada, sin crear objetos.
+     *
+     * @param alpha factor de interpolacion entre 0 (posicion anterior) y 1 (posicion actual).
+     * @return la coordenada x del centro interpolado.
+     */
+    public float getInterpolatedCenterX(float alpha) {
+        int i = index();
+        return interpolate(store.previousX[i], store.x[i], alpha) + store.width[i] / 2;
+    }
+
+    /**
+     * Obtiene la coordenada y del centro a partir de la posicion interpolada, sin crear objetos.
+     *
+     * @param alpha factor de interpolacion entre 0 (posicion anterior) y 1 (posicion actual).
+     * @return la coordenada y del centro interpolado.
+     */
+    public float getInterpolatedCenterY(float alpha) {
+        int i = index();
+        return interpolate(store.previousY[i], store.y[i], alpha) + store.height[i] / 2;
+    }
+
+    public float getCenterX() {
+        int i = index();
+        return store.x[i] + store.width[i] / 2;
+    }
+
+    public float getCenterY() {
+        int i = index();
+        return store.y[i] + store.height[i] / 2;
     }
 
     public float getScale() {
-        return scale;
+        return store.scale[index()];
     }
 
     public void setScale(float scale) {
-        this.scale = scale;
+        store.scale[index()] = scale;
     }
 
     public Image getImage() {
@@ -258,15 +308,115 @@ public class Entity {
     }
 
     public double getWidth() {
-        return width * getScale();
+        int i = index();
+        return store.width[i] * store.scale[i];
     }
 
     public double getHeight() {
-        return height * getScale();
+        int i = index();
+        return store.height[i] * store.scale[i];
     }
 
     public float getRotation() {
-        return rotation;
+        return store.rotation[index()];
+    }
+
+    /**
+     * Obtiene la rotacion al comienzo del ultimo paso de simulacion.
+     *
+     * @return la rotacion anterior de la entidad.
+     */
+    public float getPreviousRotation() {
+        return store.previousRotation[index()];
+    }
+
+    /**
+     * Interpola la rotacion entre el paso de simulacion anterior y el actual.
+     *
+     * @param alpha factor de interpolacion entre 0 (rotacion anterior) y 1 (rotacion actual).
+     * @return la rotacion interpolada.
+     */
+    public float getInterpolatedRotation(float alpha) {
+        int i = index();
+        return interpolate(store.previousRotation[i], store.rotation[i], alpha);
+    }
+
+    /**
+     * <p>
+     * Une la entidad a otra, que pasa a ser su padre. Desde entonces la posicion y la rotacion de la entidad son relativas a la
+     * esquina y a la rotacion del padre, por lo que se mueve y gira junto con el (por ejemplo, una torreta sobre una nave).
+     * <p>
+     * La posicion no se convierte al unirla: una entidad en (0, 0) queda dibujada sobre la esquina del padre. Las colisiones y
+     * las consultas del {@link EntityTree} usan la caja en el mundo de la imagen, donde se dibuja.
+     *
+     * @param parent entidad a la que se une.
+     * @throws IllegalArgumentException si el padre es de otro mundo o si la union formaria un ciclo.
+     */
+    public void attachTo(Entity parent) {
+        if (parent.store != store) throw new IllegalArgumentException("The parent belongs to another world!");
+        store.setParent(id, parent.id);
+        this.parent = parent;
+    }
+
+    /**
+     * Separa la entidad de su padre, si lo tiene. Su posicion y rotacion vuelven a ser absolutas.
+     */
+    public void detach() {
+        if (parent == null) return;
+        store.setParent(id, -1);
+        parent = null;
+    }
+
+    /**
+     * Obtiene la entidad a la que esta unida.
+     *
+     * @return el padre, o null si la entidad no esta unida a otra.
+     */
+    public Entity getParent() {
+        return parent;
+    }
+
+    /**
+     * Obtiene la transformacion del mundo con la que se dibuja la imagen de la entidad en su posicion local interpolada. Se
+     * recalcula solo si la entidad o alguno de sus ancestros cambio desde la ultima consulta.
+     *
+     * @param alpha factor de interpolacion entre 0 (estado anterior) y 1 (estado actual).
+     * @param out   destino de los seis valores {@code mxx, myx, mxy, myy, tx, ty}.
+     */
+    public void getWorldTransform(float alpha, double[] out) {
+        int o = store.resolveTransform(index(), alpha);
+        System.arraycopy(store.getTransforms(), o, out, 0, Transforms.SIZE);
+    }
+
+    /**
+     * Obtiene el id estable de la entidad dentro de su almacen.
+     *
+     * @return el id de la entidad.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Comprueba si la entidad sigue viva en su almacen.
+     *
+     * @return true si la entidad no fue eliminada o false en caso contrario.
+     */
+    public boolean isAlive() {
+        return store.contains(id);
+    }
+
+    /**
+     * Obtiene el indice actual de la entidad en los arreglos del almacen.
+     *
+     * @return el indice de la entidad.
+     */
+    int index() {
+        return store.indexOf(id);
+    }
+
+    private static float interpolate(float previous, float current, float alpha) {
+        return previous + (current - previous) * alpha;
     }
 
 }
@@ -0,0 +1,19 @@
+package com.punkipunk.hellofx.models;
+
+/**
+ * Implementacion alternativa de la actualizacion de un rango de entidades de un {@link EntityStore}. El resultado debe ser
+ * identico bit a bit al de la version escalar.
+ */
+
+interface EntityKernel {
+
+    /**
+     * Actualiza las entidades de un rango de indices.
+     *
+     * @param store almacen a actualizar.
+     * @param from  primer indice (inclusive).
+     * @param to    ultimo indice (exclusive).
+     */
+    void update(EntityStore store, int from, int to);
+
+}
@@ -0,0 +1,569 @@
+package com.punkipunk.hellofx.models;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * <p>
+ * Almacen orientado a datos (structure of arrays) con el estado de todas las entidades.
+ * <p>
+ * En lugar de que cada {@link Entity} guarde su posicion, velocidad y rotacion en campos propios (y cree un {@code Point2D}
+ * nuevo en cada actualizacion), el estado de todas las entidades vive en arreglos primitivos paralelos: el elemento {@code i}
+ * de cada arreglo pertenece a la misma entidad. Las entidades activas estan empaquetadas de forma densa en los indices
+ * {@code [0, size)}, asi que actualizarlas todas con {@link #update()} es un recorrido lineal sobre memoria contigua, sin seguir
+ * punteros ni crear objetos.
+ * <h2>Identificadores e indices</h2>
+ * <p>
+ * Al eliminar una entidad, la ultima entidad del arreglo se mueve a su lugar (swap-remove) para mantener el empaquetado denso en
+ * O(1). Como esto cambia el indice de la entidad movida, cada entidad se identifica con un id estable, y el almacen mantiene la
+ * correspondencia entre ids e indices. {@code Entity} es solo un manejador que guarda ese id.
+ * <p>
+ * Los arreglos crecen al doble cuando se llenan y los ids liberados se reutilizan.
+ * <h2>Actualizacion vectorizada</h2>
+ * <p>
+ * Si el proyecto se compila con el perfil {@code vector} de Maven y la JVM se inicia con
+ * {@code --add-modules jdk.incubator.vector}, {@link #setVectorized(boolean)} permite actualizar las entidades con instrucciones
+ * SIMD en lugar de una a la vez. El resultado es el mismo; en otro caso se usa siempre la version escalar.
+ * <h2>Jerarquia y transformaciones</h2>
+ * <p>
+ * Una entidad se puede unir a otra (una torreta a una nave). Su posicion y rotacion pasan a ser relativas a la posicion y
+ * rotacion de su padre. La transformacion afin con la que se dibuja cada entidad se guarda en cache y solo se recalcula si la
+ * entidad cambio, si se esta moviendo (su transformacion depende del factor de interpolacion) o si cambio la de su padre, lo que
+ * se detecta comparando un numero de version. Un subarbol quieto no cuesta trigonometria ni memoria al renderizar.
+ * <p>
+ * Cada cambio del estado incrementa una revision del almacen. Las consultas con la misma revision y el mismo factor de
+ * interpolacion forman un frame, y en un frame cada transformacion se resuelve una sola vez: un padre con muchos hijos no se
+ * recalcula por cada hijo, y si el juego esta en pausa tampoco se recalculan las entidades en movimiento.
+ */
+
+public class EntityStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float MAX_SPEED = 5;
+    private static final float MAX_ROTATION_SPEED = 5;
+    /* La Vector API es un modulo incubador. El nucleo que la usa se compila aparte (perfil vector) y se carga por reflexion, asi
+     * que solo esta disponible si se compilo y el modulo se agrego al iniciar la JVM. */
+    private static final String VECTOR_KERNEL = "com.punkipunk.hellofx.models.VectorKernel";
+    private static final EntityKernel VECTOR = loadVectorKernel();
+
+    // Estado de cada entidad, indexado de forma densa
+    float[] x, y; // Posicion actual
+    float[] previousX, previousY; // Posicion al comienzo del ultimo paso de simulacion
+    float[] velocityX, velocityY; // Desplazamiento por paso
+    float[] rotation; // Orientacion actual
+    float[] previousRotation; // Orientacion al comienzo del ultimo paso de simulacion
+    float[] angularVelocity; // Rotacion por paso
+    float[] scale;
+    float[] width, height; // Tamaño sin escalar
+
+    // Jerarquia y cache de transformaciones, tambien indexados de forma densa
+    private int[] parents; // Id del padre, o -1
+    private int[] childCounts;
+    private double[] transforms; // Transformacion del mundo, Transforms.SIZE valores por entidad
+    private boolean[] dirty; // La transformacion en cache no corresponde al estado actual
+    private int[] versions; // Crece cada vez que se recalcula la transformacion
+    private int[] parentVersions; // Version del padre usada en el ultimo calculo
+    private int[] resolvedFrames; // Ultimo frame en el que se resolvio la transformacion
+    private int revision; // Crece con cada cambio del estado de las entidades
+    private int frame, frameRevision = -1;
+    private float frameAlpha;
+
+    private int[] ids; // Indice denso -> id
+    private int[] indices; // Id -> indice denso, o -1 si el id esta libre
+    private int[] freeIds;
+    private int freeCount, nextId, size;
+    private boolean vectorized;
+
+    public EntityStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public EntityStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        previousX = new float[capacity];
+        previousY = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        rotation = new float[capacity];
+        previousRotation = new float[capacity];
+        angularVelocity = new float[capacity];
+        scale = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        parents = new int[capacity];
+        childCounts = new int[capacity];
+        transforms = new double[capacity * Transforms.SIZE];
+        dirty = new boolean[capacity];
+        versions = new int[capacity];
+        parentVersions = new int[capacity];
+        resolvedFrames = new int[capacity];
+        ids = new int[capacity];
+        indices = new int[capacity];
+        freeIds = new int[capacity];
+        Arrays.fill(indices, -1);
+    }
+
+    /**
+     * Crea una entidad en reposo en el origen, con escala 1.
+     *
+     * @param width  ancho sin escalar.
+     * @param height alto sin escalar.
+     * @return el id de la nueva entidad.
+     */
+    public int create(float width, float height) {
+        if (size == x.length) grow();
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        if (id >= indices.length) {
+            int previous = indices.length;
+            indices = Arrays.copyOf(indices, Math.max(id + 1, previous * 2));
+            Arrays.fill(indices, previous, indices.length, -1);
+        }
+        int i = size++;
+        ids[i] = id;
+        indices[id] = i;
+        x[i] = y[i] = previousX[i] = previousY[i] = velocityX[i] = velocityY[i] = 0;
+        rotation[i] = previousRotation[i] = angularVelocity[i] = 0;
+        scale[i] = 0; // Igual que una Entity sin escala, que no se ve hasta llamar a setScale()
+        this.width[i] = width;
+        this.height[i] = height;
+        parents[i] = -1;
+        childCounts[i] = 0;
+        dirty[i] = true;
+        revision++;
+        return id;
+    }
+
+    /**
+     * Elimina una entidad moviendo la ultima a su lugar.
+     *
+     * @param id id de la entidad.
+     * @throws IllegalArgumentException si el id no pertenece a una entidad activa.
+     * @throws IllegalStateException    si la entidad todavia tiene hijos unidos.
+     */
+    public void remove(int id) {
+        int i = indexOf(id);
+        if (childCounts[i] > 0) throw new IllegalStateException("Entity " + id + " still has attached children!");
+        setParent(id, -1);
+        int last = --size;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            previousX[i] = previousX[last];
+            previousY[i] = previousY[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            rotation[i] = rotation[last];
+            previousRotation[i] = previousRotation[last];
+            angularVelocity[i] = angularVelocity[last];
+            scale[i] = scale[last];
+            width[i] = width[last];
+            height[i] = height[last];
+            parents[i] = parents[last];
+            childCounts[i] = childCounts[last];
+            System.arraycopy(transforms, last * Transforms.SIZE, transforms, i * Transforms.SIZE, Transforms.SIZE);
+            dirty[i] = dirty[last];
+            versions[i] = versions[last];
+            parentVersions[i] = parentVersions[last];
+            resolvedFrames[i] = resolvedFrames[last];
+            ids[i] = ids[last];
+            indices[ids[i]] = i;
+        }
+        indices[id] = -1;
+        revision++;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Obtiene el indice denso actual de una entidad. El indice cambia cuando se elimina otra entidad, por lo que no debe
+     * guardarse entre llamadas a {@link #remove(int)}.
+     *
+     * @param id id de la entidad.
+     * @return el indice de la entidad en los arreglos.
+     * @throws IllegalArgumentException si el id no pertenece a una entidad activa.
+     */
+    public int indexOf(int id) {
+        int index = id >= 0 && id < indices.length ? indices[id] : -1;
+        if (index < 0) throw new IllegalArgumentException("No active entity with id " + id + "!");
+        return index;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < indices.length && indices[id] >= 0;
+    }
+
+    /**
+     * Obtiene la cantidad de entidades activas.
+     *
+     * @return la cantidad de entidades.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene el id de la entidad ubicada en un indice denso.
+     *
+     * @param index indice en los arreglos.
+     * @return el id de la entidad.
+     */
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Une una entidad a otra o la separa de su padre. La posicion y rotacion de la entidad se interpretan desde entonces como
+     * relativas a las de su padre, sin convertirse, por lo que la entidad salta si no se ajustan.
+     *
+     * @param id     id de la entidad.
+     * @param parent id del nuevo padre, o -1 para separarla.
+     * @throws IllegalArgumentException si la entidad o el padre no existen, o si la union formaria un ciclo.
+     */
+    public void setParent(int id, int parent) {
+        int i = indexOf(id);
+        if (parent >= 0) {
+            // Recorre los ancestros del nuevo padre para no formar un ciclo
+            for (int ancestor = parent; ancestor >= 0; ancestor = parents[indexOf(ancestor)])
+                if (ancestor == id) throw new IllegalArgumentException("Entity " + id + " cannot be attached to its own descendant!");
+        }
+        if (parents[i] >= 0) childCounts[indexOf(parents[i])]--;
+        parents[i] = parent;
+        if (parent >= 0) childCounts[indexOf(parent)]++;
+        dirty[i] = true;
+        revision++;
+    }
+
+    /**
+     * Obtiene el padre de una entidad.
+     *
+     * @param id id de la entidad.
+     * @return el id del padre, o -1 si la entidad no esta unida a otra.
+     */
+    public int getParent(int id) {
+        return parents[indexOf(id)];
+    }
+
+    /**
+     * Obtiene la cantidad de entidades unidas directamente a una entidad.
+     *
+     * @param id id de la entidad.
+     * @return la cantidad de hijos.
+     */
+    public int getChildCount(int id) {
+        return childCounts[indexOf(id)];
+    }
+
+    /**
+     * Marca como desactualizada la transformacion en cache de una entidad. Se debe llamar despues de modificar su estado fuera
+     * de {@link #update()}.
+     *
+     * @param i indice de la entidad.
+     */
+    void invalidate(int i) {
+        dirty[i] = true;
+        revision++;
+    }
+
+    /**
+     * <p>
+     * Actualiza, si hace falta, la transformacion del mundo de una entidad para un factor de interpolacion, empezando por la de
+     * sus ancestros.
+     * <p>
+     * La transformacion local es la rotacion alrededor del centro de la entidad, con la que se dibuja su imagen en su posicion.
+     * Si la entidad tiene padre, se le antepone la transformacion del mundo del padre trasladada a la posicion del padre.
+     *
+     * @param i     indice de la entidad.
+     * @param alpha factor de interpolacion entre 0 (estado anterior) y 1 (estado actual).
+     * @return la posicion de la transformacion en {@link #getTransforms()}.
+     */
+    int resolveTransform(int i, float alpha) {
+        if (revision != frameRevision || Float.compare(alpha, frameAlpha) != 0) {
+            // El estado o alpha cambiaron desde la ultima consulta, asi que empieza un frame nuevo
+            frame++;
+            frameRevision = revision;
+            frameAlpha = alpha;
+        }
+        return resolve(i, alpha);
+    }
+
+    private int resolve(int i, float alpha) {
+        int o = i * Transforms.SIZE;
+        if (resolvedFrames[i] == frame) return o; // Ya se resolvio en este frame, por ejemplo como padre de otra entidad
+        resolvedFrames[i] = frame;
+        int parent = parents[i] < 0 ? -1 : indexOf(parents[i]);
+        int parentVersion = 0;
+        if (parent >= 0) {
+            resolve(parent, alpha);
+            parentVersion = versions[parent];
+        }
+        // Mientras la entidad se mueve, su transformacion depende de alpha y se recalcula en cada frame
+        boolean moving = previousX[i] != x[i] || previousY[i] != y[i] || previousRotation[i] != rotation[i];
+        if (!dirty[i] && !moving && parentVersion == parentVersions[i]) return o;
+
+        float px = previousX[i] + (x[i] - previousX[i]) * alpha, py = previousY[i] + (y[i] - previousY[i]) * alpha;
+        float angle = previousRotation[i] + (rotation[i] - previousRotation[i]) * alpha;
+        Transforms.rotation(transforms, o, angle, px + width[i] / 2, py + height[i] / 2);
+        if (parent >= 0) {
+            float parentX = previousX[parent] + (x[parent] - previousX[parent]) * alpha;
+            float parentY = previousY[parent] + (y[parent] - previousY[parent]) * alpha;
+            Transforms.attach(transforms, o, transforms, parent * Transforms.SIZE, parentX, parentY);
+        }
+        versions[i]++;
+        parentVersions[i] = parentVersion;
+        /* Si la entidad se movia, la transformacion corresponde a este alpha y a este paso: dentro del frame se reutiliza, pero
+         * el proximo la recalcula aunque la entidad se haya detenido */
+        dirty[i] = moving;
+        return o;
+    }
+
+    double[] getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * <p>
+     * Calcula la caja delimitadora de una entidad en coordenadas del mundo, con su estado actual.
+     * <p>
+     * Sin padre es la caja escalada y sin rotar en su posicion. Con padre, la posicion es relativa al padre, asi que se usa la
+     * caja que encierra el rectangulo de la imagen transformado por la transformacion del mundo, es decir, donde se dibuja.
+     *
+     * @param i   indice de la entidad.
+     * @param out destino de {@code minX, minY, maxX, maxY}.
+     */
+    void bounds(int i, float[] out) {
+        float w = width[i] * scale[i], h = height[i] * scale[i];
+        if (parents[i] < 0) {
+            out[0] = x[i];
+            out[1] = y[i];
+            out[2] = x[i] + w;
+            out[3] = y[i] + h;
+            return;
+        }
+        int o = resolveTransform(i, 1);
+        double[] m = transforms;
+        // Centro del rectangulo transformado, mas la mitad de su extension proyectada en cada eje
+        double cx = x[i] + w / 2, cy = y[i] + h / 2;
+        double centerX = m[o] * cx + m[o + 2] * cy + m[o + 4], centerY = m[o + 1] * cx + m[o + 3] * cy + m[o + 5];
+        double extentX = (Math.abs(m[o]) * w + Math.abs(m[o + 2]) * h) / 2, extentY = (Math.abs(m[o + 1]) * w + Math.abs(m[o + 3]) * h) / 2;
+        out[0] = (float) (centerX - extentX);
+        out[1] = (float) (centerY - extentY);
+        out[2] = (float) (centerX + extentX);
+        out[3] = (float) (centerY + extentY);
+    }
+
+    /**
+     * Actualiza todas las entidades en un unico recorrido lineal.
+     */
+    public void update() {
+        update(0, size);
+    }
+
+    /**
+     * Actualiza las entidades de un rango de indices. Cada entidad solo lee y escribe su propio estado, por lo que rangos
+     * distintos se pueden actualizar de forma independiente.
+     *
+     * @param from primer indice (inclusive).
+     * @param to   ultimo indice (exclusive).
+     */
+    public void update(int from, int to) {
+        revision++;
+        integrate(from, to);
+    }
+
+    /**
+     * Igual que {@link #update(int, int)}, pero sin incrementar la revision del almacen, para que varios hilos puedan actualizar
+     * rangos distintos a la vez. Quien reparte los rangos debe llamar antes a {@link #modified()}.
+     */
+    void integrate(int from, int to) {
+        if (vectorized) VECTOR.update(this, from, to);
+        else for (int i = from; i < to; i++) update(i);
+    }
+
+    /**
+     * Registra un cambio del estado de las entidades, para que la proxima consulta de transformaciones empiece un frame nuevo.
+     */
+    void modified() {
+        revision++;
+    }
+
+    /**
+     * Comprueba si la Vector API esta disponible en tiempo de ejecucion.
+     *
+     * @return true si se puede activar la actualizacion vectorizada o false en caso contrario.
+     */
+    public static boolean isVectorSupported() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Carga el nucleo vectorizado si el modulo de la Vector API esta presente y el nucleo se compilo.
+     *
+     * @return el nucleo vectorizado, o null si no esta disponible.
+     */
+    private static EntityKernel loadVectorKernel() {
+        Optional<Module> vector = ModuleLayer.boot().findModule("jdk.incubator.vector");
+        if (vector.isEmpty()) return null;
+        // El modulo de la aplicacion no declara el modulo incubador, asi que la lectura se agrega en tiempo de ejecucion
+        EntityStore.class.getModule().addReads(vector.get());
+        try {
+            return (EntityKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null; // Compilado sin el perfil vector
+        }
+    }
+
+    /**
+     * Activa o desactiva la actualizacion vectorizada.
+     *
+     * @param vectorized true para actualizar con la Vector API o false para usar la version escalar.
+     * @throws IllegalStateException si se intenta activar y la Vector API no esta disponible.
+     */
+    public void setVectorized(boolean vectorized) {
+        if (vectorized && VECTOR == null) throw new IllegalStateException(
+                "The Vector API is not available, build with -Pvector and start the JVM with --add-modules jdk.incubator.vector!");
+        this.vectorized = vectorized;
+    }
+
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    /**
+     * <p>
+     * Actualiza la entidad de un indice: guarda el estado anterior para la interpolacion, aplica el arrastre y suma la velocidad
+     * a la posicion y la velocidad angular a la rotacion.
+     * <p>
+     * La actualizacion de la posicion es una suma vectorial: el vector de posicion ({@code x}, {@code y}) define la ubicacion
+     * actual en pixeles desde la esquina superior izquierda de la pantalla, y el vector de desplazamiento ({@code velocityX},
+     * {@code velocityY}) define el cambio de posicion por paso, generado en {@link #applyThrust(int, float)} a partir de la
+     * magnitud del empuje y la direccion de la rotacion. La posicion final es la posicion inicial mas el desplazamiento, componente
+     * a componente.
+     *
+     * @param i indice de la entidad.
+     */
+    void update(int i) {
+        // Guarda el estado anterior para poder interpolar el renderizado entre dos pasos de simulacion
+        previousX[i] = x[i];
+        previousY[i] = y[i];
+        previousRotation[i] = rotation[i];
+        applyDrag(i);
+        x[i] += velocityX[i];
+        y[i] += velocityY[i];
+        rotation[i] += angularVelocity[i];
+    }
+
+    /**
+     * <p>
+     * Simula la friccion o resistencia que experimenta la entidad cuando "frena". Su proposito es reducir gradualmente la
+     * velocidad de movimiento y la velocidad de rotacion. Utiliza diferentes valores de arrastre dependiendo de la velocidad
+     * actual, lo que resulta en un comportamiento mas realista donde el arrastre es mas pronunciado a altas velocidades.
+     * <p>
+     * Si la entidad se mueve rapido (valor alto), la reduccion sera mas notable. Si la entidad se mueve lento (valor bajo), la
+     * reduccion sera menor. Cuando la velocidad es muy baja (menor que el modificador), el movimiento se detiene completamente.
+     * <p>
+     * Al establecer valores muy pequeños directamente a cero, se evitan micro-movimientos o vibraciones no deseadas cuando la
+     * entidad esta casi detenida.
+     * <p>
+     * Implementacion:
+     * <ul>
+     * <li>Para el movimiento lineal:
+     *  <ul>
+     *     <li>Si la magnitud de la velocidad es menor que 0.5, se aplica un arrastre suave de 0.01</li>
+     *     <li>Si la magnitud es mayor o igual a 0.5, se aplica un arrastre mas fuerte de 0.07</li>
+     *     </ul>
+     * </li>
+     * <li>Para la rotacion:
+     *     <ul>
+     *     <li>Si la velocidad de rotacion es menor que 0.2, se aplica un arrastre de 0.05</li>
+     *     <li>Si la velocidad de rotacion es mayor o igual a 0.2, se aplica un arrastre de 0.1</li>
+     *     </ul>
+     * </li>
+     * <li>La funcion reduceTowardsZero() se aplica a cada componente (X e Y) de la velocidad y a la velocidad de rotacion.
+     * </ul>
+     */
+    private void applyDrag(int i) {
+        float vx = velocityX[i], vy = velocityY[i];
+        // Compara la magnitud al cuadrado para evitar la raiz cuadrada (0.5 * 0.5 = 0.25)
+        float velocityDrag = vx * vx + vy * vy < 0.25f ? 0.01f : 0.07f;
+        float rotationDrag = angularVelocity[i] < 0.2f ? 0.05f : 0.1f;
+        velocityX[i] = reduceTowardsZero(vx, velocityDrag);
+        velocityY[i] = reduceTowardsZero(vy, velocityDrag);
+        angularVelocity[i] = reduceTowardsZero(angularVelocity[i], rotationDrag);
+    }
+
+    /**
+     * Reduce gradualmente un valor hacia cero.
+     *
+     * @param value    valor actual que se quiere reducir.
+     * @param modifier cantidad por la que se quiere reducir el valor.
+     * @return el nuevo valor despues de aplicar la reduccion.
+     */
+    static float reduceTowardsZero(float value, float modifier) {
+        float newValue = 0; // Si value esta entre -modifier y modifier, el resultado es 0
+        if (value > modifier) newValue = value - modifier;
+        else if (value < -modifier) newValue = value + modifier;
+        return newValue;
+    }
+
+    /**
+     * Suma rotacion a la velocidad angular de una entidad, limitada a {@code MAX_ROTATION_SPEED} en ambos sentidos.
+     *
+     * @param i        indice de la entidad.
+     * @param rotation rotacion a aplicar (positiva en sentido horario).
+     */
+    void applyRotation(int i, float rotation) {
+        float newRotationSpeed = angularVelocity[i] + rotation;
+        if (rotation > 0) angularVelocity[i] = Math.min(newRotationSpeed, MAX_ROTATION_SPEED); // Rotacion en sentido horario
+        else angularVelocity[i] = Math.max(newRotationSpeed, -MAX_ROTATION_SPEED); // Rotacion en sentido antihorario
+    }
+
+    /**
+     * Suma empuje a la velocidad de una entidad en la direccion de su rotacion, y limita la magnitud resultante a
+     * {@code MAX_SPEED}. La rotacion se convierte a radianes y se niega para ajustarla al sistema de coordenadas de la pantalla.
+     *
+     * @param i      indice de la entidad.
+     * @param thrust empuje a aplicar.
+     */
+    void applyThrust(int i, float thrust) {
+        double radians = Math.toRadians(-rotation[i]);
+        // Conversion de coordenadas polares (magnitud thrust, direccion radians) a un vector cartesiano
+        float vx = velocityX[i] + (float) (Math.sin(radians) * thrust);
+        float vy = velocityY[i] + (float) (Math.cos(radians) * thrust);
+        float speed = (float) Math.sqrt(vx * vx + vy * vy);
+        if (speed > MAX_SPEED) {
+            /* Normaliza el vector (lo convierte en un vector unitario) y lo multiplica por el limite para conservar la direccion
+             * original mientras se ajusta su magnitud a los limites deseados. */
+            vx = vx / speed * MAX_SPEED;
+            vy = vy / speed * MAX_SPEED;
+        }
+        velocityX[i] = vx;
+        velocityY[i] = vy;
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        previousRotation = Arrays.copyOf(previousRotation, capacity);
+        angularVelocity = Arrays.copyOf(angularVelocity, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        transforms = Arrays.copyOf(transforms, capacity * Transforms.SIZE);
+        dirty = Arrays.copyOf(dirty, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        parentVersions = Arrays.copyOf(parentVersions, capacity);
+        resolvedFrames = Arrays.copyOf(resolvedFrames, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+}
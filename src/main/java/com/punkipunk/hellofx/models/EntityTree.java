@@ -0,0 +1,163 @@
+package com.punkipunk.hellofx.models;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.punkipunk.hellofx.collision.DynamicTree;
+
+/**
+ * <p>
+ * Indice espacial de las entidades de un {@link World}, construido sobre un {@link DynamicTree}.
+ * <p>
+ * Permite buscar las entidades dentro de una caja (por ejemplo, el area visible) o de un radio alrededor de un punto, y lanzar
+ * rayos para armas de impacto instantaneo. El arbol se mantiene de forma incremental: despues de cada paso se comprueba si cada
+ * entidad sigue dentro de su caja gorda, y solo las que salieron se vuelven a insertar, por lo que las entidades que casi no se
+ * mueven no cuestan nada.
+ * <p>
+ * Las consultas comprueban la caja exacta (escalada y sin rotar) de cada candidato, asi que los resultados no incluyen falsos
+ * positivos de las cajas gordas. Las entidades unidas a otra usan la caja en el mundo de su imagen (ver
+ * {@link EntityStore#bounds(int, float[])}). Una consulta no se puede hacer desde el callback de otra.
+ */
+
+public class EntityTree {
+
+    private static final float MARGIN = 8; // Margen de las cajas gordas en pixeles
+
+    private final World world;
+    private final EntityStore store;
+    private final DynamicTree tree = new DynamicTree(MARGIN);
+    private int[] proxies = new int[64]; // Id de entidad -> hoja del arbol
+    private final float[] bounds = new float[4]; // Caja en el mundo de la entidad en curso
+
+    // Estado de la consulta en curso, para que los callbacks no capturen variables y no se cree un objeto por consulta
+    private Consumer<Entity> action;
+    private float queryMinX, queryMinY, queryMaxX, queryMaxY, queryX, queryY, queryRadius;
+    private float rayX, rayY, rayDx, rayDy;
+    private int closestId;
+    private final DynamicTree.QueryCallback boxCallback = this::visitBox;
+    private final DynamicTree.QueryCallback radiusCallback = this::visitRadius;
+    private final DynamicTree.RaycastCallback rayCallback = this::visitRay;
+
+    EntityTree(World world) {
+        this.world = world;
+        store = world.getStore();
+        for (Entity entity : world.getEntities()) add(entity);
+    }
+
+    void add(Entity entity) {
+        int id = entity.getId(), i = entity.index();
+        if (id >= proxies.length) proxies = Arrays.copyOf(proxies, Math.max(id + 1, proxies.length * 2));
+        store.bounds(i, bounds);
+        proxies[id] = tree.createProxy(bounds[0], bounds[1], bounds[2], bounds[3], id);
+    }
+
+    void remove(Entity entity) {
+        tree.destroyProxy(proxies[entity.getId()]);
+    }
+
+    /**
+     * Vuelve a insertar las entidades que salieron de su caja gorda.
+     */
+    void update() {
+        for (int i = 0; i < store.size(); i++) {
+            store.bounds(i, bounds);
+            // La velocidad de una entidad unida es relativa a su padre, asi que no anticipa su movimiento en el mundo
+            boolean attached = store.getParent(store.idAt(i)) >= 0;
+            tree.moveProxy(proxies[store.idAt(i)], bounds[0], bounds[1], bounds[2], bounds[3], attached ? 0 : store.velocityX[i],
+                    attached ? 0 : store.velocityY[i]);
+        }
+    }
+
+    /**
+     * Busca las entidades cuya caja toca una zona.
+     *
+     * @param minX   limite izquierdo de la zona.
+     * @param minY   limite superior de la zona.
+     * @param maxX   limite derecho de la zona.
+     * @param maxY   limite inferior de la zona.
+     * @param action accion a ejecutar con cada entidad encontrada.
+     */
+    public void queryBox(float minX, float minY, float maxX, float maxY, Consumer<Entity> action) {
+        this.action = action;
+        queryMinX = minX;
+        queryMinY = minY;
+        queryMaxX = maxX;
+        queryMaxY = maxY;
+        tree.query(minX, minY, maxX, maxY, boxCallback);
+        this.action = null;
+    }
+
+    /**
+     * Busca las entidades cuya caja esta a una distancia de un punto menor o igual que un radio.
+     *
+     * @param x      coordenada x del centro.
+     * @param y      coordenada y del centro.
+     * @param radius radio de busqueda.
+     * @param action accion a ejecutar con cada entidad encontrada.
+     */
+    public void queryRadius(float x, float y, float radius, Consumer<Entity> action) {
+        this.action = action;
+        queryX = x;
+        queryY = y;
+        queryRadius = radius;
+        tree.query(x - radius, y - radius, x + radius, y + radius, radiusCallback);
+        this.action = null;
+    }
+
+    /**
+     * Lanza un rayo de {@code (x1, y1)} a {@code (x2, y2)} y obtiene la primera entidad que cruza.
+     *
+     * @param x1 origen del rayo en la coordenada x.
+     * @param y1 origen del rayo en la coordenada y.
+     * @param x2 fin del rayo en la coordenada x.
+     * @param y2 fin del rayo en la coordenada y.
+     * @return la entidad mas cercana al origen que toca el rayo, o null si no toca ninguna.
+     */
+    public Entity raycast(float x1, float y1, float x2, float y2) {
+        rayX = x1;
+        rayY = y1;
+        rayDx = x2 - x1;
+        rayDy = y2 - y1;
+        closestId = -1;
+        tree.raycast(x1, y1, x2, y2, rayCallback);
+        return closestId < 0 ? null : entity(closestId);
+    }
+
+    /**
+     * Obtiene la altura del arbol, que crece de forma logaritmica con la cantidad de entidades.
+     *
+     * @return la altura del arbol.
+     */
+    public int getHeight() {
+        return tree.getHeight();
+    }
+
+    private boolean visitBox(int id) {
+        store.bounds(store.indexOf(id), bounds);
+        if (bounds[0] <= queryMaxX && queryMinX <= bounds[2] && bounds[1] <= queryMaxY && queryMinY <= bounds[3])
+            action.accept(entity(id));
+        return true;
+    }
+
+    private boolean visitRadius(int id) {
+        store.bounds(store.indexOf(id), bounds);
+        // Distancia del centro al punto mas cercano de la caja
+        float dx = queryX - Math.max(bounds[0], Math.min(queryX, bounds[2]));
+        float dy = queryY - Math.max(bounds[1], Math.min(queryY, bounds[3]));
+        if (dx * dx + dy * dy <= queryRadius * queryRadius) action.accept(entity(id));
+        return true;
+    }
+
+    private float visitRay(int id, float maxFraction) {
+        store.bounds(store.indexOf(id), bounds);
+        float fraction = DynamicTree.intersectSegment(rayX, rayY, rayDx, rayDy, maxFraction, bounds[0], bounds[1], bounds[2], bounds[3]);
+        if (fraction < 0) return maxFraction; // Solo toco la caja gorda
+        closestId = id;
+        return fraction;
+    }
+
+    private Entity entity(int id) {
+        return world.getEntities().get(store.indexOf(id));
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.punkipunk.hellofx.models;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Actualiza las entidades de un {@link EntityStore} repartiendolas en bloques entre los hilos de un {@link ForkJoinPool}.
+ * <p>
+ * El rango de indices se divide recursivamente a la mitad hasta llegar a bloques de {@code chunkSize} entidades, y cada bloque
+ * se integra con {@code EntityStore.integrate(int, int)}. Como cada entidad solo lee y escribe su propio indice en los arreglos del
+ * almacen, los bloques no comparten datos y el resultado es identico bit a bit al de la actualizacion secuencial, sin importar
+ * cuantos hilos participen ni en que orden terminen.
+ * <p>
+ * Repartir el trabajo tiene un costo fijo (crear las tareas y despertar a los hilos), asi que por debajo de {@code threshold}
+ * entidades la actualizacion se hace en el hilo que llama.
+ */
+
+public class ParallelIntegrator {
+
+    public static final int DEFAULT_THRESHOLD = 8192;
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int chunkSize;
+
+    /**
+     * Crea un integrador que usa el pool comun con el umbral y el tamaño de bloque por defecto.
+     */
+    public ParallelIntegrator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Crea un integrador.
+     *
+     * @param pool      pool en el que se ejecutan los bloques.
+     * @param threshold cantidad minima de entidades para repartir el trabajo.
+     * @param chunkSize cantidad maxima de entidades por bloque.
+     * @throws IllegalArgumentException si el pool es nulo, el umbral es negativo o el tamaño de bloque no es positivo.
+     */
+    public ParallelIntegrator(ForkJoinPool pool, int threshold, int chunkSize) {
+        if (pool == null) throw new IllegalArgumentException("The pool cannot be null!");
+        if (threshold < 0) throw new IllegalArgumentException("The threshold cannot be negative!");
+        if (chunkSize <= 0) throw new IllegalArgumentException("The chunk size must be positive!");
+        this.pool = pool;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Actualiza todas las entidades del almacen y espera a que terminen todos los bloques.
+     *
+     * @param store almacen a actualizar.
+     */
+    public void update(EntityStore store) {
+        int size = store.size();
+        if (size < threshold || pool.getParallelism() == 1) store.update();
+        else {
+            store.modified(); // Una sola vez, antes de que los bloques se actualicen en paralelo
+            pool.invoke(new Chunk(store, 0, size));
+        }
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Rango de indices a actualizar, que se divide a la mitad hasta alcanzar el tamaño de bloque.
+     */
+    @SuppressWarnings("serial") // Las tareas nunca se serializan
+    private class Chunk extends RecursiveAction {
+
+        private final EntityStore store;
+        private final int from, to;
+
+        Chunk(EntityStore store, int from, int to) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                store.integrate(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(store, from, middle), new Chunk(store, middle, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.punkipunk.hellofx.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>
+ * Conjunto de proyectiles con capacidad fija, preasignado al crearse.
+ * <p>
+ * Los proyectiles son muchos, viven poco y no necesitan identidad propia, por lo que no son entidades: su estado se guarda en
+ * arreglos primitivos paralelos, igual que en {@link EntityStore}, empaquetados en los indices {@code [0, count)}. La parte
+ * {@code [count, capacity)} de los arreglos funciona como lista libre: crear un proyectil ocupa el primer lugar libre y eliminar
+ * uno mueve el ultimo a su lugar, ambos en O(1). Como los arreglos nunca crecen, disparar de forma continua no genera basura;
+ * cuando el conjunto esta lleno, los disparos nuevos simplemente se descartan.
+ * <p>
+ * Cada proyectil se elimina al cumplir su tiempo de vida (en pasos de simulacion) o al salir de los limites establecidos con
+ * {@link #setBounds(float, float, float, float)}.
+ */
+
+public class ProjectilePool {
+
+    float[] x, y;
+    float[] previousX, previousY;
+    float[] velocityX, velocityY;
+    int[] age, lifetime;
+
+    private int count;
+    // Limites fuera de los cuales se eliminan los proyectiles, sin limites por defecto
+    private float minX = Float.NEGATIVE_INFINITY, minY = Float.NEGATIVE_INFINITY;
+    private float maxX = Float.POSITIVE_INFINITY, maxY = Float.POSITIVE_INFINITY;
+
+    /**
+     * Crea un conjunto de proyectiles.
+     *
+     * @param capacity cantidad maxima de proyectiles vivos al mismo tiempo.
+     * @throws IllegalArgumentException si la capacidad no es positiva.
+     */
+    public ProjectilePool(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive!");
+        x = new float[capacity];
+        y = new float[capacity];
+        previousX = new float[capacity];
+        previousY = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        age = new int[capacity];
+        lifetime = new int[capacity];
+    }
+
+    /**
+     * Crea un proyectil.
+     *
+     * @param x         posicion inicial en la coordenada x.
+     * @param y         posicion inicial en la coordenada y.
+     * @param velocityX desplazamiento por paso en la coordenada x.
+     * @param velocityY desplazamiento por paso en la coordenada y.
+     * @param lifetime  pasos de simulacion que vive el proyectil.
+     * @return true si se creo el proyectil o false si el conjunto esta lleno.
+     */
+    public boolean spawn(float x, float y, float velocityX, float velocityY, int lifetime) {
+        if (count == this.x.length) return false;
+        int i = count++;
+        this.x[i] = previousX[i] = x;
+        this.y[i] = previousY[i] = y;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+        age[i] = 0;
+        this.lifetime[i] = lifetime;
+        return true;
+    }
+
+    /**
+     * Avanza todos los proyectiles un paso y elimina los que cumplieron su tiempo de vida o salieron de los limites.
+     */
+    public void update() {
+        int i = 0;
+        while (i < count) {
+            previousX[i] = x[i];
+            previousY[i] = y[i];
+            float nx = x[i] += velocityX[i];
+            float ny = y[i] += velocityY[i];
+            // Al eliminar, el ultimo proyectil (todavia sin actualizar) ocupa el indice i y se procesa en la siguiente vuelta
+            if (++age[i] >= lifetime[i] || nx < minX || nx > maxX || ny < minY || ny > maxY) remove(i);
+            else i++;
+        }
+    }
+
+    /**
+     * Elimina el proyectil de un indice moviendo el ultimo a su lugar.
+     *
+     * @param index indice del proyectil.
+     */
+    public void remove(int index) {
+        int last = --count;
+        if (index == last) return;
+        x[index] = x[last];
+        y[index] = y[last];
+        previousX[index] = previousX[last];
+        previousY[index] = previousY[last];
+        velocityX[index] = velocityX[last];
+        velocityY[index] = velocityY[last];
+        age[index] = age[last];
+        lifetime[index] = lifetime[last];
+    }
+
+    /**
+     * Elimina todos los proyectiles.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Establece los limites fuera de los cuales se eliminan los proyectiles, normalmente el area visible mas un margen.
+     *
+     * @param minX limite izquierdo.
+     * @param minY limite superior.
+     * @param maxX limite derecho.
+     * @param maxY limite inferior.
+     */
+    public void setBounds(float minX, float minY, float maxX, float maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Copia los proyectiles vivos de otro conjunto, reutilizando los arreglos de este. Se usa para publicar los proyectiles en
+     * un {@link WorldSnapshot}.
+     *
+     * @param source conjunto a copiar.
+     */
+    void copyFrom(ProjectilePool source) {
+        if (x.length < source.x.length) {
+            int capacity = source.x.length;
+            x = new float[capacity];
+            y = new float[capacity];
+            previousX = new float[capacity];
+            previousY = new float[capacity];
+            velocityX = new float[capacity];
+            velocityY = new float[capacity];
+            age = new int[capacity];
+            lifetime = new int[capacity];
+        }
+        count = source.count;
+        System.arraycopy(source.x, 0, x, 0, count);
+        System.arraycopy(source.y, 0, y, 0, count);
+        System.arraycopy(source.previousX, 0, previousX, 0, count);
+        System.arraycopy(source.previousY, 0, previousY, 0, count);
+    }
+
+    /**
+     * Escribe los limites y el estado de los proyectiles vivos para poder restaurarlo despues.
+     *
+     * @param out destino del estado.
+     * @throws IOException si falla la escritura.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeFloat(minX);
+        out.writeFloat(minY);
+        out.writeFloat(maxX);
+        out.writeFloat(maxY);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeFloat(x[i]);
+            out.writeFloat(y[i]);
+            out.writeFloat(previousX[i]);
+            out.writeFloat(previousY[i]);
+            out.writeFloat(velocityX[i]);
+            out.writeFloat(velocityY[i]);
+            out.writeInt(age[i]);
+            out.writeInt(lifetime[i]);
+        }
+    }
+
+    /**
+     * Restaura el estado escrito por {@link #writeState(DataOutput)}.
+     *
+     * @param in origen del estado.
+     * @throws IOException           si falla la lectura.
+     * @throws IllegalStateException si el estado tiene mas proyectiles que la capacidad del conjunto.
+     */
+    public void readState(DataInput in) throws IOException {
+        minX = in.readFloat();
+        minY = in.readFloat();
+        maxX = in.readFloat();
+        maxY = in.readFloat();
+        int count = in.readInt();
+        if (count > x.length)
+            throw new IllegalStateException("The state has " + count + " projectiles but the capacity is " + x.length + "!");
+        for (int i = 0; i < count; i++) {
+            x[i] = in.readFloat();
+            y[i] = in.readFloat();
+            previousX[i] = in.readFloat();
+            previousY[i] = in.readFloat();
+            velocityX[i] = in.readFloat();
+            velocityY[i] = in.readFloat();
+            age[i] = in.readInt();
+            lifetime[i] = in.readInt();
+        }
+        this.count = count;
+    }
+
+    /**
+     * Obtiene la cantidad de proyectiles vivos.
+     *
+     * @return la cantidad de proyectiles.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    public float getX(int index, float alpha) {
+        return previousX[index] + (x[index] - previousX[index]) * alpha;
+    }
+
+    public float getY(int index, float alpha) {
+        return previousY[index] + (y[index] - previousY[index]) * alpha;
+    }
+
+}
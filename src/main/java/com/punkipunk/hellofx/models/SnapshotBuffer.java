@@ -0,0 +1,42 @@
+package com.punkipunk.hellofx.models;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Triple buffer sin bloqueos para pasar snapshots del mundo desde el hilo de simulacion al hilo de JavaFX.
+ * <p>
+ * Hay tres snapshots: el que esta escribiendo el hilo de simulacion ({@code back}), el que esta leyendo el renderizador
+ * ({@code front}) y el ultimo publicado ({@code ready}). Al publicar, el escritor intercambia {@code back} con {@code ready}; al
+ * adquirir, el lector intercambia {@code front} con {@code ready} solo si este es mas nuevo. Ninguno de los dos hilos espera al
+ * otro ni se crean objetos nuevos, y el lector siempre obtiene el snapshot completo mas reciente.
+ */
+
+public class SnapshotBuffer {
+
+    private final AtomicReference<WorldSnapshot> ready = new AtomicReference<>(new WorldSnapshot());
+    private WorldSnapshot back = new WorldSnapshot(); // Solo lo usa el hilo de simulacion
+    private WorldSnapshot front = new WorldSnapshot(); // Solo lo usa el hilo de renderizado
+
+    /**
+     * Copia el estado del mundo y lo publica para el renderizador. Solo debe llamarse desde el hilo de simulacion.
+     *
+     * @param world    mundo a publicar.
+     * @param sequence numero de paso de simulacion (debe crecer en cada publicacion).
+     */
+    public void publish(World world, long sequence) {
+        back.capture(world, sequence, System.nanoTime());
+        back = ready.getAndSet(back);
+    }
+
+    /**
+     * Obtiene el snapshot publicado mas reciente. Solo debe llamarse desde el hilo de renderizado.
+     *
+     * @return el snapshot mas reciente, valido hasta la siguiente llamada a este metodo.
+     */
+    public WorldSnapshot acquire() {
+        if (ready.get().getSequence() > front.getSequence()) front = ready.getAndSet(front);
+        return front;
+    }
+
+}
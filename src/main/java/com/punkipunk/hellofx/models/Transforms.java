@@ -0,0 +1,61 @@
+package com.punkipunk.hellofx.models;
+
+/**
+ * <p>
+ * Operaciones sobre transformaciones afines 2D guardadas como seis valores consecutivos de un {@code double[]}, en el mismo
+ * orden que recibe {@code GraphicsContext.setTransform()}: {@code mxx, myx, mxy, myy, tx, ty}.
+ * <p>
+ * Un punto {@code (x, y)} se transforma en {@code (mxx * x + mxy * y + tx, myx * x + myy * y + ty)}.
+ */
+
+final class Transforms {
+
+    static final int SIZE = 6;
+
+    private Transforms() {
+    }
+
+    /**
+     * Escribe una rotacion alrededor de un pivote, la misma matriz que un {@code Rotate(angle, pivotX, pivotY)}.
+     *
+     * @param m      destino.
+     * @param o      posicion de la transformacion en el destino.
+     * @param angle  angulo en grados (positivo en sentido horario).
+     * @param pivotX coordenada x del pivote.
+     * @param pivotY coordenada y del pivote.
+     */
+    static void rotation(double[] m, int o, double angle, double pivotX, double pivotY) {
+        double radians = Math.toRadians(angle);
+        double cos = Math.cos(radians), sin = Math.sin(radians);
+        m[o] = cos;
+        m[o + 1] = sin;
+        m[o + 2] = -sin;
+        m[o + 3] = cos;
+        m[o + 4] = pivotX - cos * pivotX + sin * pivotY;
+        m[o + 5] = pivotY - sin * pivotX - cos * pivotY;
+    }
+
+    /**
+     * Convierte una transformacion local en una transformacion del mundo: {@code m = parent * traslacion(x, y) * m}. La
+     * traslacion hace que la transformacion local sea relativa a la posicion del padre.
+     *
+     * @param m      transformacion local, que se reemplaza por el resultado.
+     * @param o      posicion de la transformacion local.
+     * @param parent transformacion del mundo del padre.
+     * @param p      posicion de la transformacion del padre.
+     * @param x      coordenada x de la posicion del padre.
+     * @param y      coordenada y de la posicion del padre.
+     */
+    static void attach(double[] m, int o, double[] parent, int p, double x, double y) {
+        double pxx = parent[p], pyx = parent[p + 1], pxy = parent[p + 2], pyy = parent[p + 3];
+        double ptx = pxx * x + pxy * y + parent[p + 4], pty = pyx * x + pyy * y + parent[p + 5];
+        double mxx = m[o], myx = m[o + 1], mxy = m[o + 2], myy = m[o + 3], tx = m[o + 4], ty = m[o + 5];
+        m[o] = pxx * mxx + pxy * myx;
+        m[o + 1] = pyx * mxx + pyy * myx;
+        m[o + 2] = pxx * mxy + pxy * myy;
+        m[o + 3] = pyx * mxy + pyy * myy;
+        m[o + 4] = pxx * tx + pxy * ty + ptx;
+        m[o + 5] = pyx * tx + pyy * ty + pty;
+    }
+
+}
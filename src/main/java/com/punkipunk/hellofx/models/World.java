@@ -0,0 +1,303 @@
+package com.punkipunk.hellofx.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+
+import com.punkipunk.hellofx.animation.TimerWheel;
+import com.punkipunk.hellofx.collision.PairCallback;
+import com.punkipunk.hellofx.collision.SpatialHash;
+import com.punkipunk.hellofx.controls.KeyPolling;
+import com.punkipunk.hellofx.profiling.EntityUpdateEvent;
+
+/**
+ * <p>
+ * Contiene el estado del juego y las reglas que lo actualizan en cada paso de simulacion.
+ * <p>
+ * Esta clase no necesita que el toolkit de JavaFX este inicializado: no usa {@code Canvas} ni {@code Scene}, de JavaFX solo
+ * usa {@code KeyCode} (un enum) para consultar las teclas, y la {@code Image} de cada entidad solo se guarda para el
+ * renderizador. Creando las entidades con {@link #spawn(double, double)}, la misma logica que ejecuta el {@code GameController}
+ * en cada tick se puede ejecutar tambien sin ventana, por ejemplo desde un {@code HeadlessLoop}.
+ * <p>
+ * El estado de las entidades vive en un {@link EntityStore} (arreglos primitivos paralelos), y las entidades se crean y eliminan
+ * con {@link #spawn(Image)} y {@link #despawn(Entity)}. La lista de entidades se mantiene alineada con los indices del almacen, de
+ * modo que {@code getEntities().get(i)} es siempre la entidad que ocupa el indice {@code i}.
+ */
+
+public class World {
+
+    private static final float THRUST = 20;
+    private static final float ROTATION = 90;
+    private static final double FIXED_TIME_STEP = 1.0 / 60.0;
+    private static final int MAX_PROJECTILES = 32768;
+    private static final int FIRE_COOLDOWN = 6; // Pasos de simulacion entre disparos del player
+    private static final float PROJECTILE_SPEED = 8; // Pixeles por paso
+    private static final int PROJECTILE_LIFETIME = 120; // Pasos de simulacion
+    private static final float PROJECTILE_RADIUS = 2; // Radio de la caja de colision de los proyectiles
+    private static final float COLLISION_CELL_SIZE = 64;
+    // Categorias de colision: los proyectiles solo chocan con las entidades, no entre si
+    private static final int ENTITY_CATEGORY = 1;
+    private static final int PROJECTILE_CATEGORY = 2;
+
+    /* Para configurar la clase KeyPolling, solo necesitamos configurar la escena que queremos rastrear en la clase principal.
+     * Como es estatica, podemos acceder a el facilmente desde el mundo, y como toda la logica esta correctamente encapsulada en
+     * la clase KeyPolling, ¡de lo unico que debemos preocuparnos es de preguntar si nuestras teclas de entrada de usuario estan
+     * presionadas actualmente! */
+    private final KeyPolling keys = KeyPolling.getInstance();
+    private final EntityStore store = new EntityStore();
+    private final List<Entity> entities = new ArrayList<>(); // Manejadores, en el mismo orden que los indices del almacen
+    private ParallelIntegrator integrator; // Null para actualizar las entidades en el hilo de simulacion
+    private final ProjectilePool projectiles = new ProjectilePool(MAX_PROJECTILES);
+    private int fireCooldown;
+    private final SpatialHash broadPhase = new SpatialHash(COLLISION_CELL_SIZE);
+    private PairCallback collisionListener;
+    private final float[] bounds = new float[4]; // Caja en el mundo de la entidad que se inserta en la fase amplia
+    private EntityTree entityTree; // Se crea la primera vez que se pide
+    private Entity player;
+    // Eventos programados en tiempo de juego; avanza un tick por paso de simulacion
+    private final TimerWheel timers = new TimerWheel(FIXED_TIME_STEP);
+
+    /**
+     * Crea una entidad con el tamaño de su imagen.
+     *
+     * @param image imagen de la entidad.
+     * @return la nueva entidad.
+     */
+    public Entity spawn(Image image) {
+        return spawn(image, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Crea una entidad sin imagen, util para ejecutar la simulacion sin el toolkit de JavaFX (por ejemplo, en benchmarks o
+     * pruebas en maquinas sin pantalla), ya que crear un {@code Image} requiere que el toolkit este inicializado.
+     *
+     * @param width  ancho de la entidad sin escalar.
+     * @param height alto de la entidad sin escalar.
+     * @return la nueva entidad.
+     */
+    public Entity spawn(double width, double height) {
+        return spawn(null, width, height);
+    }
+
+    private Entity spawn(Image image, double width, double height) {
+        Entity entity = new Entity(store, image, width, height);
+        entities.add(entity); // El almacen agrega la entidad al final, igual que la lista
+        if (entityTree != null) entityTree.add(entity);
+        return entity;
+    }
+
+    /**
+     * Elimina una entidad en O(1), moviendo la ultima entidad a su lugar tanto en el almacen como en la lista.
+     *
+     * @param entity entidad a eliminar.
+     * @throws IllegalArgumentException si la entidad ya fue eliminada.
+     */
+    public void despawn(Entity entity) {
+        int index = entity.index();
+        if (entityTree != null) entityTree.remove(entity);
+        // Las entidades unidas quedan sueltas, con su posicion local como absoluta
+        if (store.getChildCount(entity.getId()) > 0)
+            for (Entity child : entities)
+                if (child.getParent() == entity) child.detach();
+        store.remove(entity.getId());
+        Entity last = entities.remove(entities.size() - 1);
+        if (last != entity) entities.set(index, last);
+        if (entity == player) player = null;
+    }
+
+    /**
+     * Avanza el mundo un paso de simulacion.
+     *
+     * @param fixedDeltaTime tiempo fijo entre actualizaciones de fisica.
+     */
+    public void tick(float fixedDeltaTime) {
+        if (player != null) {
+            updatePlayerMovement(fixedDeltaTime);
+            updatePlayerWeapon();
+        }
+        updateEntities();
+        if (entityTree != null) entityTree.update();
+        projectiles.update();
+        if (collisionListener != null) detectCollisions();
+        timers.tick();
+    }
+
+    /**
+     * Actualiza todas las entidades, registrando el lote como evento de JFR.
+     */
+    private void updateEntities() {
+        EntityUpdateEvent event = new EntityUpdateEvent();
+        event.begin();
+        if (integrator == null) store.update();
+        else integrator.update(store);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = timers.getTick();
+            event.entityCount = store.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Aplica la entrada del usuario al player.
+     *
+     * @param fixedDeltaTime tiempo fijo entre actualizaciones de fisica.
+     */
+    private void updatePlayerMovement(float fixedDeltaTime) {
+        if (keys.isPressed(KeyCode.W)) player.applyThrust(THRUST * fixedDeltaTime);
+        else if (keys.isPressed(KeyCode.S)) player.applyThrust(-THRUST * fixedDeltaTime);
+        if (keys.isPressed(KeyCode.D)) player.applyRotation(ROTATION * fixedDeltaTime);
+        else if (keys.isPressed(KeyCode.A)) player.applyRotation(-ROTATION * fixedDeltaTime);
+    }
+
+    /**
+     * <p>
+     * Reconstruye la fase amplia de colisiones con la caja en el mundo de cada entidad y de cada proyectil, e informa los pares
+     * candidatos al listener.
+     * <p>
+     * Las entidades se identifican por su indice en el almacen ({@code [0, entidades)}) y los proyectiles por su indice mas la
+     * cantidad de entidades.
+     */
+    private void detectCollisions() {
+        broadPhase.clear();
+        int entityCount = store.size();
+        for (int i = 0; i < entityCount; i++) {
+            store.bounds(i, bounds);
+            broadPhase.insert(i, ENTITY_CATEGORY, ENTITY_CATEGORY | PROJECTILE_CATEGORY, bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+        for (int i = 0; i < projectiles.getCount(); i++) {
+            float x = projectiles.x[i], y = projectiles.y[i];
+            broadPhase.insert(entityCount + i, PROJECTILE_CATEGORY, ENTITY_CATEGORY, x - PROJECTILE_RADIUS, y - PROJECTILE_RADIUS,
+                    x + PROJECTILE_RADIUS, y + PROJECTILE_RADIUS);
+        }
+        broadPhase.forEachPair(collisionListener);
+    }
+
+    /**
+     * Dispara un proyectil desde el centro del player en la direccion de su empuje mientras se mantiene presionada la barra
+     * espaciadora, como maximo uno cada {@code FIRE_COOLDOWN} pasos.
+     */
+    private void updatePlayerWeapon() {
+        if (fireCooldown > 0) fireCooldown--;
+        if (fireCooldown > 0 || !keys.isPressed(KeyCode.SPACE)) return;
+        // Misma conversion de la rotacion que en EntityStore.applyThrust()
+        double radians = Math.toRadians(-player.getRotation());
+        float directionX = (float) Math.sin(radians), directionY = (float) Math.cos(radians);
+        if (projectiles.spawn(player.getCenterX(), player.getCenterY(), directionX * PROJECTILE_SPEED, directionY * PROJECTILE_SPEED,
+                PROJECTILE_LIFETIME)) fireCooldown = FIRE_COOLDOWN;
+    }
+
+    /**
+     * Escribe el estado de todas las entidades y proyectiles, en orden, y el tick de los temporizadores, para poder restaurarlo
+     * despues.
+     *
+     * @param out destino del estado.
+     * @throws IOException si falla la escritura.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(entities.size());
+        for (Entity entity : entities) entity.writeState(out);
+        projectiles.writeState(out);
+        out.writeInt(fireCooldown);
+        out.writeLong(timers.getTick());
+    }
+
+    /**
+     * Restaura el estado escrito por {@link #writeState(DataOutput)}. El mundo debe tener las mismas entidades, en el mismo
+     * orden, que cuando se escribio el estado. Los temporizadores no se guardan (sus callbacks no se pueden serializar): solo se
+     * restaura el tick, y los temporizadores programados conservan su tick de vencimiento.
+     *
+     * @param in origen del estado.
+     * @throws IOException           si falla la lectura.
+     * @throws IllegalStateException si la cantidad de entidades no coincide.
+     */
+    public void readState(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count != entities.size())
+            throw new IllegalStateException("The state has " + count + " entities but the world has " + entities.size() + "!");
+        for (Entity entity : entities) entity.readState(in);
+        projectiles.readState(in);
+        fireCooldown = in.readInt();
+        timers.setTick(in.readLong());
+        if (entityTree != null) entityTree.update();
+    }
+
+    public List<Entity> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Obtiene el servicio de temporizadores del mundo, que mide el tiempo en pasos de simulacion y por lo tanto no avanza
+     * mientras el juego esta en pausa.
+     *
+     * @return los temporizadores del mundo.
+     */
+    public TimerWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * Establece el listener que recibe, al final de cada paso, los pares de entidades y proyectiles cuyas cajas se superponen
+     * (los pares de dos proyectiles no se informan).
+     * Un id menor que {@code getStore().size()} es el indice de una entidad; el resto son indices de proyectil desplazados por la
+     * cantidad de entidades. Los indices solo son validos durante la llamada.
+     *
+     * @param collisionListener listener de colisiones, o null para no detectar colisiones.
+     */
+    public void setCollisionListener(PairCallback collisionListener) {
+        this.collisionListener = collisionListener;
+    }
+
+    /**
+     * Obtiene el indice espacial de las entidades para consultas por zona, por radio y raycasts. Se crea la primera vez que se
+     * pide y desde entonces se actualiza al final de cada paso.
+     *
+     * @return el indice espacial de las entidades.
+     */
+    public EntityTree getEntityTree() {
+        if (entityTree == null) entityTree = new EntityTree(this);
+        return entityTree;
+    }
+
+    public ProjectilePool getProjectiles() {
+        return projectiles;
+    }
+
+    /**
+     * Obtiene el almacen con el estado de las entidades.
+     *
+     * @return el almacen de entidades.
+     */
+    public EntityStore getStore() {
+        return store;
+    }
+
+    /**
+     * Establece el integrador con el que se actualizan las entidades en cada paso. Con un {@link ParallelIntegrator} las
+     * entidades se reparten entre varios hilos cuando son muchas, con el mismo resultado que la actualizacion secuencial.
+     *
+     * @param integrator integrador a usar, o null para actualizar las entidades en el hilo de simulacion.
+     */
+    public void setIntegrator(ParallelIntegrator integrator) {
+        this.integrator = integrator;
+    }
+
+    public Entity getPlayer() {
+        return player;
+    }
+
+    /**
+     * Establece la entidad controlada por la entrada del usuario.
+     *
+     * @param player entidad del player, o null si no hay player.
+     */
+    public void setPlayer(Entity player) {
+        this.player = player;
+    }
+
+}
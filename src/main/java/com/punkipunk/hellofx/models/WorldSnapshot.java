@@ -0,0 +1,192 @@
+package com.punkipunk.hellofx.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.image.Image;
+
+/**
+ * <p>
+ * Copia del estado visible del mundo en un paso de simulacion determinado.
+ * <p>
+ * Guarda, para cada entidad, la imagen, el tamaño escalado, el desplazamiento del centro y el estado anterior y actual de la
+ * posicion y rotacion, de modo que el renderizador pueda interpolar entre ambos sin leer las entidades mientras el hilo de
+ * simulacion las modifica. Los arreglos se reutilizan entre pasos y solo crecen cuando aumenta la cantidad de entidades, por lo
+ * que escribir un snapshot no genera basura en estado estable. Tambien guarda el indice del padre de cada entidad unida a otra,
+ * para componer su transformacion del mundo, y la entidad de cada indice, para que el renderizador recorra sus capas y busque
+ * cada entidad en el snapshot con {@link #indexOf(Entity)}.
+ * <p>
+ * Un snapshot solo debe ser modificado por el hilo que lo escribe hasta que se publica en un {@link SnapshotBuffer}.
+ */
+
+public class WorldSnapshot {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+    private int[] indicesById = new int[INITIAL_CAPACITY]; // Id de entidad -> indice en el snapshot, valido si entities coincide
+    private Image[] images = new Image[INITIAL_CAPACITY];
+    private float[] widths = new float[INITIAL_CAPACITY];
+    private float[] heights = new float[INITIAL_CAPACITY];
+    private float[] centerOffsetsX = new float[INITIAL_CAPACITY];
+    private float[] centerOffsetsY = new float[INITIAL_CAPACITY];
+    private float[] previousX = new float[INITIAL_CAPACITY];
+    private float[] previousY = new float[INITIAL_CAPACITY];
+    private float[] previousRotations = new float[INITIAL_CAPACITY];
+    private float[] currentX = new float[INITIAL_CAPACITY];
+    private float[] currentY = new float[INITIAL_CAPACITY];
+    private float[] currentRotations = new float[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY]; // Indice del padre en el snapshot, o -1
+    private final double[] local = new double[Transforms.SIZE]; // Transformacion local de un ancestro, reutilizada
+
+    private final ProjectilePool projectiles = new ProjectilePool(1);
+    private int count;
+    private long sequence; // Numero de paso de simulacion, crece con cada publicacion
+    private long timestamp; // Momento (System.nanoTime()) en que se escribio el snapshot
+
+    /**
+     * Copia el estado de las entidades del mundo en este snapshot.
+     *
+     * @param world     mundo a copiar.
+     * @param sequence  numero de paso de simulacion.
+     * @param timestamp momento en que se completo el paso.
+     */
+    void capture(World world, long sequence, long timestamp) {
+        EntityStore store = world.getStore();
+        List<Entity> entities = world.getEntities();
+        count = store.size();
+        while (images.length < count) grow();
+        // Copia directa desde los arreglos del almacen, sin crear un Point2D por entidad
+        for (int i = 0; i < count; i++) {
+            Entity entity = entities.get(i);
+            int id = entity.getId();
+            if (id >= indicesById.length) indicesById = Arrays.copyOf(indicesById, Math.max(id + 1, indicesById.length * 2));
+            indicesById[id] = i;
+            this.entities[i] = entity;
+            images[i] = entity.getImage();
+            widths[i] = store.width[i] * store.scale[i];
+            heights[i] = store.height[i] * store.scale[i];
+            centerOffsetsX[i] = store.width[i] / 2;
+            centerOffsetsY[i] = store.height[i] / 2;
+            previousX[i] = store.previousX[i];
+            previousY[i] = store.previousY[i];
+            previousRotations[i] = store.previousRotation[i];
+            currentX[i] = store.x[i];
+            currentY[i] = store.y[i];
+            currentRotations[i] = store.rotation[i];
+            int parent = store.getParent(store.idAt(i));
+            parents[i] = parent < 0 ? -1 : store.indexOf(parent);
+        }
+        // Libera las entidades y sus imagenes cuando ya no existen
+        for (int i = count; i < images.length && this.entities[i] != null; i++) {
+            this.entities[i] = null;
+            images[i] = null;
+        }
+        projectiles.copyFrom(world.getProjectiles());
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+
+    private void grow() {
+        int capacity = images.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        images = Arrays.copyOf(images, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        centerOffsetsX = Arrays.copyOf(centerOffsetsX, capacity);
+        centerOffsetsY = Arrays.copyOf(centerOffsetsY, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        previousRotations = Arrays.copyOf(previousRotations, capacity);
+        currentX = Arrays.copyOf(currentX, capacity);
+        currentY = Arrays.copyOf(currentY, capacity);
+        currentRotations = Arrays.copyOf(currentRotations, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+    }
+
+    /**
+     * Obtiene la copia de los proyectiles vivos en este paso, que solo contiene sus posiciones.
+     *
+     * @return los proyectiles del snapshot.
+     */
+    public ProjectilePool getProjectiles() {
+        return projectiles;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Busca una entidad en el snapshot.
+     *
+     * @param entity entidad a buscar.
+     * @return el indice de la entidad, o -1 si no existia en este paso.
+     */
+    public int indexOf(Entity entity) {
+        int id = entity.getId();
+        if (id >= indicesById.length) return -1;
+        // La entrada puede ser de un paso anterior, o de otra entidad que uso el mismo id
+        int index = indicesById[id];
+        return entities[index] == entity ? index : -1;
+    }
+
+    public Image getImage(int index) {
+        return images[index];
+    }
+
+    public float getWidth(int index) {
+        return widths[index];
+    }
+
+    public float getHeight(int index) {
+        return heights[index];
+    }
+
+    public float getX(int index, float alpha) {
+        return previousX[index] + (currentX[index] - previousX[index]) * alpha;
+    }
+
+    public float getY(int index, float alpha) {
+        return previousY[index] + (currentY[index] - previousY[index]) * alpha;
+    }
+
+    public float getCenterX(int index, float alpha) {
+        return getX(index, alpha) + centerOffsetsX[index];
+    }
+
+    public float getCenterY(int index, float alpha) {
+        return getY(index, alpha) + centerOffsetsY[index];
+    }
+
+    public float getRotation(int index, float alpha) {
+        return previousRotations[index] + (currentRotations[index] - previousRotations[index]) * alpha;
+    }
+
+    /**
+     * Calcula la transformacion del mundo con la que se dibuja la imagen de una entidad en {@code (getX(), getY())}: la rotacion
+     * alrededor de su centro, precedida por la de cada ancestro trasladada a la posicion de su hijo. Solo debe llamarse desde un
+     * hilo a la vez.
+     *
+     * @param index indice de la entidad.
+     * @param alpha factor de interpolacion entre 0 (estado anterior) y 1 (estado actual).
+     * @param out   destino de los seis valores {@code mxx, myx, mxy, myy, tx, ty}.
+     */
+    public void getTransform(int index, float alpha, double[] out) {
+        Transforms.rotation(out, 0, getRotation(index, alpha), getCenterX(index, alpha), getCenterY(index, alpha));
+        // Sube por los ancestros: W = L(padre) * T(padre) * W, hasta llegar a una entidad sin padre
+        for (int parent = parents[index]; parent >= 0; parent = parents[parent]) {
+            Transforms.rotation(local, 0, getRotation(parent, alpha), getCenterX(parent, alpha), getCenterY(parent, alpha));
+            Transforms.attach(out, 0, local, 0, getX(parent, alpha), getY(parent, alpha));
+        }
+    }
+
+}
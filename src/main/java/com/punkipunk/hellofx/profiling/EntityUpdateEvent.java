@@ -0,0 +1,26 @@
+package com.punkipunk.hellofx.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento de JDK Flight Recorder que cubre la actualizacion de todas las entidades del mundo en un paso de simulacion.
+ */
+
+@Name("com.punkipunk.hellofx.EntityUpdate")
+@Label("Entity Update")
+@Category({"HelloFX", "Simulation"})
+@Description("Actualizacion en lote de las entidades del mundo")
+public class EntityUpdateEvent extends Event {
+
+    @Label("Tick")
+    @Description("Numero de paso de simulacion del mundo")
+    public long tick;
+
+    @Label("Entity Count")
+    public int entityCount;
+
+}
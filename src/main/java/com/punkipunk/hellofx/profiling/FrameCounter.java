@@ -0,0 +1,31 @@
+package com.punkipunk.hellofx.profiling;
+
+/**
+ * <p>
+ * Numero del frame actual, compartido por los eventos de JFR para poder relacionar las fases de un mismo frame.
+ * <p>
+ * Lo incrementa el {@code GameLoop} al comenzar cada pulso y lo leen el resto de las fases. Solo se usa con fines de diagnostico,
+ * por lo que no se sincroniza.
+ */
+
+public final class FrameCounter {
+
+    private static long frame;
+
+    private FrameCounter() {
+    }
+
+    /**
+     * Avanza al siguiente frame.
+     *
+     * @return el numero del nuevo frame.
+     */
+    public static long next() {
+        return ++frame;
+    }
+
+    public static long current() {
+        return frame;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.punkipunk.hellofx.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>
+ * Evento de JDK Flight Recorder que cubre un pulso completo de {@code GameLoop.handle()}.
+ * <p>
+ * Junto con {@link TickEvent}, {@link EntityUpdateEvent}, {@link PrepareEvent} y {@link RenderEvent} permite ver en una
+ * grabacion que fase de cada frame se hizo mas lenta. Los eventos deshabilitados no cuestan practicamente nada: JFR elimina su
+ * cuerpo cuando no hay una grabacion activa, y los campos solo se completan si {@code shouldCommit()} es verdadero.
+ * <p>
+ * Para grabar con la configuracion del proyecto:
+ * <pre>{@code
+ * -XX:StartFlightRecording:settings=src/main/resources/jfr/hellofx.jfc,filename=hellofx.jfr
+ * }</pre>
+ */
+
+@Name("com.punkipunk.hellofx.Loop")
+@Label("Game Loop Pulse")
+@Category({"HelloFX", "Loop"})
+@Description("Un pulso completo del GameLoop")
+public class LoopEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Simulation Steps")
+    @Description("Pasos de simulacion de duracion fija ejecutados en este pulso")
+    public int steps;
+
+}
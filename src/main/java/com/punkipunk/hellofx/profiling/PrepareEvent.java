@@ -0,0 +1,22 @@
+package com.punkipunk.hellofx.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento de JDK Flight Recorder que cubre {@code Renderer.prepare()}.
+ */
+
+@Name("com.punkipunk.hellofx.Prepare")
+@Label("Renderer Prepare")
+@Category({"HelloFX", "Rendering"})
+@Description("Limpieza del canvas antes de dibujar el frame")
+public class PrepareEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+}
@@ -0,0 +1,29 @@
+package com.punkipunk.hellofx.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento de JDK Flight Recorder que cubre {@code Renderer.render()}.
+ */
+
+@Name("com.punkipunk.hellofx.Render")
+@Label("Renderer Render")
+@Category({"HelloFX", "Rendering"})
+@Description("Dibujo del fondo y de las entidades en el canvas")
+public class RenderEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Entity Count")
+    public int entityCount;
+
+    @Label("Draw Count")
+    @Description("Llamadas a drawImage realizadas en el frame")
+    public int drawCount;
+
+}
@@ -0,0 +1,26 @@
+package com.punkipunk.hellofx.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento de JDK Flight Recorder que cubre una llamada al callback de simulacion ({@code GameLoopCallback.tick()}).
+ */
+
+@Name("com.punkipunk.hellofx.Tick")
+@Label("Simulation Tick")
+@Category({"HelloFX", "Loop"})
+@Description("Un paso de simulacion ejecutado por el GameLoop")
+public class TickEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Step")
+    @Description("Indice del paso dentro del pulso")
+    public int step;
+
+}
@@ -0,0 +1,43 @@
+package com.punkipunk.hellofx.rendering;
+
+import javafx.scene.image.Image;
+
+/**
+ * Ubicacion de una imagen dentro de una pagina de un {@link TextureAtlas}. Se dibuja con la variante de {@code drawImage()}
+ * que recibe el rectangulo de origen.
+ */
+
+public final class AtlasRegion {
+
+    private final Image page;
+    private final int x, y, width, height;
+
+    AtlasRegion(Image page, int x, int y, int width, int height) {
+        this.page = page;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public Image getPage() {
+        return page;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.punkipunk.hellofx.rendering;
+
+/**
+ * <p>
+ * Camara 2D que define que parte del mundo se ve en el canvas. Tiene una posicion (el punto del mundo que queda en el centro del
+ * canvas), un zoom y una rotacion en grados.
+ * <p>
+ * La transformacion de vista lleva coordenadas del mundo a coordenadas de pantalla:
+ * <pre>{@code
+ * pantalla = T(ancho / 2, alto / 2) * S(zoom) * R(-rotacion) * T(-x, -y) * mundo
+ * }</pre>
+ * Girar la camara en un sentido hace girar el mundo en el contrario. La matriz se recalcula solo cuando cambia la camara o el
+ * tamaño del canvas, y se guarda en el mismo orden que recibe {@code GraphicsContext.setTransform()}.
+ */
+
+public class Camera {
+
+    private double x, y;
+    private double zoom = 1;
+    private double rotation;
+
+    private final double[] view = new double[6];
+    private double viewWidth = -1, viewHeight = -1;
+    private boolean dirty = true;
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Mueve la camara a un punto del mundo, que queda en el centro del canvas.
+     *
+     * @param x coordenada x del mundo.
+     * @param y coordenada y del mundo.
+     */
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+        dirty = true;
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Establece el zoom de la camara. Con un zoom de 2 cada pixel del mundo ocupa dos pixeles de pantalla.
+     *
+     * @param zoom factor de escala, mayor que cero.
+     * @throws IllegalArgumentException si el zoom no es positivo.
+     */
+    public void setZoom(double zoom) {
+        if (!(zoom > 0)) throw new IllegalArgumentException("The zoom must be greater than 0!");
+        this.zoom = zoom;
+        dirty = true;
+    }
+
+    public double getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Establece la rotacion de la camara en grados, en sentido horario.
+     *
+     * @param rotation angulo en grados.
+     */
+    public void setRotation(double rotation) {
+        this.rotation = rotation;
+        dirty = true;
+    }
+
+    /**
+     * Obtiene la transformacion de vista para un canvas de un tamaño dado, recalculandola si la camara o el tamaño cambiaron.
+     *
+     * @param width  ancho del canvas.
+     * @param height alto del canvas.
+     * @return la matriz {@code mxx, myx, mxy, myy, tx, ty}, que no debe modificarse.
+     */
+    double[] getView(double width, double height) {
+        if (dirty || width != viewWidth || height != viewHeight) {
+            double radians = Math.toRadians(-rotation);
+            double cos = Math.cos(radians) * zoom, sin = Math.sin(radians) * zoom;
+            view[0] = cos;
+            view[1] = sin;
+            view[2] = -sin;
+            view[3] = cos;
+            view[4] = width / 2 - cos * x + sin * y;
+            view[5] = height / 2 - sin * x - cos * y;
+            viewWidth = width;
+            viewHeight = height;
+            dirty = false;
+        }
+        return view;
+    }
+
+    /**
+     * Convierte un punto de la pantalla en un punto del mundo, por ejemplo para saber sobre que parte del mundo esta el mouse.
+     *
+     * @param screenX coordenada x de la pantalla.
+     * @param screenY coordenada y de la pantalla.
+     * @param width   ancho del canvas.
+     * @param height  alto del canvas.
+     * @param out     destino de las coordenadas x e y del mundo.
+     */
+    public void toWorld(double screenX, double screenY, double width, double height, double[] out) {
+        double[] m = getView(width, height);
+        double dx = screenX - m[4], dy = screenY - m[5];
+        // La inversa de una rotacion escalada es su traspuesta dividida por el cuadrado del zoom
+        double determinant = m[0] * m[3] - m[2] * m[1];
+        out[0] = (m[3] * dx - m[2] * dy) / determinant;
+        out[1] = (m[0] * dy - m[1] * dx) / determinant;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.punkipunk.hellofx.rendering;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+
+/**
+ * Backend que dibuja en un {@link Canvas}, delegando cada llamada en su {@link GraphicsContext}.
+ */
+
+public class CanvasBackend implements RenderBackend {
+
+    private final Canvas canvas;
+    private final GraphicsContext context;
+
+    public CanvasBackend(Canvas canvas) {
+        this.canvas = canvas;
+        this.context = canvas.getGraphicsContext2D();
+    }
+
+    @Override
+    public double getWidth() {
+        return canvas.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return canvas.getHeight();
+    }
+
+    @Override
+    public void save() {
+        context.save();
+    }
+
+    @Override
+    public void restore() {
+        context.restore();
+    }
+
+    @Override
+    public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+        context.setTransform(mxx, myx, mxy, myy, tx, ty);
+    }
+
+    @Override
+    public void setFill(Paint paint) {
+        context.setFill(paint);
+    }
+
+    @Override
+    public void clearRect(double x, double y, double width, double height) {
+        context.clearRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawImage(Image image, double x, double y) {
+        context.drawImage(image, x, y);
+    }
+
+    @Override
+    public void drawImage(Image image, double x, double y, double width, double height) {
+        context.drawImage(image, x, y, width, height);
+    }
+
+    @Override
+    public void drawImage(Image image, double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh) {
+        context.drawImage(image, sx, sy, sw, sh, dx, dy, dw, dh);
+    }
+
+    @Override
+    public void fillOval(double x, double y, double width, double height) {
+        context.fillOval(x, y, width, height);
+    }
+
+    @Override
+    public void beginPath() {
+        context.beginPath();
+    }
+
+    @Override
+    public void rect(double x, double y, double width, double height) {
+        context.rect(x, y, width, height);
+    }
+
+    @Override
+    public void clip() {
+        context.clip();
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+}
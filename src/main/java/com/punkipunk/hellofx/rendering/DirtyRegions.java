@@ -0,0 +1,125 @@
+package com.punkipunk.hellofx.rendering;
+
+/**
+ * <p>
+ * Conjunto pequeño de rectangulos del canvas que hay que repintar en un frame.
+ * <p>
+ * Cada rectangulo agregado se alinea al pixel, se agranda un pixel por el suavizado de los bordes y se recorta al canvas. Si se
+ * superpone con otro, se unen en la caja que los contiene, y la union se repite mientras siga tocando a otros. Si se llega al
+ * maximo de rectangulos, el nuevo se une con el que menos area agrega. Asi el repintado nunca dibuja dos veces la misma zona y
+ * la cantidad de llamadas al contexto grafico queda acotada.
+ */
+
+final class DirtyRegions {
+
+    private static final int PADDING = 1;
+
+    private final double[] minX, minY, maxX, maxY;
+    private int count;
+    private double canvasWidth, canvasHeight;
+
+    DirtyRegions(int capacity) {
+        minX = new double[capacity];
+        minY = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+    }
+
+    void clear(double canvasWidth, double canvasHeight) {
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+        count = 0;
+    }
+
+    void add(double x0, double y0, double x1, double y1) {
+        x0 = Math.max(0, Math.floor(x0) - PADDING);
+        y0 = Math.max(0, Math.floor(y0) - PADDING);
+        x1 = Math.min(canvasWidth, Math.ceil(x1) + PADDING);
+        y1 = Math.min(canvasHeight, Math.ceil(y1) + PADDING);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        // Absorbe todos los rectangulos que toca, hasta que la union no toque a ninguno
+        for (int i = 0; i < count; ) {
+            if (x0 <= maxX[i] && minX[i] <= x1 && y0 <= maxY[i] && minY[i] <= y1) {
+                x0 = Math.min(x0, minX[i]);
+                y0 = Math.min(y0, minY[i]);
+                x1 = Math.max(x1, maxX[i]);
+                y1 = Math.max(y1, maxY[i]);
+                remove(i);
+                i = 0;
+            } else i++;
+        }
+
+        if (count == minX.length) {
+            // Sin lugar: se une con el rectangulo que menos area agrega y se vuelve a agregar la union
+            int best = 0;
+            double bestGrowth = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                double growth = (Math.max(x1, maxX[i]) - Math.min(x0, minX[i])) * (Math.max(y1, maxY[i]) - Math.min(y0, minY[i]))
+                        - (maxX[i] - minX[i]) * (maxY[i] - minY[i]);
+                if (growth < bestGrowth) {
+                    best = i;
+                    bestGrowth = growth;
+                }
+            }
+            double bx0 = Math.min(x0, minX[best]), by0 = Math.min(y0, minY[best]);
+            double bx1 = Math.max(x1, maxX[best]), by1 = Math.max(y1, maxY[best]);
+            remove(best);
+            add(bx0 + PADDING, by0 + PADDING, bx1 - PADDING, by1 - PADDING);
+            return;
+        }
+
+        minX[count] = x0;
+        minY[count] = y0;
+        maxX[count] = x1;
+        maxY[count] = y1;
+        count++;
+    }
+
+    private void remove(int i) {
+        count--;
+        minX[i] = minX[count];
+        minY[i] = minY[count];
+        maxX[i] = maxX[count];
+        maxY[i] = maxY[count];
+    }
+
+    /**
+     * Comprueba si una caja toca alguno de los rectangulos.
+     */
+    boolean intersects(double x0, double y0, double x1, double y1) {
+        for (int i = 0; i < count; i++)
+            if (x0 <= maxX[i] && minX[i] <= x1 && y0 <= maxY[i] && minY[i] <= y1) return true;
+        return false;
+    }
+
+    /**
+     * Obtiene el area total de los rectangulos, que no se superponen.
+     */
+    double getArea() {
+        double area = 0;
+        for (int i = 0; i < count; i++) area += (maxX[i] - minX[i]) * (maxY[i] - minY[i]);
+        return area;
+    }
+
+    int size() {
+        return count;
+    }
+
+    double getMinX(int i) {
+        return minX[i];
+    }
+
+    double getMinY(int i) {
+        return minY[i];
+    }
+
+    double getWidth(int i) {
+        return maxX[i] - minX[i];
+    }
+
+    double getHeight(int i) {
+        return maxY[i] - minY[i];
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.Arrays;
+
+import com.punkipunk.hellofx.models.Entity;
+
+/**
+ * <p>
+ * Mapa de entidades a indices enteros, comparadas por identidad, sin crear un {@code Integer} en cada operacion.
+ * <p>
+ * Usa direccionamiento abierto con sondeo lineal sobre dos arreglos paralelos (claves y valores) de tamaño potencia de dos, con
+ * a lo sumo la mitad ocupada. Al eliminar, las claves siguientes del mismo grupo se corren hacia atras para no dejar marcas de
+ * borrado. Los arreglos solo crecen.
+ */
+
+final class EntityIndexMap {
+
+    private Entity[] keys = new Entity[32];
+    private int[] values = new int[32];
+    private int size;
+
+    /**
+     * Obtiene el indice de una entidad.
+     *
+     * @param entity entidad a buscar.
+     * @return el indice, o -1 si la entidad no esta en el mapa.
+     */
+    int get(Entity entity) {
+        int mask = keys.length - 1;
+        for (int slot = hash(entity) & mask; keys[slot] != null; slot = (slot + 1) & mask)
+            if (keys[slot] == entity) return values[slot];
+        return -1;
+    }
+
+    /**
+     * Asocia un indice a una entidad, reemplazando el anterior si ya estaba.
+     *
+     * @param entity entidad.
+     * @param index  indice no negativo.
+     */
+    void put(Entity entity, int index) {
+        int mask = keys.length - 1, slot = hash(entity) & mask;
+        for (; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == entity) {
+                values[slot] = index;
+                return;
+            }
+        }
+        keys[slot] = entity;
+        values[slot] = index;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    /**
+     * Quita una entidad del mapa.
+     *
+     * @param entity entidad a quitar.
+     * @return el indice que tenia, o -1 si no estaba en el mapa.
+     */
+    int remove(Entity entity) {
+        int mask = keys.length - 1, slot = hash(entity) & mask;
+        while (keys[slot] != entity) {
+            if (keys[slot] == null) return -1;
+            slot = (slot + 1) & mask;
+        }
+        int index = values[slot];
+        // Corre hacia atras las claves del grupo que quedarian inalcanzables desde su posicion ideal
+        for (int next = (slot + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int ideal = hash(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = null;
+        size--;
+        return index;
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        Entity[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Entity[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != null) put(oldKeys[i], oldValues[i]);
+    }
+
+    private static int hash(Entity entity) {
+        int h = System.identityHashCode(entity) * 0x9E3779B9; // Mezcla los bits bajos, que son los que elige la mascara
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.punkipunk.hellofx.rendering;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+
+/**
+ * Backend que descarta todas las llamadas de dibujo. Con el, {@code Renderer.render()} mide solo el costo de preparar el frame
+ * (culling, orden por capas y transformaciones), sin el costo de Prism.
+ */
+
+public class NoOpBackend implements RenderBackend {
+
+    private double width, height;
+
+    /**
+     * Crea un backend con un area de dibujo de un tamaño dado, que se usa para el culling y la camara.
+     *
+     * @param width  ancho del area de dibujo.
+     * @param height alto del area de dibujo.
+     */
+    public NoOpBackend(double width, double height) {
+        setSize(width, height);
+    }
+
+    public void setSize(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public double getWidth() {
+        return width;
+    }
+
+    @Override
+    public double getHeight() {
+        return height;
+    }
+
+    @Override
+    public void save() {
+    }
+
+    @Override
+    public void restore() {
+    }
+
+    @Override
+    public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+    }
+
+    @Override
+    public void setFill(Paint paint) {
+    }
+
+    @Override
+    public void clearRect(double x, double y, double width, double height) {
+    }
+
+    @Override
+    public void drawImage(Image image, double x, double y) {
+    }
+
+    @Override
+    public void drawImage(Image image, double x, double y, double width, double height) {
+    }
+
+    @Override
+    public void drawImage(Image image, double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh) {
+    }
+
+    @Override
+    public void fillOval(double x, double y, double width, double height) {
+    }
+
+    @Override
+    public void beginPath() {
+    }
+
+    @Override
+    public void rect(double x, double y, double width, double height) {
+    }
+
+    @Override
+    public void clip() {
+    }
+
+}
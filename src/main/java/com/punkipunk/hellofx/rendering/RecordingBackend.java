@@ -0,0 +1,181 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.Arrays;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+
+/**
+ * <p>
+ * Backend que no dibuja, pero cuenta lo que se habria dibujado: llamadas de dibujo, cambios de estado del contexto y pixeles
+ * cubiertos. Permite medir y comprobar el trabajo que el {@link Renderer} le pide al contexto grafico sin el toolkit de JavaFX,
+ * por ejemplo para detectar que un cambio en el culling o en el orden de las capas aumenta las llamadas por frame.
+ * <p>
+ * Los pixeles cubiertos se calculan con el area de cada figura multiplicada por el factor de escala de la transformacion actual
+ * (el valor absoluto de su determinante), sin recortar al area de dibujo ni al clip. Un ovalo cubre pi/4 del area de su
+ * rectangulo. Para seguir la transformacion, el backend guarda su propia pila de estados con {@code save()} y {@code restore()}.
+ * <p>
+ * Los contadores son acumulados; {@link #reset()} los pone a cero, por ejemplo al empezar cada frame.
+ */
+
+public class RecordingBackend implements RenderBackend {
+
+    private static final int MATRIX_SIZE = 6;
+
+    private double width, height;
+    private final double[] transform = {1, 0, 0, 1, 0, 0};
+    private double[] stack = new double[MATRIX_SIZE * 8]; // Transformaciones guardadas con save()
+    private int depth;
+
+    private long drawCalls, stateChanges, clears;
+    private double pixels;
+
+    /**
+     * Crea un backend con un area de dibujo de un tamaño dado, que se usa para el culling y la camara.
+     *
+     * @param width  ancho del area de dibujo.
+     * @param height alto del area de dibujo.
+     */
+    public RecordingBackend(double width, double height) {
+        setSize(width, height);
+    }
+
+    public void setSize(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public double getWidth() {
+        return width;
+    }
+
+    @Override
+    public double getHeight() {
+        return height;
+    }
+
+    @Override
+    public void save() {
+        if ((depth + 1) * MATRIX_SIZE > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+        System.arraycopy(transform, 0, stack, depth++ * MATRIX_SIZE, MATRIX_SIZE);
+        stateChanges++;
+    }
+
+    /**
+     * Recupera la ultima transformacion guardada. Igual que en el {@code GraphicsContext}, un restore() sin save() no hace nada.
+     */
+    @Override
+    public void restore() {
+        if (depth == 0) return;
+        System.arraycopy(stack, --depth * MATRIX_SIZE, transform, 0, MATRIX_SIZE);
+        stateChanges++;
+    }
+
+    @Override
+    public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+        transform[0] = mxx;
+        transform[1] = myx;
+        transform[2] = mxy;
+        transform[3] = myy;
+        transform[4] = tx;
+        transform[5] = ty;
+        stateChanges++;
+    }
+
+    @Override
+    public void setFill(Paint paint) {
+        stateChanges++;
+    }
+
+    @Override
+    public void clearRect(double x, double y, double width, double height) {
+        clears++;
+        cover(width * height);
+    }
+
+    @Override
+    public void drawImage(Image image, double x, double y) {
+        if (image != null) drawImage(image, x, y, image.getWidth(), image.getHeight());
+        else drawCalls++;
+    }
+
+    @Override
+    public void drawImage(Image image, double x, double y, double width, double height) {
+        drawCalls++;
+        cover(width * height);
+    }
+
+    @Override
+    public void drawImage(Image image, double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh) {
+        drawImage(image, dx, dy, dw, dh);
+    }
+
+    @Override
+    public void fillOval(double x, double y, double width, double height) {
+        drawCalls++;
+        cover(Math.PI / 4 * width * height);
+    }
+
+    @Override
+    public void beginPath() {
+    }
+
+    @Override
+    public void rect(double x, double y, double width, double height) {
+    }
+
+    @Override
+    public void clip() {
+        stateChanges++;
+    }
+
+    /**
+     * Suma el area en pantalla de una figura, escalando su area local por la transformacion actual.
+     */
+    private void cover(double area) {
+        pixels += Math.abs(area * (transform[0] * transform[3] - transform[1] * transform[2]));
+    }
+
+    /**
+     * Pone a cero los contadores. La transformacion y la pila de estados no cambian.
+     */
+    public void reset() {
+        drawCalls = 0;
+        stateChanges = 0;
+        clears = 0;
+        pixels = 0;
+    }
+
+    /**
+     * Obtiene la cantidad de imagenes y figuras dibujadas.
+     *
+     * @return las llamadas de dibujo desde el ultimo reset().
+     */
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Obtiene la cantidad de cambios de estado del contexto: save(), restore(), setTransform(), setFill() y clip().
+     *
+     * @return los cambios de estado desde el ultimo reset().
+     */
+    public long getStateChanges() {
+        return stateChanges;
+    }
+
+    public long getClears() {
+        return clears;
+    }
+
+    /**
+     * Obtiene los pixeles cubiertos por las imagenes, figuras y limpiezas, contando varias veces los que se superponen.
+     *
+     * @return los pixeles cubiertos desde el ultimo reset().
+     */
+    public double getPixels() {
+        return pixels;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.punkipunk.hellofx.rendering;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+
+/**
+ * <p>
+ * Destino de las llamadas de dibujo del {@link Renderer}. Expone el subconjunto del {@code GraphicsContext} que usa el
+ * renderizador, con los mismos nombres y el mismo significado, de modo que la preparacion del frame (culling, orden por capas,
+ * transformaciones, regiones sucias) queda separada de quien dibuja.
+ * <p>
+ * Implementaciones:
+ * <ul>
+ * <li>{@link CanvasBackend}: dibuja en un {@code Canvas} de JavaFX.
+ * <li>{@link NoOpBackend}: descarta todo, para medir solo el costo de preparar el frame.
+ * <li>{@link RecordingBackend}: cuenta llamadas de dibujo, cambios de estado y pixeles cubiertos, para pruebas de regresion y
+ * benchmarks sin el toolkit de JavaFX.
+ * </ul>
+ */
+
+public interface RenderBackend {
+
+    /**
+     * Obtiene el ancho del area de dibujo.
+     *
+     * @return el ancho en pixeles.
+     */
+    double getWidth();
+
+    /**
+     * Obtiene el alto del area de dibujo.
+     *
+     * @return el alto en pixeles.
+     */
+    double getHeight();
+
+    void save();
+
+    void restore();
+
+    void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty);
+
+    void setFill(Paint paint);
+
+    void clearRect(double x, double y, double width, double height);
+
+    void drawImage(Image image, double x, double y);
+
+    void drawImage(Image image, double x, double y, double width, double height);
+
+    void drawImage(Image image, double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh);
+
+    void fillOval(double x, double y, double width, double height);
+
+    void beginPath();
+
+    void rect(double x, double y, double width, double height);
+
+    void clip();
+
+}
@@ -0,0 +1,200 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.punkipunk.hellofx.models.Entity;
+
+/**
+ * <p>
+ * Capa de dibujo con nombre. Las capas se dibujan en el orden en que se crean en el {@link Renderer} y, dentro de una capa, las
+ * entidades se dibujan de menor a mayor clave z (a igual z, en el orden en que se agregaron).
+ * <p>
+ * El orden se mantiene de forma incremental: cambiar la z de una entidad solo marca la capa como desordenada, y antes de dibujar
+ * se ordena con insercion. Como de un frame al siguiente cambian pocas claves, los datos estan casi ordenados y la insercion
+ * cuesta O(n + k), con k la cantidad de pares fuera de orden, en lugar del O(n log n) de un ordenamiento completo. Cada entidad
+ * guarda un numero de secuencia que crece con cada {@link #add(Entity, float)} y desempata las claves iguales, asi que el orden
+ * de insercion se conserva aunque una eliminacion mueva otra entidad de lugar.
+ * <p>
+ * Una capa se puede ocultar, y se puede marcar como cacheada: en ese caso el renderizador reutiliza los sprites que calculo la
+ * ultima vez (sin ordenar ni transformar) hasta que la capa cambia, se llama a {@link #invalidate()} o cambia la vista. Sirve
+ * para capas que casi no se mueven, como el HUD o decorados, aunque tengan muchos sprites.
+ */
+
+public class RenderLayer {
+
+    private final String name;
+    final List<Entity> entities = new ArrayList<>();
+    private float[] keys = new float[16]; // Clave z de cada entidad, alineada con la lista
+    private long[] sequences = new long[16]; // Orden de insercion de cada entidad, alineado con la lista
+    private long nextSequence;
+    // Indice de cada entidad en la lista, para eliminarla en O(1) moviendo la ultima a su lugar
+    private final EntityIndexMap indices = new EntityIndexMap();
+    private boolean sorted = true, visible = true, cached;
+
+    final SpriteList cache = new SpriteList(); // Sprites de la capa en el ultimo frame en que se calcularon
+    boolean cacheValid;
+
+    RenderLayer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void add(Entity entity) {
+        add(entity, 0);
+    }
+
+    /**
+     * Agrega una entidad a la capa con una clave z. Si la entidad ya estaba en la capa, no hace nada.
+     *
+     * @param entity entidad a agregar.
+     * @param z      clave de orden dentro de la capa.
+     */
+    public void add(Entity entity, float z) {
+        if (indices.get(entity) >= 0) return;
+        int i = entities.size();
+        if (i == keys.length) {
+            keys = Arrays.copyOf(keys, i * 2);
+            sequences = Arrays.copyOf(sequences, i * 2);
+        }
+        indices.put(entity, i);
+        entities.add(entity);
+        keys[i] = z;
+        sequences[i] = nextSequence++;
+        if (i > 0 && before(i, i - 1)) sorted = false;
+        cacheValid = false;
+    }
+
+    /**
+     * Quita una entidad de la capa. La ultima entidad ocupa su lugar y la capa se reordena antes del proximo frame, devolviendola
+     * detras de las entidades con su misma z que se agregaron antes.
+     *
+     * @param entity entidad a quitar.
+     * @return true si la entidad estaba en la capa o false en caso contrario.
+     */
+    public boolean remove(Entity entity) {
+        int index = indices.remove(entity);
+        if (index < 0) return false;
+        int last = entities.size() - 1;
+        Entity moved = entities.remove(last);
+        if (moved != entity) {
+            entities.set(index, moved);
+            keys[index] = keys[last];
+            sequences[index] = sequences[last];
+            indices.put(moved, index);
+            sorted = false;
+        }
+        cacheValid = false;
+        return true;
+    }
+
+    public void clear() {
+        entities.clear();
+        indices.clear();
+        sorted = true;
+        cacheValid = false;
+    }
+
+    public boolean contains(Entity entity) {
+        return indices.get(entity) >= 0;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    /**
+     * Cambia la clave z de una entidad. El orden se corrige antes del proximo frame.
+     *
+     * @param entity entidad de la capa.
+     * @param z      nueva clave de orden.
+     * @throws IllegalArgumentException si la entidad no esta en la capa.
+     */
+    public void setZ(Entity entity, float z) {
+        int i = indexOf(entity);
+        if (keys[i] == z) return;
+        keys[i] = z;
+        // Solo se desordena si la entidad queda fuera de orden con sus vecinas
+        if ((i > 0 && before(i, i - 1)) || (i + 1 < entities.size() && before(i + 1, i))) sorted = false;
+        cacheValid = false;
+    }
+
+    public float getZ(Entity entity) {
+        return keys[indexOf(entity)];
+    }
+
+    private int indexOf(Entity entity) {
+        int index = indices.get(entity);
+        if (index < 0) throw new IllegalArgumentException("The entity is not in the " + name + " layer!");
+        return index;
+    }
+
+    /**
+     * Indica si la entidad de un indice se dibuja antes que la de otro: por menor z y, a igual z, por haberse agregado antes.
+     */
+    private boolean before(int i, int j) {
+        return keys[i] < keys[j] || (keys[i] == keys[j] && sequences[i] < sequences[j]);
+    }
+
+    /**
+     * Ordena la capa por z y numero de secuencia con insercion, si esta desordenada. Solo actualiza los indices de las entidades
+     * que se movieron.
+     */
+    void sort() {
+        if (sorted) return;
+        int n = entities.size(), first = n;
+        for (int i = 1; i < n; i++) {
+            if (!before(i, i - 1)) continue;
+            float key = keys[i];
+            long sequence = sequences[i];
+            Entity entity = entities.get(i);
+            int j = i - 1;
+            while (j >= 0 && (keys[j] > key || (keys[j] == key && sequences[j] > sequence))) {
+                keys[j + 1] = keys[j];
+                sequences[j + 1] = sequences[j];
+                entities.set(j + 1, entities.get(j));
+                j--;
+            }
+            keys[j + 1] = key;
+            sequences[j + 1] = sequence;
+            entities.set(j + 1, entity);
+            first = Math.min(first, j + 1);
+        }
+        for (int i = first; i < n; i++) indices.put(entities.get(i), i);
+        sorted = true;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Marca la capa como cacheada o no. Una capa cacheada no refleja el movimiento de sus entidades hasta que se invalida.
+     *
+     * @param cached true para reutilizar los sprites de la capa entre frames.
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+        cacheValid = false;
+    }
+
+    /**
+     * Obliga a recalcular los sprites de una capa cacheada en el proximo frame, por ejemplo despues de mover sus entidades.
+     */
+    public void invalidate() {
+        cacheValid = false;
+    }
+
+}
@@ -1,16 +1,20 @@
 package com.punkipunk.hellofx.rendering;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
-import javafx.geometry.Point2D;
-import javafx.scene.transform.Rotate;
 
 import com.punkipunk.hellofx.models.Entity;
+import com.punkipunk.hellofx.models.ProjectilePool;
+import com.punkipunk.hellofx.models.WorldSnapshot;
+import com.punkipunk.hellofx.profiling.FrameCounter;
+import com.punkipunk.hellofx.profiling.PrepareEvent;
+import com.punkipunk.hellofx.profiling.RenderEvent;
 
 /**
  * <h1>Como dibujar en un Canvas</h1>
@@ -65,75 +69,545 @@ import com.punkipunk.hellofx.models.Entity;
  * dibujar multiples objetos sin necesidad de repetir llamadas o argumentos de estilo cada vez.
  * <p>
  * Links: <a href="https://edencoding.com/javafx-canvas/">The JavaFX Canvas – A Helpful, Illustrated Guide</a>
+ * <h2>Backends</h2>
+ * <p>
+ * El renderizador no llama al {@code GraphicsContext} directamente sino a un {@link RenderBackend}. Con un {@link CanvasBackend}
+ * dibuja en el canvas; con un {@link NoOpBackend} o un {@link RecordingBackend} la preparacion del frame (culling, orden por
+ * capas y transformaciones) se puede medir y probar sin el toolkit de JavaFX, separada del costo de Prism.
  */
 
 public class Renderer {
 
-    private final Canvas canvas;
-    private final GraphicsContext context;
+    private final RenderBackend backend;
 
     // Almacena el fondo para renderizar cada fotograma, porque se borra junto con todo lo demas
     private Image background;
 
-    // Necesita almacenar una lista de entidades para renderizar cada frame
-    private final List<Entity> entities = new ArrayList<>();
+    /* Capas predefinidas, de abajo hacia arriba. Las entidades agregadas con addEntity(Entity) van a la capa del mundo, y los
+     * proyectiles se dibujan justo despues de ella. */
+    public static final String BACKGROUND_LAYER = "background";
+    public static final String WORLD_LAYER = "world";
+    public static final String EFFECTS_LAYER = "effects";
+    public static final String HUD_LAYER = "hud";
+
+    // Necesita almacenar las entidades de cada capa para renderizarlas cada frame
+    private final List<RenderLayer> layers = new ArrayList<>();
+    private final Map<String, RenderLayer> layersByName = new HashMap<>();
+    private final RenderLayer worldLayer;
+
+    private static final double PROJECTILE_SIZE = 4;
+    private static final Color PROJECTILE_COLOR = Color.ORANGE;
+    private ProjectilePool projectiles;
+    private final double[] matrix = new double[6]; // Transformacion de la entidad que se esta dibujando, reutilizada
+    private static final double[] IDENTITY = {1, 0, 0, 1, 0, 0};
+    private Camera camera;
+    private TextureAtlas atlas;
+    private RotationCache rotationCache;
+    private SoftwareRasterizer rasterizer;
+    // Transformacion que tiene el contexto, para no repetir setTransform() entre sprites que comparten la misma
+    private static final int SPRITE_TRANSFORM = 0, IDENTITY_TRANSFORM = 1, VIEW_TRANSFORM = 2;
+    private int transformState;
+    // Tolerancia para decidir si la transformacion de una entidad es solo una rotacion y una traslacion
+    private static final double RIGID_EPSILON = 1e-6;
+    private double[] view = IDENTITY; // Transformacion de vista del frame actual
+
+    // Listas del frame actual y del anterior, que se intercambian al terminar cada frame
+    private SpriteList sprites = new SpriteList(), previousSprites = new SpriteList();
+    private static final int MAX_DIRTY_REGIONS = 16;
+    private static final double DEFAULT_FULL_REDRAW_COVERAGE = 0.5;
+    private final DirtyRegions regions = new DirtyRegions(MAX_DIRTY_REGIONS);
+    private boolean dirtyRendering;
+    private double fullRedrawCoverage = DEFAULT_FULL_REDRAW_COVERAGE;
+    private boolean redrawAll = true; // El proximo frame se dibuja completo
+    private double lastWidth, lastHeight;
+    private final double[] lastView = new double[6];
+    private boolean viewChanged = true; // La vista o el tamaño del canvas cambiaron desde el frame anterior
 
     public Renderer(Canvas canvas) {
-        this.canvas = canvas;
-        this.context = canvas.getGraphicsContext2D();
+        this(new CanvasBackend(canvas));
+    }
+
+    /**
+     * Crea un renderizador que dibuja a traves de un backend.
+     *
+     * @param backend destino de las llamadas de dibujo.
+     */
+    public Renderer(RenderBackend backend) {
+        this.backend = backend;
+        addLayer(BACKGROUND_LAYER);
+        worldLayer = addLayer(WORLD_LAYER);
+        addLayer(EFFECTS_LAYER);
+        addLayer(HUD_LAYER);
+    }
+
+    public RenderBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Crea una capa encima de todas las existentes.
+     *
+     * @param name nombre de la capa.
+     * @return la capa creada.
+     * @throws IllegalArgumentException si ya existe una capa con ese nombre.
+     */
+    public RenderLayer addLayer(String name) {
+        if (layersByName.containsKey(name)) throw new IllegalArgumentException("The layer " + name + " already exists!");
+        RenderLayer layer = new RenderLayer(name);
+        layers.add(layer);
+        layersByName.put(name, layer);
+        return layer;
+    }
+
+    /**
+     * Obtiene una capa por su nombre.
+     *
+     * @param name nombre de la capa.
+     * @return la capa.
+     * @throws IllegalArgumentException si no existe una capa con ese nombre.
+     */
+    public RenderLayer getLayer(String name) {
+        RenderLayer layer = layersByName.get(name);
+        if (layer == null) throw new IllegalArgumentException("Unknown layer: " + name + "!");
+        return layer;
     }
 
+    /**
+     * Agrega una entidad a la capa del mundo, con z 0.
+     *
+     * @param entity entidad a agregar.
+     */
     public void addEntity(Entity entity) {
-        entities.add(entity);
+        worldLayer.add(entity);
     }
 
+    /**
+     * Deja de renderizar una entidad, en cualquier capa en la que este.
+     *
+     * @param entity entidad a eliminar.
+     */
     public void removeEntity(Entity entity) {
-        entities.remove(entity);
+        for (RenderLayer layer : layers) layer.remove(entity);
     }
 
     public void clearEntities() {
-        entities.clear();
+        for (RenderLayer layer : layers) layer.clear();
+    }
+
+    /**
+     * Establece los proyectiles a dibujar despues de las entidades de la capa del mundo. Con un snapshot se dibuja su copia de
+     * los proyectiles.
+     *
+     * @param projectiles proyectiles a dibujar, o null para no dibujar proyectiles.
+     */
+    public void setProjectiles(ProjectilePool projectiles) {
+        this.projectiles = projectiles;
     }
 
     public void setBackground(Image background) {
         this.background = background;
+        redrawAll = true;
     }
 
     /**
-     * El metodo {@code save()} guarda el estado actual del contexto grafico en una pila, incluyendo:
-     * <ul>
-     *   <li>La matriz de transformacion actual</li>
-     *   <li>El area de recorte (clipping)</li>
-     *   <li>Los atributos de dibujado (color, grosor de linea, etc.)</li>
-     * </ul>
-     * Es especialmente util cuando se realizan transformaciones temporales que solo deben afectar a ciertos elementos.
      * <p>
-     * El metodo {@code restore()} recupera el ultimo estado guardado del contexto grafico. Es crucial llamarlo despues de save()
-     * para:
-     * <ul>
-     *   <li>Evitar que las transformaciones de una entidad afecten a las siguientes</li>
-     *   <li>Prevenir la acumulacion de transformaciones no deseadas</li>
-     *   <li>Mantener un estado limpio del contexto para el siguiente frame</li>
-     * </ul>
-     * Sin restore(), las transformaciones se acumularian y causarian comportamientos inesperados en el renderizado.
+     * Activa o desactiva el modo de regiones sucias.
+     * <p>
+     * En este modo el canvas no se limpia en cada frame: se compara cada sprite con el frame anterior y solo se repintan, desde
+     * el fondo, las zonas que cambiaron. Una escena casi quieta cuesta una fraccion del dibujo completo. Mientras el modo esta
+     * activo, {@link #prepare()} no limpia el canvas y nada mas debe dibujar en el.
+     *
+     * @param dirtyRendering true para repintar solo las zonas que cambiaron.
+     */
+    public void setDirtyRendering(boolean dirtyRendering) {
+        this.dirtyRendering = dirtyRendering;
+        redrawAll = true;
+    }
+
+    /**
+     * Establece la fraccion del canvas a partir de la cual el modo de regiones sucias dibuja el frame completo (por defecto
+     * 0.5).
+     *
+     * @param coverage fraccion entre 0 y 1.
+     * @throws IllegalArgumentException si la fraccion esta fuera de rango.
+     */
+    public void setFullRedrawCoverage(double coverage) {
+        if (!(coverage >= 0 && coverage <= 1)) throw new IllegalArgumentException("The coverage must be between 0 and 1!");
+        fullRedrawCoverage = coverage;
+    }
+
+    /**
+     * Establece el atlas desde el que se dibujan las imagenes de las entidades. Las imagenes que no estan en el atlas se
+     * siguen dibujando desde su propia textura.
+     *
+     * @param atlas atlas a usar, o null para dibujar cada imagen por separado.
+     */
+    public void setAtlas(TextureAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Establece la cache de sprites pre-rotados. Con una cache, las entidades cuya transformacion en pantalla es solo una
+     * rotacion (sin zoom de la camara) se dibujan desde una copia ya rotada, sin transformar el contexto.
+     *
+     * @param rotationCache cache a usar, o null para rotar las imagenes al dibujarlas.
+     */
+    public void setRotationCache(RotationCache rotationCache) {
+        this.rotationCache = rotationCache;
+        redrawAll = true;
+    }
+
+    /**
+     * Establece un rasterizador por software que compone los frames en su propio framebuffer, en paralelo, en lugar de dibujar
+     * en el canvas. El backend solo se sigue usando para conocer el tamaño del area de dibujo, y la vista del rasterizador debe
+     * mostrarse en su lugar. El atlas, la cache de rotaciones y el modo de regiones sucias no se usan con el rasterizador.
+     *
+     * @param rasterizer rasterizador a usar, o null para dibujar en el canvas.
+     */
+    public void setRasterizer(SoftwareRasterizer rasterizer) {
+        this.rasterizer = rasterizer;
+        redrawAll = true;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Establece la camara con la que se dibuja el mundo. El fondo se sigue dibujando fijo en la pantalla.
+     *
+     * @param camera camara a usar, o null para dibujar las coordenadas del mundo directamente como coordenadas del canvas.
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * Renderiza sin interpolar (alpha = 1).
      */
     public void render() {
-        context.save(); // Guarda el estado "limpio"
+        render(1);
+    }
+
+    /**
+     * Renderiza las entidades interpolando su estado entre el paso de simulacion anterior y el actual.
+     * <p>
+     * Cuando el GameLoop trabaja en modo acumulador, el frame se dibuja en un instante que cae entre dos pasos de simulacion.
+     * Dibujar la posicion y rotacion interpoladas evita los tirones que se producirian si la tasa de refresco de la pantalla no
+     * es multiplo de la tasa de simulacion.
+     * <p>
+     * Las entidades y proyectiles que quedan fuera del canvas con la camara actual se descartan antes de llamar al contexto
+     * grafico, por lo que el costo de dibujo depende de lo que se ve y no de la cantidad de entidades del mundo.
+     *
+     * @param alpha factor de interpolacion entre 0 (estado anterior) y 1 (estado actual).
+     */
+    public void render(float alpha) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+
+        updateView();
+        sprites.clear();
+        int entityCount = addLayers(null, alpha);
+
+        int draws = draw();
+
+        commit(event, entityCount, draws);
+    }
+
+    /**
+     * Agrega a la lista del frame las capas visibles, de abajo hacia arriba, y los proyectiles despues de la capa del mundo.
+     *
+     * @param snapshot snapshot del que se leen las entidades y los proyectiles, o null para leerlos del mundo.
+     * @return la cantidad de entidades de todas las capas, visibles o no.
+     */
+    private int addLayers(WorldSnapshot snapshot, float alpha) {
+        int entityCount = 0;
+        for (RenderLayer layer : layers) {
+            entityCount += layer.size();
+            if (!layer.isVisible()) continue;
+            addLayer(layer, snapshot, alpha);
+            if (layer == worldLayer && projectiles != null)
+                addProjectiles(snapshot == null ? projectiles : snapshot.getProjectiles(), alpha);
+        }
+        return entityCount;
+    }
+
+    /**
+     * Agrega a la lista del frame los sprites de una capa, ordenada por z. Si la capa esta cacheada y no cambio, copia los
+     * sprites calculados la ultima vez.
+     *
+     * @param snapshot snapshot del que se leen las entidades, o null para leerlas del mundo. Las entidades de la capa que no
+     *                 estan en el snapshot (se agregaron o eliminaron despues de publicarlo) no se dibujan.
+     */
+    private void addLayer(RenderLayer layer, WorldSnapshot snapshot, float alpha) {
+        if (layer.isCached() && layer.cacheValid && !viewChanged) {
+            sprites.addAll(layer.cache, 0, layer.cache.count);
+            return;
+        }
+        layer.sort();
+        int from = sprites.count;
+        for (Entity entity : layer.entities) {
+            if (snapshot == null) {
+                float x = entity.getInterpolatedX(alpha), y = entity.getInterpolatedY(alpha);
+                entity.getWorldTransform(alpha, matrix);
+                concatenateView();
+                sprites.add(entity.getImage(), x, y, entity.getWidth(), entity.getHeight(), matrix, backend.getWidth(),
+                        backend.getHeight());
+                continue;
+            }
+            int i = snapshot.indexOf(entity);
+            if (i < 0) continue;
+            snapshot.getTransform(i, alpha, matrix);
+            concatenateView();
+            sprites.add(snapshot.getImage(i), snapshot.getX(i, alpha), snapshot.getY(i, alpha), snapshot.getWidth(i),
+                    snapshot.getHeight(i), matrix, backend.getWidth(), backend.getHeight());
+        }
+        if (layer.isCached()) {
+            layer.cache.clear();
+            layer.cache.addAll(sprites, from, sprites.count);
+            layer.cacheValid = true;
+        }
+    }
+
+    /**
+     * Renderiza un snapshot del mundo publicado por el hilo de simulacion.
+     * <p>
+     * Se usa cuando la simulacion corre en su propio hilo: en lugar de leer las entidades (que el otro hilo esta modificando), se
+     * dibujan los datos copiados en el snapshot, interpolando entre el estado anterior y el actual de cada entidad. Las capas se
+     * recorren igual que en {@link #render(float)} (orden por z, capas ocultas y cacheadas), y cada entidad se busca en el
+     * snapshot, por lo que ambos caminos dibujan el mismo frame.
+     *
+     * @param snapshot snapshot a dibujar.
+     * @param alpha    factor de interpolacion entre 0 (estado anterior) y 1 (estado actual).
+     */
+    public void render(WorldSnapshot snapshot, float alpha) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+
+        updateView();
+        sprites.clear();
+        int entityCount = addLayers(snapshot, alpha);
+
+        int draws = draw();
+
+        commit(event, entityCount, draws);
+    }
+
+    /**
+     * Agrega los proyectiles a la lista del frame como circulos, en su posicion interpolada y sin rotacion propia.
+     *
+     * @param projectiles proyectiles a agregar.
+     * @param alpha       factor de interpolacion entre 0 (estado anterior) y 1 (estado actual).
+     */
+    private void addProjectiles(ProjectilePool projectiles, float alpha) {
+        double offset = PROJECTILE_SIZE / 2;
+        for (int i = 0; i < projectiles.getCount(); i++)
+            sprites.addShape(projectiles.getX(i, alpha) - offset, projectiles.getY(i, alpha) - offset, PROJECTILE_SIZE, PROJECTILE_SIZE,
+                    view, backend.getWidth(), backend.getHeight());
+    }
+
+    /**
+     * Dibuja la lista del frame completa o, en el modo de regiones sucias, solo lo que cambio respecto del frame anterior.
+     *
+     * @return la cantidad de llamadas de dibujo realizadas.
+     */
+    private int draw() {
+        if (rasterizer != null) {
+            int draws = rasterizer.render(sprites, background, (int) backend.getWidth(), (int) backend.getHeight());
+            swapSprites();
+            return draws;
+        }
+
+        backend.save(); // Guarda el estado "limpio"
+        transformState = IDENTITY_TRANSFORM; // El estado guardado no tiene transformacion
+        backend.setFill(PROJECTILE_COLOR);
+
+        int draws = dirtyRendering && !mustRedrawAll() ? drawDirty() : drawAll();
+
+        backend.restore(); // Al final asegura que el proximo frame comience con un estado limpio del contexto
+
+        swapSprites();
+        return draws;
+    }
+
+    /**
+     * La lista de este frame pasa a ser la del frame anterior.
+     */
+    private void swapSprites() {
+        SpriteList previous = previousSprites;
+        previousSprites = sprites;
+        sprites = previous;
+    }
+
+    /**
+     * Dibuja el fondo y todos los sprites visibles.
+     */
+    private int drawAll() {
+        int draws = 0;
+        // En el modo de regiones sucias prepare() no limpia el canvas
+        if (dirtyRendering) backend.clearRect(0, 0, backend.getWidth(), backend.getHeight());
+        redrawAll = false;
 
         // Este fondo cubre todo el canvas, efectivamente "limpiando" el frame anterior
-        if (background != null) context.drawImage(background, 0, 0);
+        if (background != null) {
+            backend.drawImage(background, 0, 0);
+            draws++;
+        }
 
-        for (Entity entity : entities) {
+        for (int i = 0; i < sprites.count; i++) {
+            if (!sprites.visible[i]) continue;
+            drawEntry(i);
+            draws++;
+        }
+        return draws;
+    }
 
-            transformContext(entity);
+    /**
+     * <p>
+     * Repinta solo las zonas del canvas que cambiaron desde el frame anterior.
+     * <p>
+     * Cada sprite se compara con el que ocupaba su misma posicion en la lista del frame anterior. Si cambio, se marcan como
+     * sucias su caja anterior y su caja actual. Las zonas sucias se recortan (clip), se restauran desde el fondo y se vuelven a
+     * dibujar los sprites que las tocan, incluidos los que no cambiaron. Si las zonas cubren mas de
+     * {@code fullRedrawCoverage} del canvas, repintar por partes costaria mas que dibujar todo y se dibuja el frame completo.
+     */
+    private int drawDirty() {
+        double width = backend.getWidth(), height = backend.getHeight();
+        regions.clear(width, height);
+        SpriteList current = sprites, previous = previousSprites;
+        for (int i = 0, n = Math.max(current.count, previous.count); i < n; i++) {
+            if (current.same(i, previous)) continue;
+            if (i < previous.count && previous.visible[i])
+                regions.add(previous.minX[i], previous.minY[i], previous.maxX[i], previous.maxY[i]);
+            if (i < current.count && current.visible[i])
+                regions.add(current.minX[i], current.minY[i], current.maxX[i], current.maxY[i]);
+        }
+        if (regions.size() == 0) return 0;
+        if (regions.getArea() > fullRedrawCoverage * width * height) return drawAll();
 
-            Point2D pos = entity.getPosition();
+        int draws = 0;
+        backend.beginPath();
+        for (int r = 0; r < regions.size(); r++)
+            backend.rect(regions.getMinX(r), regions.getMinY(r), regions.getWidth(r), regions.getHeight(r));
+        backend.clip();
+        for (int r = 0; r < regions.size(); r++) {
+            double x = regions.getMinX(r), y = regions.getMinY(r), w = regions.getWidth(r), h = regions.getHeight(r);
+            backend.clearRect(x, y, w, h);
+            if (background != null && x < background.getWidth() && y < background.getHeight()) {
+                double sw = Math.min(w, background.getWidth() - x), sh = Math.min(h, background.getHeight() - y);
+                backend.drawImage(background, x, y, sw, sh, x, y, sw, sh);
+                draws++;
+            }
+        }
+        for (int i = 0; i < current.count; i++) {
+            if (!current.visible[i] || !regions.intersects(current.minX[i], current.minY[i], current.maxX[i], current.maxY[i]))
+                continue;
+            drawEntry(i);
+            draws++;
+        }
+        return draws;
+    }
 
-            context.drawImage(entity.getImage(), pos.getX(), pos.getY(), entity.getWidth(), entity.getHeight());
+    /**
+     * Comprueba si el frame anterior dejo de servir como base, porque cambio el tamaño del canvas, la vista de la camara o algo
+     * que afecta a todo el frame.
+     */
+    private boolean mustRedrawAll() {
+        return redrawAll || viewChanged;
+    }
 
+    /**
+     * Dibuja un sprite de la lista del frame: una imagen con su transformacion o un proyectil con la vista de la camara.
+     */
+    private void drawEntry(int i) {
+        if (sprites.shapes[i]) {
+            if (transformState != VIEW_TRANSFORM) {
+                backend.setTransform(view[0], view[1], view[2], view[3], view[4], view[5]);
+                transformState = VIEW_TRANSFORM;
+            }
+            backend.fillOval(sprites.x[i], sprites.y[i], sprites.width[i], sprites.height[i]);
+            return;
         }
+        System.arraycopy(sprites.matrices, i * SpriteList.MATRIX_SIZE, matrix, 0, SpriteList.MATRIX_SIZE);
+        drawSprite(sprites.images[i], sprites.x[i], sprites.y[i], sprites.width[i], sprites.height[i]);
+    }
 
-        context.restore(); // Al final asegura que el proximo frame comience con un estado limpio del contexto
+    /**
+     * <p>
+     * Dibuja una imagen con la transformacion en pantalla guardada en {@code matrix}.
+     * <p>
+     * Si hay una cache de rotaciones y la transformacion es rigida, se dibuja la copia pre-rotada sin transformar el contexto,
+     * en la posicion de pantalla de la esquina de la imagen redondeada al pixel. Si no, se transforma el contexto y la imagen
+     * se dibuja desde su region del atlas, con el rectangulo de origen, o desde su propia textura si no esta en el atlas.
+     */
+    private void drawSprite(Image image, double x, double y, double width, double height) {
+        double[] m = matrix;
+        if (rotationCache != null && image != null && isRigid(m)) {
+            RotationCache.Frame frame = rotationCache.get(image, width, height, Math.toDegrees(Math.atan2(m[1], m[0])));
+            if (frame != null) {
+                if (transformState != IDENTITY_TRANSFORM) {
+                    backend.setTransform(1, 0, 0, 1, 0, 0);
+                    transformState = IDENTITY_TRANSFORM;
+                }
+                double screenX = m[0] * x + m[2] * y + m[4], screenY = m[1] * x + m[3] * y + m[5];
+                backend.drawImage(frame.image, Math.round(screenX) + frame.offsetX, Math.round(screenY) + frame.offsetY);
+                return;
+            }
+        }
+        transformContext();
+        AtlasRegion region = atlas != null ? atlas.getRegion(image) : null;
+        if (region == null) backend.drawImage(image, x, y, width, height);
+        else backend.drawImage(region.getPage(), region.getX(), region.getY(), region.getWidth(), region.getHeight(), x, y, width, height);
+    }
+
+    /**
+     * Comprueba si una transformacion es solo una rotacion y una traslacion, sin escala ni reflejo.
+     */
+    private static boolean isRigid(double[] m) {
+        return Math.abs(m[0] - m[3]) < RIGID_EPSILON && Math.abs(m[1] + m[2]) < RIGID_EPSILON
+                && Math.abs(m[0] * m[0] + m[1] * m[1] - 1) < RIGID_EPSILON;
+    }
+
+    /**
+     * Obtiene la transformacion de vista de la camara para el tamaño actual del canvas.
+     */
+    private void updateView() {
+        view = camera != null ? camera.getView(backend.getWidth(), backend.getHeight()) : IDENTITY;
+        viewChanged = backend.getWidth() != lastWidth || backend.getHeight() != lastHeight;
+        for (int k = 0; k < lastView.length; k++)
+            if (view[k] != lastView[k]) viewChanged = true;
+        lastWidth = backend.getWidth();
+        lastHeight = backend.getHeight();
+        System.arraycopy(view, 0, lastView, 0, lastView.length);
+    }
+
+    /**
+     * Antepone la transformacion de vista a la transformacion del mundo guardada en {@code matrix}, para obtener la
+     * transformacion en pantalla.
+     */
+    private void concatenateView() {
+        double[] m = matrix, v = view;
+        if (v == IDENTITY) return;
+        double mxx = m[0], myx = m[1], mxy = m[2], myy = m[3], tx = m[4], ty = m[5];
+        m[0] = v[0] * mxx + v[2] * myx;
+        m[1] = v[1] * mxx + v[3] * myx;
+        m[2] = v[0] * mxy + v[2] * myy;
+        m[3] = v[1] * mxy + v[3] * myy;
+        m[4] = v[0] * tx + v[2] * ty + v[4];
+        m[5] = v[1] * tx + v[3] * ty + v[5];
+    }
+
+    /**
+     * Completa y registra el evento de JFR del renderizado, solo si hay una grabacion que lo necesite.
+     */
+    private static void commit(RenderEvent event, int entityCount, int drawCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = FrameCounter.current();
+            event.entityCount = entityCount;
+            event.drawCount = drawCount;
+            event.commit();
+        }
     }
 
     /**
@@ -152,7 +626,15 @@ public class Renderer {
      * canvas para dibujar el fondo del siguiente frame y las posiciones de los jugadores.
      */
     public void prepare() {
-        context.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        PrepareEvent event = new PrepareEvent();
+        event.begin();
+        // En el modo de regiones sucias el canvas conserva el frame anterior, y render() limpia solo lo necesario
+        if (!dirtyRendering && rasterizer == null) backend.clearRect(0, 0, backend.getWidth(), backend.getHeight());
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = FrameCounter.current();
+            event.commit();
+        }
     }
 
     /**
@@ -166,16 +648,14 @@ public class Renderer {
      *   <li>Aplicar la matriz de transformacion al contexto grafico</li>
      * </ul>
      * La rotacion se realiza alrededor del centro de la entidad, lo que permite un movimiento natural y realista cuando la
-     * entidad gira. Esta transformacion afecta a todas las operaciones de dibujado ({@code drawImage()}) posteriores hasta que el
-     * contexto sea restaurado.
-     *
-     * @param entity la entidad cuya transformacion de rotacion se va a aplicar al contexto grafico. La entidad debe proporcionar
-     *               su centro y angulo de rotacion actual.
+     * entidad gira. Si la entidad esta unida a otra, la transformacion incluye tambien la de su padre. La matriz se toma de la
+     * cache del almacen, por lo que una entidad quieta no recalcula senos ni cosenos, y la vista de la camara se antepone al
+     * comprobar si la entidad es visible. Esta transformacion afecta a todas las operaciones de dibujado ({@code drawImage()})
+     * posteriores hasta que el contexto sea restaurado.
      */
-    private void transformContext(Entity entity) {
-        Point2D center = entity.getCenter();
-        Rotate r = new Rotate(entity.getRotation(), center.getX(), center.getY());
-        context.setTransform(r.getMxx(), r.getMyx(), r.getMxy(), r.getMyy(), r.getTx(), r.getTy());
+    private void transformContext() {
+        backend.setTransform(matrix[0], matrix[1], matrix[2], matrix[3], matrix[4], matrix[5]);
+        transformState = SPRITE_TRANSFORM;
     }
 
 }
@@ -0,0 +1,226 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * <p>
+ * Cache de sprites pre-rotados. Para cada imagen, tamaño de dibujo y angulo cuantizado guarda una copia ya rotada y escalada,
+ * de modo que el renderizador la dibuja con un {@code drawImage()} sin transformacion en lugar de rotar la imagen en cada frame.
+ * En el pipeline por software de Prism (maquinas sin GPU) el dibujo rotado y escalado es el camino mas lento.
+ * <p>
+ * Los angulos se cuantizan en {@code angles} pasos por vuelta, asi que la rotacion dibujada puede diferir hasta medio paso de la
+ * real. Las copias se generan la primera vez que se necesitan, con muestreo bilineal, y se descartan las menos usadas (LRU)
+ * cuando la memoria ocupada supera el limite.
+ * <p>
+ * La cache se consulta sin crear objetos: la busqueda usa una clave reutilizable y solo se crea una clave nueva al guardar una
+ * copia.
+ */
+
+public class RotationCache {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final int angles;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Frame> frames = new LinkedHashMap<>(16, 0.75f, true); // Orden de acceso, para LRU
+    private final Key probe = new Key();
+    private long bytes;
+    private long hits, misses;
+
+    /**
+     * Crea una cache vacia.
+     *
+     * @param angles   cantidad de angulos por vuelta completa.
+     * @param maxBytes memoria maxima que pueden ocupar las copias, en bytes.
+     * @throws IllegalArgumentException si la cantidad de angulos o la memoria no son positivas.
+     */
+    public RotationCache(int angles, long maxBytes) {
+        if (angles <= 0) throw new IllegalArgumentException("The number of angles must be greater than 0!");
+        if (maxBytes <= 0) throw new IllegalArgumentException("The memory limit must be greater than 0!");
+        this.angles = angles;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Obtiene la copia de una imagen rotada alrededor de su esquina superior izquierda, generandola si no esta en la cache.
+     *
+     * @param image  imagen original.
+     * @param width  ancho con el que se dibuja la imagen.
+     * @param height alto con el que se dibuja la imagen.
+     * @param angle  angulo en grados.
+     * @return la copia, o null si no se pueden leer los pixeles de la imagen o si la copia no entra en la memoria.
+     */
+    Frame get(Image image, double width, double height, double angle) {
+        int index = (int) Math.round(angle * angles / 360) % angles;
+        if (index < 0) index += angles;
+        probe.set(image, (float) width, (float) height, index);
+        Frame frame = frames.get(probe);
+        probe.image = null; // No retiene la imagen despues de la busqueda
+        if (frame != null) {
+            hits++;
+            return frame;
+        }
+        misses++;
+        frame = render(image, width, height, index * 360.0 / angles);
+        if (frame == null) return null;
+        long size = (long) frame.image.getWidth() * (long) frame.image.getHeight() * BYTES_PER_PIXEL;
+        if (size > maxBytes) return null;
+        Key key = new Key();
+        key.set(image, (float) width, (float) height, index);
+        frames.put(key, frame);
+        bytes += size;
+        evict();
+        return frame;
+    }
+
+    /**
+     * Descarta las copias usadas hace mas tiempo hasta volver a estar dentro del limite de memoria.
+     */
+    private void evict() {
+        Iterator<Frame> iterator = frames.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Frame frame = iterator.next();
+            bytes -= (long) frame.image.getWidth() * (long) frame.image.getHeight() * BYTES_PER_PIXEL;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Genera la copia rotada recorriendo los pixeles de destino y muestreando la imagen original con la rotacion inversa.
+     */
+    private static Frame render(Image image, double width, double height, double angle) {
+        PixelReader reader = image.getPixelReader();
+        int sourceWidth = (int) image.getWidth(), sourceHeight = (int) image.getHeight();
+        if (reader == null || sourceWidth == 0 || sourceHeight == 0 || width <= 0 || height <= 0) return null;
+
+        double radians = Math.toRadians(angle);
+        double cos = Math.cos(radians), sin = Math.sin(radians);
+        // Caja que contiene el rectangulo rotado, relativa a la esquina (0, 0) de la imagen
+        double wx = cos * width, wy = sin * width, hx = -sin * height, hy = cos * height;
+        int minX = (int) Math.floor(Math.min(0, wx) + Math.min(0, hx)), maxX = (int) Math.ceil(Math.max(0, wx) + Math.max(0, hx));
+        int minY = (int) Math.floor(Math.min(0, wy) + Math.min(0, hy)), maxY = (int) Math.ceil(Math.max(0, wy) + Math.max(0, hy));
+        int frameWidth = Math.max(1, maxX - minX), frameHeight = Math.max(1, maxY - minY);
+
+        WritableImage target = new WritableImage(frameWidth, frameHeight);
+        PixelWriter writer = target.getPixelWriter();
+        double scaleX = sourceWidth / width, scaleY = sourceHeight / height;
+        for (int py = 0; py < frameHeight; py++) {
+            for (int px = 0; px < frameWidth; px++) {
+                double dx = minX + px + 0.5, dy = minY + py + 0.5;
+                // Rotacion inversa (traspuesta) y paso a coordenadas de la imagen original
+                double u = (cos * dx + sin * dy) * scaleX - 0.5, v = (-sin * dx + cos * dy) * scaleY - 0.5;
+                writer.setArgb(px, py, sample(reader, sourceWidth, sourceHeight, u, v));
+            }
+        }
+        return new Frame(target, minX, minY);
+    }
+
+    /**
+     * Interpola bilinealmente los cuatro pixeles que rodean un punto, con el color ponderado por su transparencia. Los pixeles
+     * fuera de la imagen son transparentes.
+     */
+    private static int sample(PixelReader reader, int width, int height, double u, double v) {
+        int x0 = (int) Math.floor(u), y0 = (int) Math.floor(v);
+        if (x0 < -1 || y0 < -1 || x0 >= width || y0 >= height) return 0;
+        double fx = u - x0, fy = v - y0;
+        double a = 0, r = 0, g = 0, b = 0;
+        for (int j = 0; j <= 1; j++) {
+            int y = y0 + j;
+            if (y < 0 || y >= height) continue;
+            double wy = j == 0 ? 1 - fy : fy;
+            for (int i = 0; i <= 1; i++) {
+                int x = x0 + i;
+                if (x < 0 || x >= width) continue;
+                double weight = wy * (i == 0 ? 1 - fx : fx);
+                int argb = reader.getArgb(x, y);
+                double alpha = (argb >>> 24) * weight;
+                a += alpha;
+                r += ((argb >> 16) & 0xff) * alpha;
+                g += ((argb >> 8) & 0xff) * alpha;
+                b += (argb & 0xff) * alpha;
+            }
+        }
+        if (a <= 0) return 0;
+        return (int) Math.round(a) << 24 | (int) Math.round(r / a) << 16 | (int) Math.round(g / a) << 8 | (int) Math.round(b / a);
+    }
+
+    public void clear() {
+        frames.clear();
+        bytes = 0;
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    /**
+     * Obtiene la memoria que ocupan las copias guardadas.
+     *
+     * @return la memoria ocupada en bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Copia rotada de una imagen y la posicion de su esquina respecto de la esquina de la imagen sin rotar.
+     */
+    static final class Frame {
+
+        final Image image;
+        final int offsetX, offsetY;
+
+        Frame(Image image, int offsetX, int offsetY) {
+            this.image = image;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+    }
+
+    /**
+     * Clave de la cache. La imagen se compara por identidad, igual que en el atlas.
+     */
+    private static final class Key {
+
+        Image image;
+        float width, height;
+        int angle;
+
+        void set(Image image, float width, float height, int angle) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.angle = angle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && key.image == image && key.width == width && key.height == height && key.angle == angle;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(image);
+            hash = 31 * hash + Float.floatToIntBits(width);
+            hash = 31 * hash + Float.floatToIntBits(height);
+            return 31 * hash + angle;
+        }
+
+    }
+
+}
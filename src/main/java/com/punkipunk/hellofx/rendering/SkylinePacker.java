@@ -0,0 +1,128 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Empaquetador de rectangulos en una pagina de tamaño fijo con el algoritmo de la linea de horizonte (skyline), variante
+ * bottom-left.
+ * <p>
+ * La pagina se describe por su "horizonte": una lista de segmentos horizontales ordenados por x, cada uno con la altura hasta la
+ * que esta ocupada la pagina en ese tramo. Un rectangulo nuevo se apoya sobre el horizonte en la posicion que deja su borde
+ * superior mas abajo (la menor y) y, a igualdad, la que desperdicia menos espacio bajo el. Despues el horizonte se actualiza
+ * con el borde del rectangulo y se unen los segmentos contiguos de igual altura. Cada insercion cuesta O(n) en la cantidad de
+ * segmentos y las imagenes se pueden agregar de a una, sin conocerlas todas de antemano.
+ */
+
+final class SkylinePacker {
+
+    private final int width, height;
+
+    // Segmentos del horizonte, ordenados por x
+    private int[] xs = new int[16], ys = new int[16], widths = new int[16];
+    private int count;
+
+    SkylinePacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        xs[0] = 0;
+        ys[0] = 0;
+        widths[0] = width;
+        count = 1;
+    }
+
+    /**
+     * Busca lugar para un rectangulo y lo ocupa.
+     *
+     * @param w   ancho del rectangulo.
+     * @param h   alto del rectangulo.
+     * @param out destino de la posicion x e y asignada.
+     * @return true si el rectangulo entro en la pagina o false si no queda lugar.
+     */
+    boolean insert(int w, int h, int[] out) {
+        int bestIndex = -1, bestY = Integer.MAX_VALUE, bestWaste = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int x = xs[i];
+            if (x + w > width) break;
+            // Altura a la que queda apoyado el rectangulo sobre los segmentos que cubre, y area libre que queda debajo
+            int y = 0, waste = 0, remaining = w;
+            for (int j = i; remaining > 0; j++) {
+                y = Math.max(y, ys[j]);
+                remaining -= widths[j];
+            }
+            remaining = w;
+            for (int j = i; remaining > 0; j++) {
+                int span = Math.min(widths[j], remaining);
+                waste += (y - ys[j]) * span;
+                remaining -= span;
+            }
+            if (y + h > height) continue;
+            if (y < bestY || (y == bestY && waste < bestWaste)) {
+                bestIndex = i;
+                bestY = y;
+                bestWaste = waste;
+            }
+        }
+        if (bestIndex < 0) return false;
+        out[0] = xs[bestIndex];
+        out[1] = bestY;
+        place(bestIndex, w, bestY + h);
+        return true;
+    }
+
+    /**
+     * Reemplaza por un segmento nuevo la parte del horizonte que cubre el rectangulo colocado.
+     */
+    private void place(int index, int w, int top) {
+        int x = xs[index], end = x + w;
+        // Primer segmento que no queda completamente cubierto
+        int next = index;
+        while (next < count && xs[next] + widths[next] <= end) next++;
+        if (next < count && xs[next] < end) {
+            widths[next] -= end - xs[next];
+            xs[next] = end;
+        }
+        // Los segmentos [index, next) se reemplazan por uno solo
+        int removed = next - index;
+        if (removed == 0) {
+            if (count == xs.length) grow();
+            System.arraycopy(xs, index, xs, index + 1, count - index);
+            System.arraycopy(ys, index, ys, index + 1, count - index);
+            System.arraycopy(widths, index, widths, index + 1, count - index);
+            count++;
+        } else if (removed > 1) {
+            System.arraycopy(xs, next, xs, index + 1, count - next);
+            System.arraycopy(ys, next, ys, index + 1, count - next);
+            System.arraycopy(widths, next, widths, index + 1, count - next);
+            count -= removed - 1;
+        }
+        xs[index] = x;
+        ys[index] = top;
+        widths[index] = w;
+        merge();
+    }
+
+    /**
+     * Une los segmentos contiguos de igual altura.
+     */
+    private void merge() {
+        int last = 0;
+        for (int i = 1; i < count; i++) {
+            if (ys[i] == ys[last]) widths[last] += widths[i];
+            else {
+                last++;
+                xs[last] = xs[i];
+                ys[last] = ys[i];
+                widths[last] = widths[i];
+            }
+        }
+        count = last + 1;
+    }
+
+    private void grow() {
+        xs = Arrays.copyOf(xs, count * 2);
+        ys = Arrays.copyOf(ys, count * 2);
+        widths = Arrays.copyOf(widths, count * 2);
+    }
+
+}
@@ -0,0 +1,356 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+/**
+ * <p>
+ * Rasterizador por software que compone los sprites de un frame en un {@link PixelBuffer} respaldado por un buffer directo, en
+ * lugar de emitir llamadas al {@code GraphicsContext}.
+ * <p>
+ * Con el canvas, todo el dibujo ocurre en serie dentro de Prism en el hilo de JavaFX. Aca el framebuffer se divide en tiles
+ * cuadrados que se rasterizan en paralelo en el pool de fork-join: cada tile copia su parte del fondo y dibuja encima, en orden,
+ * los sprites cuya caja lo toca, con la transformacion inversa de cada uno (escala y rotacion, muestreo por vecino mas cercano)
+ * y mezcla alfa en formato premultiplicado. Antes de rasterizar, los sprites se reparten en una lista por tile (en orden de
+ * dibujo), asi que cada tile solo recorre los sprites que lo tocan en lugar de todos los del frame. Los tiles no comparten
+ * pixeles, asi que no necesitan sincronizarse. Al terminar,
+ * una sola llamada a {@code updateBuffer()} le avisa al {@link ImageView} que el frame cambio.
+ * <p>
+ * Las imagenes se convierten a enteros ARGB premultiplicados la primera vez que se dibujan y se guardan por identidad. Todo lo
+ * que se comparte con los hilos del pool se prepara antes de lanzarlos y no se modifica mientras trabajan.
+ */
+
+public class SoftwareRasterizer {
+
+    private static final int DEFAULT_TILE_SIZE = 64;
+    private static final int PROJECTILE_COLOR = 0xFFFFA500; // Naranja opaco
+    private static final int SAMPLER_SIZE = 6;
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+    private final ImageView view = new ImageView();
+
+    private int width, height, columns, rows;
+    private IntBuffer buffer;
+    private PixelBuffer<IntBuffer> pixelBuffer;
+    private int[][] tiles; // Pixeles de trabajo de cada tile
+
+    private final Map<Image, int[]> pixels = new IdentityHashMap<>();
+    private int[] background;
+    private int backgroundWidth, backgroundHeight;
+
+    // Datos de los sprites visibles del frame, alineados entre si
+    private int[][] sources = new int[64][];
+    private int[] sourceWidths = new int[64], sourceHeights = new int[64];
+    private double[] samplers = new double[64 * SAMPLER_SIZE]; // Transformacion inversa, de pantalla a pixeles de la imagen
+    private int[] minX = new int[64], minY = new int[64], maxX = new int[64], maxY = new int[64];
+    private int count;
+
+    // Sprites de cada tile: los del tile t estan en bins[binStarts[t]] hasta bins[binStarts[t + 1]], en orden de dibujo
+    private int[] binStarts, binCursors;
+    private int[] bins = new int[256];
+
+    public SoftwareRasterizer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Crea un rasterizador.
+     *
+     * @param pool     pool donde se rasterizan los tiles.
+     * @param tileSize ancho y alto de cada tile en pixeles.
+     * @throws IllegalArgumentException si el tamaño de tile no es positivo.
+     */
+    public SoftwareRasterizer(ForkJoinPool pool, int tileSize) {
+        if (tileSize <= 0) throw new IllegalArgumentException("The tile size must be greater than 0!");
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Obtiene el nodo que muestra el framebuffer, para agregarlo a la escena en lugar del canvas.
+     *
+     * @return la vista del framebuffer.
+     */
+    public ImageView getView() {
+        return view;
+    }
+
+    /**
+     * Compone un frame y lo publica en la vista. Debe llamarse desde el hilo de JavaFX.
+     *
+     * @param sprites    sprites del frame, con su transformacion en pantalla.
+     * @param image      fondo dibujado sin transformar en (0, 0), o null.
+     * @param width      ancho del framebuffer.
+     * @param height     alto del framebuffer.
+     * @return la cantidad de sprites dibujados.
+     */
+    int render(SpriteList sprites, Image image, int width, int height) {
+        if (width <= 0 || height <= 0) return 0;
+        if (width != this.width || height != this.height || pixelBuffer == null) resize(width, height);
+        int draws = prepare(sprites, image);
+        rasterize();
+        pixelBuffer.updateBuffer(buffer -> null); // Todo el framebuffer cambio
+        return draws;
+    }
+
+    private void resize(int width, int height) {
+        allocate(width, height);
+        pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+        view.setImage(new WritableImage(pixelBuffer));
+    }
+
+    private void allocate(int width, int height) {
+        this.width = width;
+        this.height = height;
+        buffer = ByteBuffer.allocateDirect(width * height * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        columns = (width + tileSize - 1) / tileSize;
+        rows = (height + tileSize - 1) / tileSize;
+        tiles = new int[columns * rows][];
+        binStarts = new int[columns * rows + 1];
+        binCursors = new int[columns * rows];
+    }
+
+    /**
+     * Carga los pixeles del fondo y de las imagenes, y calcula para cada sprite visible la transformacion inversa y su caja en
+     * pixeles, antes de repartir el trabajo entre los hilos.
+     */
+    private int prepare(SpriteList sprites, Image image) {
+        background = image != null ? pixelsOf(image) : null;
+        if (background != null) {
+            backgroundWidth = (int) image.getWidth();
+            backgroundHeight = (int) image.getHeight();
+        }
+
+        count = 0;
+        for (int i = 0; i < sprites.count; i++) {
+            if (!sprites.visible[i]) continue;
+            Image sprite = sprites.images[i];
+            int[] source = null;
+            if (!sprites.shapes[i] && (sprite == null || (source = pixelsOf(sprite)) == null)) continue; // Sin pixeles legibles
+            if (count == sourceWidths.length) grow();
+            int s = count++;
+            sources[s] = source;
+            minX[s] = Math.max(0, (int) Math.floor(sprites.minX[i]));
+            minY[s] = Math.max(0, (int) Math.floor(sprites.minY[i]));
+            maxX[s] = Math.min(width, (int) Math.ceil(sprites.maxX[i]));
+            maxY[s] = Math.min(height, (int) Math.ceil(sprites.maxY[i]));
+
+            int m = i * SpriteList.MATRIX_SIZE, o = s * SAMPLER_SIZE;
+            double[] matrix = sprites.matrices;
+            double a = matrix[m], b = matrix[m + 1], c = matrix[m + 2], d = matrix[m + 3], tx = matrix[m + 4], ty = matrix[m + 5];
+            double x = sprites.x[i], y = sprites.y[i], w = sprites.width[i], h = sprites.height[i];
+            if (source == null) {
+                // Proyectil: circulo en pantalla, guardado como centro y radio al cuadrado
+                double cx = x + w / 2, cy = y + h / 2, radius = w / 2 * Math.sqrt(Math.abs(a * d - b * c));
+                samplers[o] = a * cx + c * cy + tx;
+                samplers[o + 1] = b * cx + d * cy + ty;
+                samplers[o + 2] = radius * radius;
+                continue;
+            }
+            int sw = (int) sprite.getWidth(), sh = (int) sprite.getHeight();
+            sourceWidths[s] = sw;
+            sourceHeights[s] = sh;
+            // Inversa de la transformacion, seguida del paso del rectangulo de dibujo a los pixeles de la imagen
+            double determinant = a * d - b * c;
+            if (determinant == 0) {
+                count--;
+                continue;
+            }
+            double ia = d / determinant, ib = -b / determinant, ic = -c / determinant, id = a / determinant;
+            double itx = -(ia * tx + ic * ty), ity = -(ib * tx + id * ty);
+            double kx = sw / w, ky = sh / h;
+            samplers[o] = ia * kx; // du/dx
+            samplers[o + 1] = ic * kx; // du/dy
+            samplers[o + 2] = (itx - x) * kx;
+            samplers[o + 3] = ib * ky; // dv/dx
+            samplers[o + 4] = id * ky; // dv/dy
+            samplers[o + 5] = (ity - y) * ky;
+        }
+        bin();
+        return count + (background != null ? 1 : 0);
+    }
+
+    /**
+     * Reparte los sprites entre los tiles que toca su caja: cuenta los sprites de cada tile, acumula los conteos para obtener
+     * donde empieza la lista de cada tile y recorre los sprites otra vez en orden para llenar las listas.
+     */
+    private void bin() {
+        int tileCount = columns * rows;
+        Arrays.fill(binStarts, 0);
+        for (int s = 0; s < count; s++) {
+            if (minX[s] >= maxX[s] || minY[s] >= maxY[s]) continue;
+            int c0 = minX[s] / tileSize, c1 = (maxX[s] - 1) / tileSize, r0 = minY[s] / tileSize, r1 = (maxY[s] - 1) / tileSize;
+            for (int r = r0; r <= r1; r++)
+                for (int c = c0; c <= c1; c++) binStarts[r * columns + c + 1]++;
+        }
+        for (int t = 0; t < tileCount; t++) binStarts[t + 1] += binStarts[t];
+        if (binStarts[tileCount] > bins.length) bins = new int[Math.max(binStarts[tileCount], bins.length * 2)];
+        System.arraycopy(binStarts, 0, binCursors, 0, tileCount);
+        for (int s = 0; s < count; s++) {
+            if (minX[s] >= maxX[s] || minY[s] >= maxY[s]) continue;
+            int c0 = minX[s] / tileSize, c1 = (maxX[s] - 1) / tileSize, r0 = minY[s] / tileSize, r1 = (maxY[s] - 1) / tileSize;
+            for (int r = r0; r <= r1; r++)
+                for (int c = c0; c <= c1; c++) bins[binCursors[r * columns + c]++] = s;
+        }
+    }
+
+    private int[] pixelsOf(Image image) {
+        int[] cached = pixels.get(image);
+        if (cached != null) return cached;
+        PixelReader reader = image.getPixelReader();
+        int w = (int) image.getWidth(), h = (int) image.getHeight();
+        if (reader == null || w == 0 || h == 0) return null;
+        int[] argb = new int[w * h];
+        reader.getPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(), argb, 0, w);
+        pixels.put(image, argb);
+        return argb;
+    }
+
+    private void rasterize() {
+        int tileCount = columns * rows;
+        if (pool.getParallelism() == 1 || tileCount == 1) rasterize(0, tileCount);
+        else pool.invoke(new Tiles(0, tileCount));
+    }
+
+    private void rasterize(int from, int to) {
+        for (int t = from; t < to; t++) rasterizeTile(t);
+    }
+
+    /**
+     * Divide los tiles por la mitad hasta que cada tarea tiene uno solo.
+     */
+    @SuppressWarnings("serial") // Las tareas nunca se serializan
+    private final class Tiles extends RecursiveAction {
+
+        private final int from, to;
+
+        Tiles(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) rasterize(from, to);
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Tiles(from, middle), new Tiles(middle, to));
+            }
+        }
+
+    }
+
+    private void rasterizeTile(int t) {
+        int x0 = (t % columns) * tileSize, y0 = (t / columns) * tileSize;
+        int x1 = Math.min(x0 + tileSize, width), y1 = Math.min(y0 + tileSize, height);
+        int tw = x1 - x0, th = y1 - y0;
+        int[] tile = tiles[t];
+        if (tile == null) tile = tiles[t] = new int[tileSize * tileSize];
+
+        // Fondo sin transformar en (0, 0), transparente fuera de la imagen
+        for (int py = 0; py < th; py++) {
+            int row = py * tw, y = y0 + py;
+            if (background == null || y >= backgroundHeight || x0 >= backgroundWidth) Arrays.fill(tile, row, row + tw, 0);
+            else {
+                int n = Math.min(tw, backgroundWidth - x0);
+                System.arraycopy(background, y * backgroundWidth + x0, tile, row, n);
+                if (n < tw) Arrays.fill(tile, row + n, row + tw, 0);
+            }
+        }
+
+        for (int b = binStarts[t], end = binStarts[t + 1]; b < end; b++) {
+            int s = bins[b];
+            int sx0 = Math.max(x0, minX[s]), sy0 = Math.max(y0, minY[s]);
+            int sx1 = Math.min(x1, maxX[s]), sy1 = Math.min(y1, maxY[s]);
+            if (sx0 >= sx1 || sy0 >= sy1) continue;
+            if (sources[s] == null) fillCircle(s, tile, x0, y0, tw, sx0, sy0, sx1, sy1);
+            else blit(s, tile, x0, y0, tw, sx0, sy0, sx1, sy1);
+        }
+
+        for (int py = 0; py < th; py++) buffer.put((y0 + py) * width + x0, tile, py * tw, tw);
+    }
+
+    /**
+     * Dibuja la parte de un sprite que cae en un rectangulo del tile, recorriendo los pixeles de destino y buscando el pixel de
+     * la imagen que les corresponde.
+     */
+    private void blit(int s, int[] tile, int x0, int y0, int tw, int sx0, int sy0, int sx1, int sy1) {
+        int[] source = sources[s];
+        int sw = sourceWidths[s], sh = sourceHeights[s], o = s * SAMPLER_SIZE;
+        double dudx = samplers[o], dudy = samplers[o + 1], u0 = samplers[o + 2];
+        double dvdx = samplers[o + 3], dvdy = samplers[o + 4], v0 = samplers[o + 5];
+        for (int py = sy0; py < sy1; py++) {
+            // Centro del primer pixel de la fila, y avance por pixel
+            double cx = sx0 + 0.5, cy = py + 0.5;
+            double u = dudx * cx + dudy * cy + u0, v = dvdx * cx + dvdy * cy + v0;
+            int index = (py - y0) * tw + sx0 - x0;
+            for (int px = sx0; px < sx1; px++, index++, u += dudx, v += dvdx) {
+                if (u < 0 || v < 0 || u >= sw || v >= sh) continue;
+                int color = source[(int) v * sw + (int) u];
+                int alpha = color >>> 24;
+                if (alpha == 0xFF) tile[index] = color;
+                else if (alpha != 0) tile[index] = blend(color, tile[index], alpha);
+            }
+        }
+    }
+
+    private void fillCircle(int s, int[] tile, int x0, int y0, int tw, int sx0, int sy0, int sx1, int sy1) {
+        int o = s * SAMPLER_SIZE;
+        double cx = samplers[o], cy = samplers[o + 1], radius2 = samplers[o + 2];
+        for (int py = sy0; py < sy1; py++) {
+            double dy = py + 0.5 - cy;
+            int index = (py - y0) * tw + sx0 - x0;
+            for (int px = sx0; px < sx1; px++, index++) {
+                double dx = px + 0.5 - cx;
+                if (dx * dx + dy * dy <= radius2) tile[index] = PROJECTILE_COLOR;
+            }
+        }
+    }
+
+    /**
+     * Mezcla un color premultiplicado sobre otro (source-over): {@code resultado = origen + destino * (1 - alfa)}.
+     */
+    private static int blend(int source, int destination, int alpha) {
+        int inverse = 255 - alpha;
+        // Escala dos canales a la vez (alfa y verde, rojo y azul), con la division por 255 aproximada
+        int rb = (destination & 0x00FF00FF) * inverse + 0x00800080;
+        rb = ((rb + ((rb >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+        int ag = ((destination >>> 8) & 0x00FF00FF) * inverse + 0x00800080;
+        ag = (ag + ((ag >>> 8) & 0x00FF00FF)) & 0xFF00FF00;
+        return source + (ag | rb);
+    }
+
+    private void grow() {
+        int capacity = sourceWidths.length * 2;
+        sources = Arrays.copyOf(sources, capacity);
+        sourceWidths = Arrays.copyOf(sourceWidths, capacity);
+        sourceHeights = Arrays.copyOf(sourceHeights, capacity);
+        samplers = Arrays.copyOf(samplers, capacity * SAMPLER_SIZE);
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+    }
+
+    /**
+     * Descarta los pixeles guardados de las imagenes, por ejemplo si dejaron de usarse.
+     */
+    public void clearCache() {
+        pixels.clear();
+    }
+
+}
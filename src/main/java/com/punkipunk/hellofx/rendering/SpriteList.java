@@ -0,0 +1,134 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.Arrays;
+
+import javafx.scene.image.Image;
+
+/**
+ * <p>
+ * Lista de lo que se dibuja en un frame: para cada sprite, la imagen, el rectangulo donde se dibuja, su transformacion en
+ * pantalla y la caja que ocupa en el canvas. Los proyectiles se guardan como formas (circulos) sin imagen. Una entidad sin imagen,
+ * como las de la simulacion sin toolkit, se guarda como sprite con imagen null y se sigue contando como una llamada de dibujo.
+ * <p>
+ * El renderizador arma la lista antes de dibujar, lo que le permite comparar el frame con el anterior y repintar solo lo que
+ * cambio. Los sprites fuera del canvas tambien se guardan (marcados como no visibles) para que cada entidad conserve su posicion
+ * en la lista entre frames. Los arreglos se reutilizan y solo crecen.
+ */
+
+final class SpriteList {
+
+    static final int MATRIX_SIZE = 6;
+
+    Image[] images = new Image[64];
+    double[] x = new double[64], y = new double[64], width = new double[64], height = new double[64];
+    double[] matrices = new double[64 * MATRIX_SIZE];
+    // Caja en pantalla
+    double[] minX = new double[64], minY = new double[64], maxX = new double[64], maxY = new double[64];
+    boolean[] visible = new boolean[64];
+    boolean[] shapes = new boolean[64]; // true para un proyectil, que se dibuja como circulo
+    int count;
+
+    void clear() {
+        // Libera las imagenes para no retener entidades eliminadas
+        Arrays.fill(images, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Agrega un sprite y calcula la caja que ocupa en pantalla transformando las cuatro esquinas de su rectangulo. La caja puede
+     * ser algo mas grande que la imagen rotada, por lo que nunca se descarta algo visible.
+     *
+     * @param image        imagen del sprite, o null si la entidad no tiene imagen.
+     * @param matrix       transformacion en pantalla.
+     * @param canvasWidth  ancho del canvas.
+     * @param canvasHeight alto del canvas.
+     * @return true si el sprite toca el canvas o false en caso contrario.
+     */
+    boolean add(Image image, double x, double y, double width, double height, double[] matrix, double canvasWidth, double canvasHeight) {
+        return add(image, false, x, y, width, height, matrix, canvasWidth, canvasHeight);
+    }
+
+    /**
+     * Agrega un proyectil, que se dibuja como un circulo inscrito en su rectangulo.
+     */
+    boolean addShape(double x, double y, double width, double height, double[] matrix, double canvasWidth, double canvasHeight) {
+        return add(null, true, x, y, width, height, matrix, canvasWidth, canvasHeight);
+    }
+
+    private boolean add(Image image, boolean shape, double x, double y, double width, double height, double[] matrix,
+                        double canvasWidth, double canvasHeight) {
+        if (count == images.length) grow();
+        int i = count++;
+        images[i] = image;
+        shapes[i] = shape;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.width[i] = width;
+        this.height[i] = height;
+        System.arraycopy(matrix, 0, matrices, i * MATRIX_SIZE, MATRIX_SIZE);
+        double[] m = matrix;
+        // Esquina (x, y) transformada y los dos lados del rectangulo como vectores
+        double cornerX = m[0] * x + m[2] * y + m[4], cornerY = m[1] * x + m[3] * y + m[5];
+        double wx = m[0] * width, wy = m[1] * width, hx = m[2] * height, hy = m[3] * height;
+        minX[i] = cornerX + Math.min(wx, 0) + Math.min(hx, 0);
+        maxX[i] = cornerX + Math.max(wx, 0) + Math.max(hx, 0);
+        minY[i] = cornerY + Math.min(wy, 0) + Math.min(hy, 0);
+        maxY[i] = cornerY + Math.max(wy, 0) + Math.max(hy, 0);
+        return visible[i] = maxX[i] >= 0 && maxY[i] >= 0 && minX[i] <= canvasWidth && minY[i] <= canvasHeight;
+    }
+
+    /**
+     * Agrega al final una copia de un tramo de otra lista.
+     *
+     * @param source lista de origen.
+     * @param from   primer sprite a copiar.
+     * @param to     sprite siguiente al ultimo a copiar.
+     */
+    void addAll(SpriteList source, int from, int to) {
+        int n = to - from;
+        while (count + n > images.length) grow();
+        System.arraycopy(source.images, from, images, count, n);
+        System.arraycopy(source.x, from, x, count, n);
+        System.arraycopy(source.y, from, y, count, n);
+        System.arraycopy(source.width, from, width, count, n);
+        System.arraycopy(source.height, from, height, count, n);
+        System.arraycopy(source.matrices, from * MATRIX_SIZE, matrices, count * MATRIX_SIZE, n * MATRIX_SIZE);
+        System.arraycopy(source.minX, from, minX, count, n);
+        System.arraycopy(source.minY, from, minY, count, n);
+        System.arraycopy(source.maxX, from, maxX, count, n);
+        System.arraycopy(source.maxY, from, maxY, count, n);
+        System.arraycopy(source.visible, from, visible, count, n);
+        System.arraycopy(source.shapes, from, shapes, count, n);
+        count += n;
+    }
+
+    /**
+     * Comprueba si un sprite se dibuja igual que el sprite de la misma posicion en otra lista.
+     */
+    boolean same(int i, SpriteList other) {
+        if (i >= other.count || images[i] != other.images[i] || visible[i] != other.visible[i] || shapes[i] != other.shapes[i]
+                || x[i] != other.x[i]
+                || y[i] != other.y[i] || width[i] != other.width[i] || height[i] != other.height[i]) return false;
+        int o = i * MATRIX_SIZE;
+        for (int k = o; k < o + MATRIX_SIZE; k++)
+            if (matrices[k] != other.matrices[k]) return false;
+        return true;
+    }
+
+    private void grow() {
+        int capacity = images.length * 2;
+        images = Arrays.copyOf(images, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        matrices = Arrays.copyOf(matrices, capacity * MATRIX_SIZE);
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        visible = Arrays.copyOf(visible, capacity);
+        shapes = Arrays.copyOf(shapes, capacity);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.punkipunk.hellofx.rendering;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * <p>
+ * Atlas de texturas: copia muchas imagenes pequeñas en unas pocas paginas grandes, ubicadas con un {@link SkylinePacker}.
+ * <p>
+ * Prism sube cada {@code Image} como una textura propia, por lo que dibujar entidades con imagenes distintas obliga a cambiar de
+ * textura entre llamadas. Si las imagenes comparten pagina, el renderizador las dibuja con la variante de {@code drawImage()}
+ * que recibe el rectangulo de origen y todas esas llamadas usan la misma textura.
+ * <p>
+ * Cada imagen se rodea de un borde de {@code padding} pixeles que repite sus pixeles de los bordes, para que el suavizado al
+ * escalar o rotar no mezcle colores de la imagen vecina. Las imagenes mas grandes que una pagina (como el fondo) no se pueden
+ * agregar y se siguen dibujando por separado.
+ */
+
+public class TextureAtlas {
+
+    private final int pageSize, padding;
+    private final List<WritableImage> pages = new ArrayList<>();
+    private final List<SkylinePacker> packers = new ArrayList<>();
+    // Identidad de la imagen original, igual que la cache de mascaras de colision
+    private final Map<Image, AtlasRegion> regions = new IdentityHashMap<>();
+    private final int[] position = new int[2];
+
+    /**
+     * Crea un atlas vacio.
+     *
+     * @param pageSize ancho y alto de cada pagina en pixeles.
+     * @param padding  pixeles de borde alrededor de cada imagen.
+     * @throws IllegalArgumentException si el tamaño de pagina no es positivo o el borde es negativo.
+     */
+    public TextureAtlas(int pageSize, int padding) {
+        if (pageSize <= 0) throw new IllegalArgumentException("The page size must be greater than 0!");
+        if (padding < 0) throw new IllegalArgumentException("The padding cannot be negative!");
+        this.pageSize = pageSize;
+        this.padding = padding;
+    }
+
+    /**
+     * Agrega una imagen al atlas, en la primera pagina donde entre o en una pagina nueva. Agregar dos veces la misma imagen
+     * devuelve la misma region.
+     *
+     * @param image imagen a agregar, ya cargada.
+     * @return la region de la imagen en el atlas.
+     * @throws IllegalArgumentException si la imagen (con su borde) no entra en una pagina o no se pueden leer sus pixeles.
+     */
+    public AtlasRegion add(Image image) {
+        AtlasRegion region = regions.get(image);
+        if (region != null) return region;
+
+        int width = (int) image.getWidth(), height = (int) image.getHeight();
+        int paddedWidth = width + 2 * padding, paddedHeight = height + 2 * padding;
+        if (paddedWidth > pageSize || paddedHeight > pageSize)
+            throw new IllegalArgumentException("The image (" + width + "x" + height + ") does not fit in a " + pageSize + " page!");
+        PixelReader reader = image.getPixelReader();
+        if (reader == null) throw new IllegalArgumentException("The image pixels cannot be read!");
+
+        int page = 0;
+        while (page < packers.size() && !packers.get(page).insert(paddedWidth, paddedHeight, position)) page++;
+        if (page == packers.size()) {
+            SkylinePacker packer = new SkylinePacker(pageSize, pageSize);
+            packer.insert(paddedWidth, paddedHeight, position);
+            packers.add(packer);
+            pages.add(new WritableImage(pageSize, pageSize));
+        }
+
+        WritableImage target = pages.get(page);
+        int x = position[0] + padding, y = position[1] + padding;
+        copy(reader, width, height, target.getPixelWriter(), x, y);
+        region = new AtlasRegion(target, x, y, width, height);
+        regions.put(image, region);
+        return region;
+    }
+
+    /**
+     * Copia los pixeles de la imagen y repite sus bordes en el relleno que la rodea.
+     */
+    private void copy(PixelReader reader, int width, int height, PixelWriter writer, int x, int y) {
+        for (int py = -padding; py < height + padding; py++) {
+            int sourceY = Math.min(Math.max(py, 0), height - 1);
+            for (int px = -padding; px < width + padding; px++) {
+                int sourceX = Math.min(Math.max(px, 0), width - 1);
+                writer.setArgb(x + px, y + py, reader.getArgb(sourceX, sourceY));
+            }
+        }
+    }
+
+    /**
+     * Obtiene la region de una imagen agregada al atlas.
+     *
+     * @param image imagen original.
+     * @return la region de la imagen, o null si la imagen no esta en el atlas.
+     */
+    public AtlasRegion getRegion(Image image) {
+        return regions.get(image);
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public Image getPage(int index) {
+        return pages.get(index);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+}
@@ -21,6 +21,8 @@ module com.punkipunk.hellofx { // Define el nombre del modulo
     requires javafx.fxml; // Ya 'requires' javafx.base y javafx.graphics, por lo tanto no necesitamos agregarlos
     requires java.desktop;
     requires jdk.unsupported.desktop;
+    requires jdk.jfr; // Eventos de JDK Flight Recorder para perfilar las fases de cada frame
+    requires jdk.management; // Contadores de memoria asignada por hilo para la simulacion headless
     /* Usaremos FXMLLoader para cargar nuestros controladores en la interfaz de usuario. Por esa razon, tambien debemos
      * asegurarnos de que el modulo fxml de JavaFX pueda acceder a nuestros controladores, por lo que agregaremos la siguiente
      * linea debajo de las declaraciones requeridas. */
@@ -0,0 +1,79 @@
+package com.punkipunk.hellofx.models;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * Version vectorizada (SIMD) de la actualizacion de {@link EntityStore}, escrita con la Vector API del modulo incubador
+ * {@code jdk.incubator.vector}.
+ * <p>
+ * En lugar de procesar una entidad a la vez, carga {@code SPECIES.length()} entidades consecutivas de cada arreglo en un
+ * registro vectorial (8 con AVX2, 16 con AVX-512) y aplica el arrastre y la integracion a todas en la misma instruccion. Las
+ * ramas de {@code applyDrag()} y {@code reduceTowardsZero()} se reemplazan por mascaras: se calculan ambos resultados y se elige
+ * el de cada carril con {@code blend()}. Las operaciones son las mismas (multiplicacion y suma sin FMA, restas y comparaciones
+ * de punto flotante) y en el mismo orden que en la version escalar, por lo que los resultados son identicos bit a bit.
+ * <p>
+ * Las entidades que no llenan un vector completo al final del rango se actualizan con la version escalar.
+ * <p>
+ * Esta clase vive en {@code src/main/vector} y solo se compila con el perfil {@code vector} de Maven, para que la compilacion
+ * normal no dependa del modulo incubador. {@link EntityStore} la carga por reflexion si esta compilada y el modulo esta presente
+ * en tiempo de ejecucion (ver {@link EntityStore#isVectorSupported()}).
+ */
+
+final class VectorKernel implements EntityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final FloatVector ZERO = FloatVector.zero(SPECIES);
+    private static final FloatVector SLOW_VELOCITY_DRAG = FloatVector.broadcast(SPECIES, 0.01f);
+    private static final FloatVector FAST_VELOCITY_DRAG = FloatVector.broadcast(SPECIES, 0.07f);
+    private static final FloatVector SLOW_ROTATION_DRAG = FloatVector.broadcast(SPECIES, 0.05f);
+    private static final FloatVector FAST_ROTATION_DRAG = FloatVector.broadcast(SPECIES, 0.1f);
+
+    VectorKernel() {
+    }
+
+    @Override
+    public void update(EntityStore store, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, store.x, i);
+            FloatVector y = FloatVector.fromArray(SPECIES, store.y, i);
+            FloatVector rotation = FloatVector.fromArray(SPECIES, store.rotation, i);
+            x.intoArray(store.previousX, i);
+            y.intoArray(store.previousY, i);
+            rotation.intoArray(store.previousRotation, i);
+
+            FloatVector vx = FloatVector.fromArray(SPECIES, store.velocityX, i);
+            FloatVector vy = FloatVector.fromArray(SPECIES, store.velocityY, i);
+            FloatVector angularVelocity = FloatVector.fromArray(SPECIES, store.angularVelocity, i);
+
+            FloatVector velocityDrag = FAST_VELOCITY_DRAG.blend(SLOW_VELOCITY_DRAG, vx.mul(vx).add(vy.mul(vy)).lt(0.25f));
+            FloatVector rotationDrag = FAST_ROTATION_DRAG.blend(SLOW_ROTATION_DRAG, angularVelocity.lt(0.2f));
+            vx = reduceTowardsZero(vx, velocityDrag);
+            vy = reduceTowardsZero(vy, velocityDrag);
+            angularVelocity = reduceTowardsZero(angularVelocity, rotationDrag);
+            vx.intoArray(store.velocityX, i);
+            vy.intoArray(store.velocityY, i);
+            angularVelocity.intoArray(store.angularVelocity, i);
+
+            x.add(vx).intoArray(store.x, i);
+            y.add(vy).intoArray(store.y, i);
+            rotation.add(angularVelocity).intoArray(store.rotation, i);
+        }
+        for (; i < to; i++) store.update(i);
+    }
+
+    /**
+     * Version por carriles de {@code EntityStore.reduceTowardsZero()}: los valores entre {@code -modifier} y {@code modifier}
+     * quedan en cero y el resto se acerca a cero en {@code modifier}.
+     */
+    private static FloatVector reduceTowardsZero(FloatVector value, FloatVector modifier) {
+        VectorMask<Float> above = value.compare(VectorOperators.GT, modifier);
+        VectorMask<Float> below = value.compare(VectorOperators.LT, modifier.neg());
+        return ZERO.blend(value.sub(modifier), above).blend(value.add(modifier), below);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.punkipunk.hellofx.collision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que la grilla informa, una sola vez cada uno, los mismos pares que comparar todos los objetos contra todos, con mas
+ * filtros distintos que grupos para cubrir tambien el grupo que los mezcla.
+ */
+
+class SpatialHashTest {
+
+    private static final int ROUNDS = 200;
+    private static final long SEED = 42;
+
+    @Test
+    void pairsMatchBruteForce() {
+        Random random = new Random(SEED);
+        SpatialHash hash = new SpatialHash(32);
+        for (int round = 0; round < ROUNDS; round++) {
+            int count = 1 + random.nextInt(300), filters = 1 + random.nextInt(12);
+            int[] filterCategories = new int[filters], filterMasks = new int[filters];
+            for (int f = 0; f < filters; f++) {
+                filterCategories[f] = 1 << random.nextInt(4);
+                filterMasks[f] = random.nextInt(16);
+            }
+            int[] categories = new int[count], masks = new int[count];
+            float[][] boxes = new float[count][];
+            hash.clear();
+            for (int i = 0; i < count; i++) {
+                int f = random.nextInt(filters);
+                categories[i] = filterCategories[f];
+                masks[i] = filterMasks[f];
+                float x = random.nextFloat() * 300 - 100, y = random.nextFloat() * 300 - 100; // Tambien celdas negativas
+                boxes[i] = new float[]{x, y, x + random.nextFloat() * 80, y + random.nextFloat() * 80};
+                hash.insert(i, categories[i], masks[i], boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+            }
+
+            Set<Long> expected = new HashSet<>(), actual = new HashSet<>();
+            for (int a = 0; a < count; a++)
+                for (int b = a + 1; b < count; b++)
+                    if ((categories[a] & masks[b]) != 0 && (categories[b] & masks[a]) != 0 && overlaps(boxes[a], boxes[b]))
+                        expected.add(key(a, b));
+            int[] calls = new int[1];
+            hash.forEachPair((a, b) -> {
+                calls[0]++;
+                actual.add(key(a, b));
+            });
+
+            assertEquals(expected, actual, "Round " + round);
+            assertEquals(actual.size(), calls[0], "Duplicate pairs in round " + round);
+        }
+    }
+
+    private static boolean overlaps(float[] a, float[] b) {
+        return a[0] <= b[2] && b[0] <= a[2] && a[1] <= b[3] && b[1] <= a[3];
+    }
+
+    private static long key(int a, int b) {
+        return (long) a << 32 | b;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.punkipunk.hellofx.controls;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import javafx.scene.input.KeyCode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.punkipunk.hellofx.models.TestWorlds;
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * Comprueba que una sesion grabada se reproduce de forma identica, tanto desde el principio como saltando a un tick con
+ * {@link InputReplay#seek(long, float)}.
+ */
+
+class InputReplayTest {
+
+    private static final float FIXED_TIME_STEP = 1.0f / 60.0f;
+    private static final int TICKS = 300;
+    private static final int KEYFRAME_INTERVAL = 50;
+    private static final int SHIPS = 20;
+
+    @AfterEach
+    void releaseKeys() {
+        KeyPolling.getInstance().setReplayKeys(null);
+    }
+
+    @Test
+    void replayAndSeekReproduceTheRecordedState() throws IOException {
+        KeyPolling keys = KeyPolling.getInstance();
+        World world = TestWorlds.create(SHIPS);
+        byte[][] states = new byte[TICKS + 1][];
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (InputRecorder recorder = new InputRecorder(log, world, KEYFRAME_INTERVAL)) {
+            for (int tick = 0; tick < TICKS; tick++) {
+                keys.setReplayKeys(keysAt(tick)); // Simula el teclado de la sesion
+                states[tick] = stateOf(world);
+                recorder.record();
+                world.tick(FIXED_TIME_STEP);
+            }
+        }
+        states[TICKS] = stateOf(world);
+        keys.setReplayKeys(null);
+
+        World replayed = TestWorlds.create(SHIPS);
+        InputReplay replay = InputReplay.read(new ByteArrayInputStream(log.toByteArray()), replayed);
+        assertEquals(TICKS, replay.getLength());
+        assertArrayEquals(states[0], stateOf(replayed));
+        while (!replay.isFinished()) replay.step(FIXED_TIME_STEP);
+        assertArrayEquals(states[TICKS], stateOf(replayed));
+
+        // Hacia atras hasta un keyframe, hacia adelante entre keyframes y hacia atras entre keyframes
+        for (long target : new long[]{100, 175, 60, 0, TICKS}) {
+            replay.seek(target, FIXED_TIME_STEP);
+            assertArrayEquals(states[(int) target], stateOf(replayed), "State after seeking to tick " + target);
+        }
+        replay.release();
+    }
+
+    /**
+     * Teclas presionadas en cada tick: acelera, gira hacia ambos lados, frena y dispara en rafagas.
+     */
+    private static Set<KeyCode> keysAt(int tick) {
+        Set<KeyCode> keys = EnumSet.noneOf(KeyCode.class);
+        if (tick < 120) keys.add(KeyCode.W);
+        else if (tick >= 200 && tick < 240) keys.add(KeyCode.S);
+        if (tick >= 40 && tick < 130) keys.add(KeyCode.D);
+        else if (tick >= 150 && tick < 210) keys.add(KeyCode.A);
+        if (tick % 40 < 15) keys.add(KeyCode.SPACE);
+        return keys;
+    }
+
+    private static byte[] stateOf(World world) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        world.writeState(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.punkipunk.hellofx.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que una torreta unida a una nave girada 180 grados choca y se encuentra en el {@link EntityTree} donde se dibuja,
+ * y no en su posicion local cerca del origen.
+ */
+
+class AttachedBoundsTest {
+
+    @Test
+    void attachedEntityCollidesWhereItIsDrawn() {
+        World world = new World();
+        EntityStore store = world.getStore();
+        Entity ship = world.spawn(40, 20), turret = world.spawn(10, 10);
+        ship.setPosition(300, 200);
+        ship.setScale(1);
+        turret.setPosition(5, 5);
+        turret.setScale(1);
+        turret.attachTo(ship);
+        int i = ship.index();
+        store.rotation[i] = store.previousRotation[i] = 180;
+        store.invalidate(i);
+        // (305, 205)-(315, 215) relativo a la nave, girado 180 grados alrededor de su centro (320, 210)
+        float minX = 325, minY = 205, maxX = 335, maxY = 215;
+
+        List<Entity> found = new ArrayList<>();
+        world.getEntityTree().queryBox(minX + 1, minY + 1, maxX - 1, maxY - 1, found::add);
+        assertTrue(found.contains(turret), "The turret is not found where it is drawn");
+        found.clear();
+        world.getEntityTree().queryBox(0, 0, 20, 20, found::add);
+        assertEquals(List.of(), found, "The turret is found at its local position");
+        assertTrue(world.getEntityTree().raycast(minX - 5, 210, minX + 5, 210) != null, "The ray misses the turret");
+
+        List<Long> pairs = new ArrayList<>();
+        world.setCollisionListener((a, b) -> pairs.add((long) a << 32 | b));
+        int entities = store.size();
+        world.getProjectiles().spawn((minX + maxX) / 2, (minY + maxY) / 2, 0, 0, 10); // Sobre la torreta
+        world.getProjectiles().spawn(10, 10, 0, 0, 10); // Sobre la posicion local de la torreta
+        world.tick(1 / 60f);
+        assertTrue(pairs.contains((long) turret.index() << 32 | entities), "The turret does not collide where it is drawn");
+        assertTrue(!pairs.contains((long) turret.index() << 32 | (entities + 1)), "The turret collides at its local position");
+    }
+
+}
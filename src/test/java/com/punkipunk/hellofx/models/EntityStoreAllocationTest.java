@@ -0,0 +1,65 @@
+package com.punkipunk.hellofx.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+
+import javafx.scene.input.KeyCode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.punkipunk.hellofx.controls.KeyPolling;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Comprueba que, en estado estable, un paso de simulacion del mundo no asigna memoria en el heap. Se mide con los contadores de
+ * asignacion por hilo de la JVM despues de calentar el JIT, igual que {@code HeadlessSimulation}. Durante toda la medicion las
+ * naves empujan y giran, y el player acelera, gira y dispara, para que el empuje, el arrastre, la integracion y los proyectiles
+ * trabajen en cada tick.
+ */
+
+class EntityStoreAllocationTest {
+
+    private static final float FIXED_TIME_STEP = 1.0f / 60.0f;
+    private static final int SHIPS = 1000;
+    private static final int WARM_UP_TICKS = 20_000;
+    private static final int TICKS = 10_000;
+
+    @AfterEach
+    void releaseKeys() {
+        KeyPolling.getInstance().setReplayKeys(null);
+    }
+
+    @Test
+    void tickDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean, "Per-thread allocation counters not available");
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Per-thread allocation counters not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        KeyPolling.getInstance().setReplayKeys(EnumSet.of(KeyCode.W, KeyCode.D, KeyCode.SPACE));
+        World world = TestWorlds.create(SHIPS);
+        for (int i = 0; i < WARM_UP_TICKS; i++) tick(world);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < TICKS; i++) tick(world);
+        long delta = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(0, delta, "Bytes allocated in " + TICKS + " ticks");
+        // La medicion solo vale si el mundo seguia en movimiento
+        Entity ship = world.getEntities().get(1);
+        assertNotEquals(ship.getPreviousPosition(), ship.getPosition(), "The ships stopped moving");
+        assertTrue(world.getProjectiles().getCount() > 0, "The player stopped firing");
+    }
+
+    private static void tick(World world) {
+        TestWorlds.steer(world);
+        world.tick(FIXED_TIME_STEP);
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.punkipunk.hellofx.models;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+/**
+ * Comprueba que cada forma alternativa de actualizar el almacen (en paralelo, vectorizada) da el mismo resultado, bit a bit,
+ * que la actualizacion secuencial escalar. La variante vectorizada solo se ejecuta si el nucleo vectorizado esta disponible
+ * (perfil vector de Maven).
+ */
+
+class EntityStoreEquivalenceTest {
+
+    private static final int STEPS = 200;
+
+    @TestFactory
+    List<DynamicTest> updateMatchesSequentialScalarUpdate() {
+        return List.of(
+                DynamicTest.dynamicTest("parallel", () -> {
+                    ForkJoinPool pool = new ForkJoinPool(4);
+                    try {
+                        assertEquivalent(new ParallelIntegrator(pool, 0, 256)::update);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }),
+                DynamicTest.dynamicTest("vectorized", () -> {
+                    assumeTrue(EntityStore.isVectorSupported(), "The Vector API is not available");
+                    assertEquivalent(store -> {
+                        store.setVectorized(true);
+                        store.update();
+                    });
+                }));
+    }
+
+    /**
+     * Avanza un almacen con la actualizacion secuencial escalar y otro con la actualizacion dada, y los compara.
+     */
+    private static void assertEquivalent(Consumer<EntityStore> update) {
+        EntityStore expected = TestStores.create(), actual = TestStores.create();
+        for (int step = 0; step < STEPS; step++) {
+            expected.update();
+            update.accept(actual);
+        }
+        TestStores.assertBitIdentical(expected, actual);
+    }
+
+}
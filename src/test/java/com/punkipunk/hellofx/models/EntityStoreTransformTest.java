@@ -0,0 +1,95 @@
+package com.punkipunk.hellofx.models;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que las transformaciones en cache de una jerarquia coinciden con las que se obtienen calculando todo desde cero,
+ * al avanzar la simulacion, cambiar alpha, repetir el mismo frame y mover una entidad entre dos consultas.
+ */
+
+class EntityStoreTransformTest {
+
+    private static final int PARENTS = 20;
+    private static final int CHILDREN = 5; // Por padre, cada uno con un nieto
+    private static final int STEPS = 50;
+    private static final float[] ALPHAS = {0, 0.25f, 0.25f, 0.5f, 1, 1}; // Se repiten para consultar dos veces el mismo frame
+    private static final long SEED = 42;
+
+    @Test
+    void cachedTransformsMatchRecomputedTransforms() {
+        EntityStore store = createStore();
+        double[] expected = new double[Transforms.SIZE], actual = new double[Transforms.SIZE];
+        for (int step = 0; step < STEPS; step++) {
+            store.update();
+            for (int a = 0; a < ALPHAS.length; a++) {
+                float alpha = ALPHAS[a];
+                if (step == STEPS / 2 && a == 2) {
+                    // Un cambio directo entre dos consultas con el mismo alpha tambien debe llegar a los descendientes
+                    int i = store.indexOf(0);
+                    store.x[i] = store.previousX[i] = store.x[i] + 10;
+                    store.invalidate(i);
+                }
+                // Los hijos se consultan antes que los padres para que se resuelvan primero como ancestros
+                for (int i = store.size() - 1; i >= 0; i--) {
+                    int o = store.resolveTransform(i, alpha);
+                    System.arraycopy(store.getTransforms(), o, actual, 0, Transforms.SIZE);
+                    compute(store, i, alpha, expected);
+                    assertArrayEquals(expected, actual, "Entity " + i + " at step " + step + " and alpha " + alpha);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcula la transformacion del mundo de una entidad sin usar la cache, con las mismas operaciones que el almacen.
+     */
+    private static void compute(EntityStore store, int i, float alpha, double[] out) {
+        float x = store.previousX[i] + (store.x[i] - store.previousX[i]) * alpha;
+        float y = store.previousY[i] + (store.y[i] - store.previousY[i]) * alpha;
+        float angle = store.previousRotation[i] + (store.rotation[i] - store.previousRotation[i]) * alpha;
+        Transforms.rotation(out, 0, angle, x + store.width[i] / 2, y + store.height[i] / 2);
+        int parent = store.getParent(store.idAt(i));
+        if (parent < 0) return;
+        int p = store.indexOf(parent);
+        double[] parentTransform = new double[Transforms.SIZE];
+        compute(store, p, alpha, parentTransform);
+        float parentX = store.previousX[p] + (store.x[p] - store.previousX[p]) * alpha;
+        float parentY = store.previousY[p] + (store.y[p] - store.previousY[p]) * alpha;
+        Transforms.attach(out, 0, parentTransform, 0, parentX, parentY);
+    }
+
+    /**
+     * Crea siempre la misma jerarquia de padres, hijos y nietos, con velocidades aleatorias. Algunas entidades quedan quietas.
+     */
+    private static EntityStore createStore() {
+        Random random = new Random(SEED);
+        EntityStore store = new EntityStore();
+        for (int p = 0; p < PARENTS; p++) {
+            int parent = create(store, random);
+            for (int c = 0; c < CHILDREN; c++) {
+                int child = create(store, random);
+                store.setParent(child, parent);
+                store.setParent(create(store, random), child);
+            }
+        }
+        return store;
+    }
+
+    private static int create(EntityStore store, Random random) {
+        int id = store.create(45, 31);
+        int i = store.indexOf(id);
+        store.x[i] = store.previousX[i] = random.nextFloat() * 800;
+        store.y[i] = store.previousY[i] = random.nextFloat() * 600;
+        if (random.nextBoolean()) {
+            store.velocityX[i] = random.nextFloat() * 10 - 5;
+            store.velocityY[i] = random.nextFloat() * 10 - 5;
+            store.angularVelocity[i] = random.nextFloat() * 10 - 5;
+        }
+        return id;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.punkipunk.hellofx.models;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba la validacion de argumentos del integrador paralelo. La equivalencia con la actualizacion secuencial la cubre
+ * {@link EntityStoreEquivalenceTest}.
+ */
+
+class ParallelIntegratorTest {
+
+    @Test
+    void rejectsInvalidArguments() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        assertThrows(IllegalArgumentException.class, () -> new ParallelIntegrator(null, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelIntegrator(pool, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelIntegrator(pool, 0, 0));
+    }
+
+}
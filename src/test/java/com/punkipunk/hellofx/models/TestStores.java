@@ -0,0 +1,52 @@
+package com.punkipunk.hellofx.models;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+
+/**
+ * Almacen de entidades comun a las pruebas que comparan dos formas de actualizarlo.
+ */
+
+final class TestStores {
+
+    static final int ENTITIES = 10_007; // No es multiplo del tamaño de bloque ni de ningun ancho de vector
+    static final long SEED = 42;
+
+    private TestStores() {
+    }
+
+    /**
+     * Crea siempre el mismo almacen, con velocidades a ambos lados de los umbrales del arrastre.
+     */
+    static EntityStore create() {
+        Random random = new Random(SEED);
+        EntityStore store = new EntityStore();
+        for (int n = 0; n < ENTITIES; n++) {
+            int i = store.indexOf(store.create(45, 31));
+            store.x[i] = random.nextFloat() * 800;
+            store.y[i] = random.nextFloat() * 600;
+            store.rotation[i] = random.nextFloat() * 360;
+            store.velocityX[i] = random.nextFloat() * 10 - 5;
+            store.velocityY[i] = random.nextFloat() * 10 - 5;
+            store.angularVelocity[i] = random.nextFloat() * 10 - 5;
+        }
+        return store;
+    }
+
+    /**
+     * Comprueba que los dos almacenes tienen, bit a bit, el mismo estado fisico.
+     */
+    static void assertBitIdentical(EntityStore expected, EntityStore actual) {
+        assertArrayEquals(expected.x, actual.x);
+        assertArrayEquals(expected.y, actual.y);
+        assertArrayEquals(expected.previousX, actual.previousX);
+        assertArrayEquals(expected.previousY, actual.previousY);
+        assertArrayEquals(expected.velocityX, actual.velocityX);
+        assertArrayEquals(expected.velocityY, actual.velocityY);
+        assertArrayEquals(expected.rotation, actual.rotation);
+        assertArrayEquals(expected.previousRotation, actual.previousRotation);
+        assertArrayEquals(expected.angularVelocity, actual.angularVelocity);
+    }
+
+}
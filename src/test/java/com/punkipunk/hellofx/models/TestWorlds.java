@@ -0,0 +1,64 @@
+package com.punkipunk.hellofx.models;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mundos de prueba compartidos por los tests: siempre el mismo player y las mismas naves, creados con una semilla fija.
+ */
+
+public final class TestWorlds {
+
+    private static final float SHIP_WIDTH = 45, SHIP_HEIGHT = 31; // Dimensiones de textures/ship.png
+    private static final float SHIP_SCALE = 0.5f;
+    private static final float SHIP_THRUST = 0.2f;
+    private static final long SEED = 42;
+
+    private TestWorlds() {
+    }
+
+    /**
+     * Crea un mundo con el player en (350, 200), naves en posiciones aleatorias con un empuje y un giro iniciales, y limites
+     * para los proyectiles.
+     *
+     * @param ships cantidad de naves ademas del player.
+     * @return el nuevo mundo.
+     */
+    public static World create(int ships) {
+        Random random = new Random(SEED);
+        World world = new World();
+        world.setPlayer(ship(world, 350, 200));
+        for (int i = 0; i < ships; i++) {
+            Entity ship = ship(world, random.nextFloat() * 750, random.nextFloat() * 450);
+            ship.applyRotation(random.nextFloat() * 10 - 5);
+            ship.applyThrust(random.nextFloat() * 5);
+        }
+        world.getProjectiles().setBounds(-32, -32, 832, 532);
+        return world;
+    }
+
+    /**
+     * Hace que todas las naves salvo el player empujen y giren (cada una con su propio giro), para que el arrastre no las
+     * detenga. Se llama antes de cada tick y no crea objetos.
+     *
+     * @param world mundo creado con {@link #create(int)}.
+     */
+    public static void steer(World world) {
+        List<Entity> entities = world.getEntities();
+        Entity player = world.getPlayer();
+        for (int i = 0; i < entities.size(); i++) {
+            Entity ship = entities.get(i);
+            if (ship == player) continue;
+            ship.applyRotation((i % 11 - 5) * 0.2f);
+            ship.applyThrust(SHIP_THRUST);
+        }
+    }
+
+    private static Entity ship(World world, float x, float y) {
+        Entity ship = world.spawn(SHIP_WIDTH, SHIP_HEIGHT);
+        ship.setPosition(x, y);
+        ship.setScale(SHIP_SCALE);
+        return ship;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.punkipunk.hellofx.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.punkipunk.hellofx.models.Entity;
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * Comprueba que una capa queda ordenada por z y, a igual z, en el orden en que se agregaron las entidades, despues de agregar,
+ * quitar y cambiar la z de entidades al azar.
+ */
+
+class RenderLayerTest {
+
+    private static final int ENTITIES = 200;
+    private static final int OPERATIONS = 20_000;
+    private static final long SEED = 42;
+
+    @Test
+    void removalKeepsInsertionOrderForEqualZ() {
+        World world = new World();
+        Entity a = world.spawn(1, 1), b = world.spawn(1, 1), c = world.spawn(1, 1), d = world.spawn(1, 1);
+        RenderLayer layer = new RenderLayer("test");
+        layer.add(a);
+        layer.add(b);
+        layer.add(c);
+        layer.add(d);
+        assertTrue(layer.remove(b)); // La ultima entidad (d) pasa al lugar de b
+        assertFalse(layer.remove(b));
+        layer.sort();
+        assertEquals(List.of(a, c, d), layer.entities);
+    }
+
+    @Test
+    void randomOperationsMatchStableSort() {
+        Random random = new Random(SEED);
+        World world = new World();
+        List<Entity> pool = new ArrayList<>();
+        for (int i = 0; i < ENTITIES; i++) pool.add(world.spawn(1, 1));
+        RenderLayer layer = new RenderLayer("test");
+        List<Entity> expected = new ArrayList<>(); // Entidades de la capa en el orden en que se agregaron
+        float[] z = new float[ENTITIES];
+
+        for (int n = 0; n < OPERATIONS; n++) {
+            int e = random.nextInt(ENTITIES);
+            Entity entity = pool.get(e);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    if (!layer.contains(entity)) {
+                        z[e] = random.nextInt(4); // Pocas claves distintas para que haya muchos empates
+                        layer.add(entity, z[e]);
+                        expected.add(entity);
+                    }
+                }
+                case 1 -> assertEquals(expected.remove(entity), layer.remove(entity));
+                default -> {
+                    if (layer.contains(entity)) {
+                        z[e] = random.nextInt(4);
+                        layer.setZ(entity, z[e]);
+                    }
+                }
+            }
+            if (n % 100 == 0) {
+                layer.sort();
+                List<Entity> sorted = new ArrayList<>(expected);
+                sorted.sort(Comparator.comparingDouble(other -> z[pool.indexOf(other)])); // List.sort es estable
+                assertEquals(sorted, layer.entities);
+                for (Entity member : expected) assertEquals(z[pool.indexOf(member)], layer.getZ(member));
+            }
+        }
+    }
+
+}
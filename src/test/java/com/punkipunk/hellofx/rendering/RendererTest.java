@@ -0,0 +1,169 @@
+package com.punkipunk.hellofx.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.image.Image;
+
+import org.junit.jupiter.api.Test;
+
+import com.punkipunk.hellofx.models.Entity;
+import com.punkipunk.hellofx.models.SnapshotBuffer;
+import com.punkipunk.hellofx.models.World;
+
+/**
+ * Comprueba la preparacion de los frames del {@link Renderer} sobre backends que registran lo que se dibuja, sin el toolkit de
+ * JavaFX.
+ */
+
+class RendererTest {
+
+    private static final float ALPHA = 0.5f;
+    private static final double WIDTH = 200, HEIGHT = 100;
+    private static final double SPRITE_WIDTH = 20, SPRITE_HEIGHT = 10;
+
+    @Test
+    void recordsCulledHiddenAndDirtyFrames() {
+        World world = new World();
+        RecordingBackend backend = new RecordingBackend(WIDTH, HEIGHT);
+        Renderer renderer = new Renderer(backend);
+        // Tres naves en pantalla y dos fuera, que el culling descarta
+        float[][] positions = {{10, 10}, {50, 10}, {90, 10}, {500, 10}, {-100, -100}};
+        List<Entity> ships = new ArrayList<>();
+        for (float[] position : positions) {
+            Entity ship = world.spawn(SPRITE_WIDTH, SPRITE_HEIGHT);
+            ship.setPosition(position[0], position[1]);
+            ship.setScale(1);
+            renderer.addEntity(ship);
+            ships.add(ship);
+        }
+        Entity hidden = world.spawn(SPRITE_WIDTH, SPRITE_HEIGHT);
+        hidden.setPosition(10, 50);
+        hidden.setScale(1);
+        renderer.addLayer("hidden").add(hidden);
+        renderer.getLayer("hidden").setVisible(false);
+        double sprite = SPRITE_WIDTH * SPRITE_HEIGHT, canvas = WIDTH * HEIGHT;
+
+        // Frame completo: limpieza del canvas, y save, setFill, un setTransform por sprite y restore
+        renderer.prepare();
+        renderer.render();
+        assertFrame(backend, 3, 6, 1, canvas + 3 * sprite);
+
+        // El primer frame del modo de regiones sucias se dibuja completo
+        renderer.setDirtyRendering(true);
+        renderer.prepare();
+        renderer.render();
+        assertFrame(backend, 3, 6, 1, canvas + 3 * sprite);
+
+        /* Mover una nave de x = 50 a x = 60 ensucia sus cajas vieja y nueva, agrandadas un pixel, que se unen en
+         * (49, 9)-(81, 21). Solo se limpia esa zona y se vuelve a dibujar esa nave, con el clip como cambio de estado extra */
+        ships.get(1).setPosition(60, 10);
+        renderer.prepare();
+        renderer.render();
+        assertFrame(backend, 1, 5, 1, 32 * 12 + sprite);
+
+        // Sin cambios no se dibuja nada
+        renderer.prepare();
+        renderer.render();
+        assertFrame(backend, 0, 3, 0, 0);
+    }
+
+    @Test
+    void snapshotRenderMatchesLiveRender() {
+        World world = new World();
+        List<Entity> ships = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Entity ship = world.spawn(20, 10);
+            ship.setPosition(50 * i, 40);
+            ship.setScale(1);
+            ship.applyThrust(1);
+            ships.add(ship);
+        }
+        Entity turret = world.spawn(5, 5);
+        turret.setScale(1);
+        turret.setPosition(2, 2);
+        turret.attachTo(ships.get(0));
+        world.getProjectiles().spawn(100, 100, 1, 0, 10);
+        world.tick(1 / 60f);
+        SnapshotBuffer snapshots = new SnapshotBuffer();
+        snapshots.publish(world, 1);
+
+        LoggingBackend live = new LoggingBackend(), threaded = new LoggingBackend();
+        createRenderer(live, world, ships, turret).render(ALPHA);
+        createRenderer(threaded, world, ships, turret).render(snapshots.acquire(), ALPHA);
+
+        // Cuatro naves de la capa del mundo, la torreta y el proyectil; ni la capa oculta ni la nave quitada
+        assertEquals(6, live.calls.size(), "Unexpected live frame " + live.calls);
+        assertEquals(live.calls, threaded.calls);
+        assertEquals(live.getStateChanges(), threaded.getStateChanges());
+        assertEquals(live.getPixels(), threaded.getPixels());
+    }
+
+    /**
+     * Comprueba lo que registro el backend en un frame y pone sus contadores a cero para el siguiente.
+     */
+    private static void assertFrame(RecordingBackend backend, long draws, long stateChanges, long clears, double pixels) {
+        assertEquals(draws, backend.getDrawCalls(), "Draw calls");
+        assertEquals(stateChanges, backend.getStateChanges(), "State changes");
+        assertEquals(clears, backend.getClears(), "Clears");
+        assertEquals(pixels, backend.getPixels(), 1e-9, "Pixels");
+        backend.reset();
+    }
+
+    /**
+     * Arma la misma escena en un renderizador: las naves en la capa del mundo en orden de z inverso, una nave quitada, otra en
+     * una capa oculta y la torreta en los efectos.
+     */
+    private static Renderer createRenderer(RenderBackend backend, World world, List<Entity> ships, Entity turret) {
+        Renderer renderer = new Renderer(backend);
+        RenderLayer worldLayer = renderer.getLayer(Renderer.WORLD_LAYER);
+        for (int i = 0; i < 5; i++) worldLayer.add(ships.get(i), -i);
+        renderer.removeEntity(ships.get(2));
+        renderer.addLayer("hidden").add(ships.get(5));
+        renderer.getLayer("hidden").setVisible(false);
+        renderer.getLayer(Renderer.EFFECTS_LAYER).add(turret);
+        renderer.setProjectiles(world.getProjectiles());
+        return renderer;
+    }
+
+    /**
+     * Registra cada llamada de dibujo con la transformacion del contexto, para comparar el orden y la posicion de los sprites.
+     */
+    private static final class LoggingBackend extends RecordingBackend {
+
+        final List<String> calls = new ArrayList<>();
+        private final double[] transform = {1, 0, 0, 1, 0, 0};
+
+        LoggingBackend() {
+            super(800, 600);
+        }
+
+        @Override
+        public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+            super.setTransform(mxx, myx, mxy, myy, tx, ty);
+            transform[0] = mxx;
+            transform[1] = myx;
+            transform[2] = mxy;
+            transform[3] = myy;
+            transform[4] = tx;
+            transform[5] = ty;
+        }
+
+        @Override
+        public void drawImage(Image image, double x, double y, double width, double height) {
+            super.drawImage(image, x, y, width, height);
+            calls.add(String.format("image %.3f %.3f %.3f %.3f %s", x, y, width, height, Arrays.toString(transform)));
+        }
+
+        @Override
+        public void fillOval(double x, double y, double width, double height) {
+            super.fillOval(x, y, width, height);
+            calls.add(String.format("oval %.3f %.3f %.3f %.3f", x, y, width, height));
+        }
+
+    }
+
+}